@@ -1,15 +1,18 @@
 package ryuji.command;
 
-import ryuji.storage.Storage;
+import ryuji.storage.StorageBackend;
 import ryuji.task.Task;
 import ryuji.task.TaskList;
 import ryuji.ui.Ui;
 
+import java.util.List;
 
 /**
  * Represents a command that adds a new task to the task list.
  * This command is responsible for adding a task to the task list, saving it to storage,
  * and displaying a confirmation message to the user.
+ * <p>When the task is an event that shares a day with events already in the list, the message also warns
+ * about the clash. The event is added all the same.</p>
  */
 public class AddCommand extends Command {
 
@@ -33,18 +36,24 @@ public class AddCommand extends Command {
      * saving the task to storage, and showing a confirmation message to the user.
      *
      * <p>This method delegates the task addition to the {@code TaskList} and
-     * instructs the {@code Storage} to save the task to the file system.</p>
+     * instructs the {@code StorageBackend} to save the task to the file system in the background.</p>
      *
      * @param tasks   the current {@code TaskList} containing all tasks
      * @param ui      the {@code Ui} used to display messages to the user
-     * @param storage the {@code Storage} used for saving task data to persistent storage
+     * @param storage the {@code StorageBackend} used for saving task data to persistent storage
      *
-     * @return a confirmation message indicating that the task has been successfully added
+     * @return a confirmation message indicating that the task has been successfully added, followed by any
+     *         events it clashes with
      */
     @Override
-    public String execute(TaskList tasks, Ui ui, Storage storage) {
+    public String execute(TaskList tasks, Ui ui, StorageBackend storage) {
         String message = tasks.addToList(task);
-        storage.writeTaskToFile(task);
+        saveInBackground(storage.writeTaskToFileAsync(task), ui,
+                "There was an error trying to save your task master: ");
+        List<Task> clashes = tasks.findClashes(task);
+        if (!clashes.isEmpty()) {
+            message += "\n" + ui.displayClashes(clashes);
+        }
         return message;
     }
 }
@@ -1,9 +1,10 @@
 package ryuji.command;
 
-import ryuji.storage.Storage;
+import ryuji.storage.StorageBackend;
 import ryuji.task.TaskList;
 import ryuji.ui.Ui;
 
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Abstract base class for all commands in the Ryuji chatbot application.
@@ -52,10 +53,27 @@ public abstract class Command {
      *
      * @param tasks   the current {@code TaskList} containing all tasks
      * @param ui      the {@code Ui} component used to interact with the user
-     * @param storage the {@code Storage} component used for managing persistent data
+     * @param storage the {@code StorageBackend} component used for managing persistent data
      * @return a message or result indicating the outcome of executing the command
      */
-    public abstract String execute(TaskList tasks, Ui ui, Storage storage);
+    public abstract String execute(TaskList tasks, Ui ui, StorageBackend storage);
+
+    /**
+     * Lets a change be saved in the background while the command replies straight away.
+     * <p>The task list has already been changed in memory by the time the reply is shown. If saving the change
+     * fails, the user is told with a follow-up message starting with {@code failureMessage}.</p>
+     *
+     * @param change         the future of the change being saved
+     * @param ui             the {@code Ui} used to show the follow-up message
+     * @param failureMessage the start of the message shown if the change could not be saved
+     */
+    protected static void saveInBackground(CompletableFuture<Void> change, Ui ui, String failureMessage) {
+        change.whenComplete((ignored, e) -> {
+            if (e != null) {
+                ui.showFollowUp(failureMessage + e.getMessage());
+            }
+        });
+    }
 
     /**
      * Returns a string representation of this command.
@@ -1,6 +1,7 @@
 package ryuji.command;
 
-import ryuji.storage.Storage;
+import ryuji.storage.StorageBackend;
+import ryuji.task.Task;
 import ryuji.task.TaskList;
 import ryuji.ui.Ui;
 
@@ -10,8 +11,11 @@ import ryuji.ui.Ui;
  */
 public class DeleteCommand extends Command {
 
-    /** The 1-based position of the task to be deleted. */
-    private final int position;
+    /** The 1-based position or the ID of the task to be deleted. */
+    private final int target;
+
+    /** Whether {@link #target} is a task ID rather than a position in the list. */
+    private final boolean isTaskId;
 
     /**
      * Constructs a {@code DeleteCommand} with the specified command and the position of the task to delete.
@@ -22,30 +26,47 @@ public class DeleteCommand extends Command {
      * @throws AssertionError if the position is less than or equal to 0
      */
     public DeleteCommand(String command, int position) {
+        this(command, position, false);
+    }
+
+    /**
+     * Constructs a {@code DeleteCommand} for the task with the given position or ID.
+     * <p>Unlike positions, IDs of the remaining tasks do not shift after a delete.</p>
+     *
+     * @param command  the command keyword (typically "delete")
+     * @param target   the 1-based position of the task, or its ID
+     * @param isTaskId {@code true} if {@code target} is a task ID
+     * @throws AssertionError if the target is less than or equal to 0
+     */
+    public DeleteCommand(String command, int target, boolean isTaskId) {
         super(command);
-        assert position > 0 : "use a number that is greater than 0";
-        this.position = position;
+        assert target > 0 : "use a number that is greater than 0";
+        this.target = target;
+        this.isTaskId = isTaskId;
     }
 
     /**
      * Executes the delete command by removing the task at the specified position from the task list
      * and updating the storage file to reflect the change.
      *
-     * <p>If an error occurs during the deletion from storage, a message is returned indicating the failure.</p>
+     * <p>The task is removed from storage in the background. If an error occurs during the deletion from
+     * storage, a follow-up message is shown indicating the failure.</p>
      *
      * @param tasks   the current {@code TaskList} containing all tasks
      * @param ui      the {@code Ui} component used for user interaction
-     * @param storage the {@code Storage} component responsible for managing persistent data
+     * @param storage the {@code StorageBackend} component responsible for managing persistent data
      * @return a message indicating the result of the deletion (success or failure)
      */
     @Override
-    public String execute(TaskList tasks, Ui ui, Storage storage) {
-        String message = tasks.deleteFromList(position);
-        try {
-            storage.removeTaskFromFile(position);
-        } catch (Exception e) {
-            return "There was an error trying to remove your task master: " + e.getMessage();
+    public String execute(TaskList tasks, Ui ui, StorageBackend storage) {
+        int position = isTaskId ? tasks.findPosition(target) : target;
+        if (position < 1 || position > tasks.size()) {
+            return "Master I can't find that item in your list";
         }
+        Task task = tasks.getTask(position);
+        String message = tasks.deleteFromList(position);
+        saveInBackground(storage.removeTaskFromFileAsync(position, task), ui,
+                "There was an error trying to remove your task master: ");
         return message;
     }
 }
@@ -0,0 +1,67 @@
+package ryuji.command;
+
+import ryuji.storage.StorageBackend;
+import ryuji.task.TaskList;
+import ryuji.ui.Ui;
+
+import java.time.LocalDate;
+
+/**
+ * Represents a command to list the deadlines and events that fall in a range of dates.
+ * <p>The {@code DueCommand} either shows everything due before a date, as in "due before 2025-12-01", or
+ * everything due between two dates, including both, as in "due between 2025-12-01 and 2025-12-31". Deadlines
+ * are placed by their due date and events by their start date, and the tasks are shown earliest first.</p>
+ * <p>Tasks whose date could not be read as a date are shown separately, since they could be due on any
+ * date.</p>
+ */
+public class DueCommand extends Command {
+
+    /** The first date of the range, or null if everything before {@link #to} is shown. */
+    private final LocalDate from;
+
+    /** The last date of the range, or the date everything is due before if {@link #from} is null. */
+    private final LocalDate to;
+
+    /**
+     * Constructs a {@code DueCommand} that shows the tasks due before a date.
+     *
+     * @param command The command keyword (e.g., "due").
+     * @param before  The date the tasks must be due before.
+     */
+    public DueCommand(String command, LocalDate before) {
+        this(command, null, before);
+    }
+
+    /**
+     * Constructs a {@code DueCommand} that shows the tasks due between two dates, including both.
+     *
+     * @param command The command keyword (e.g., "due").
+     * @param from    The first date of the range, or null to show the tasks due before {@code to}.
+     * @param to      The last date of the range.
+     */
+    public DueCommand(String command, LocalDate from, LocalDate to) {
+        super(command);
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Executes the due command by listing the tasks in the range of dates, followed by the tasks whose date
+     * could not be read.
+     * This method does not modify the task list or the storage.
+     *
+     * @param tasks   The current {@code TaskList} containing all tasks.
+     * @param ui      The {@code Ui} instance used to display the tasks.
+     * @param storage The {@code StorageBackend} instance (not used in this command).
+     * @return the tasks in the range, and the tasks that may be in it but have no readable date.
+     */
+    @Override
+    public String execute(TaskList tasks, Ui ui, StorageBackend storage) {
+        TaskList due = from == null ? tasks.findDueBefore(to) : tasks.findDueBetween(from, to);
+        TaskList unreadDates = tasks.findUnreadDates();
+        if (unreadDates.size() == 0) {
+            return ui.displayTaskList(due);
+        }
+        return ui.displayTaskList(due) + "\n" + ui.displayTasksWithUnreadDates(unreadDates.asList());
+    }
+}
@@ -1,9 +1,11 @@
 package ryuji.command;
 
-import ryuji.storage.Storage;
+import ryuji.storage.StorageBackend;
 import ryuji.task.TaskList;
 import ryuji.ui.Ui;
 
+import java.io.IOException;
+
 /**
  * Represents a command that exits the application.
  * <p>When executed, this command shows a farewell message to the user and gracefully exits the application.</p>
@@ -21,17 +23,24 @@ public class ExitCommand extends Command {
     }
 
     /**
-     * Executes the exit command by displaying a farewell message to the user.
-     * No changes are made to the task list or storage. This method provides a graceful exit
-     * and shows the user a farewell message.
+     * Executes the exit command by saving any pending changes and displaying a farewell message to the user.
+     * No changes are made to the task list. Changes still waiting to be written are flushed to disk first,
+     * so that nothing is lost when the application closes, and the storage is then given the chance to
+     * save a snapshot of the whole list so the next start is faster.
      *
-     * @param tasks   the current {@code TaskList} (not used by this command)
+     * @param tasks   the current {@code TaskList}, passed on to the storage's checkpoint
      * @param ui      the {@code Ui} component responsible for user interaction
-     * @param storage the {@code Storage} component responsible for persistent data (not used by this command)
+     * @param storage the {@code StorageBackend} component whose pending changes are flushed
      * @return a farewell message displayed to the user
      */
     @Override
-    public String execute(TaskList tasks, Ui ui, Storage storage) {
+    public String execute(TaskList tasks, Ui ui, StorageBackend storage) {
+        try {
+            storage.flush();
+            storage.checkpoint(tasks.asList());
+        } catch (IOException e) {
+            return "I could not save all your changes master: " + e.getMessage() + "\n" + ui.showFarewell();
+        }
         return ui.showFarewell();
     }
 }
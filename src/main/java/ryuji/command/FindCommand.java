@@ -1,14 +1,25 @@
 package ryuji.command;
 
-import ryuji.storage.Storage;
+import ryuji.storage.StorageBackend;
+import ryuji.task.Task;
+import ryuji.task.TaskFilter;
 import ryuji.task.TaskList;
 import ryuji.ui.Ui;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
 /**
  * Represents a command to search for tasks that contain a given keyword.
  * <p>The {@code FindCommand} filters the list of tasks based on a search term
  * and displays the matching tasks to the user. It allows the user to quickly locate tasks
  * related to a specific keyword or phrase.</p>
+ * <p>A fuzzy search, typed as "find~", also finds labels with words a typo or two away from the search term,
+ * closest first.</p>
+ * <p>The matches can be narrowed down to the tasks of one status, one type or both, as in
+ * "find --open --deadline book".</p>
  */
 public class FindCommand extends Command {
 
@@ -18,6 +29,15 @@ public class FindCommand extends Command {
      */
     private final String searchTerm;
 
+    /** Whether the tasks archived out of the list are searched as well. */
+    private final boolean includesHistory;
+
+    /** Whether words a few typos away from the search term are found too, as in "find~ boko". */
+    private final boolean isFuzzy;
+
+    /** The status and type of the tasks shown, or null to show every match. */
+    private final TaskFilter filter;
+
     /**
      * Constructs a {@code FindCommand} with the specified command keyword and search term.
      *
@@ -25,8 +45,48 @@ public class FindCommand extends Command {
      * @param searchTerm The term to search for within the task descriptions.
      */
     public FindCommand(String command, String searchTerm) {
+        this(command, searchTerm, false);
+    }
+
+    /**
+     * Constructs a {@code FindCommand} that can also search the tasks archived out of the list.
+     *
+     * @param command         The command keyword (e.g., "find").
+     * @param searchTerm      The term to search for within the task descriptions.
+     * @param includesHistory {@code true} to also search archived tasks, as in "find --history book".
+     */
+    public FindCommand(String command, String searchTerm, boolean includesHistory) {
+        this(command, searchTerm, includesHistory, false);
+    }
+
+    /**
+     * Constructs a {@code FindCommand} that can also allow for typos in the search term.
+     *
+     * @param command         The command keyword (e.g., "find~").
+     * @param searchTerm      The term to search for within the task descriptions.
+     * @param includesHistory {@code true} to also search archived tasks, as in "find~ --history bokk".
+     * @param isFuzzy         {@code true} to find words a few typos away from the search term, closest first.
+     */
+    public FindCommand(String command, String searchTerm, boolean includesHistory, boolean isFuzzy) {
+        this(command, searchTerm, includesHistory, isFuzzy, null);
+    }
+
+    /**
+     * Constructs a {@code FindCommand} that shows only the matches with a status and type.
+     *
+     * @param command         The command keyword (e.g., "find").
+     * @param searchTerm      The term to search for within the task descriptions.
+     * @param includesHistory {@code true} to also search archived tasks, as in "find --history book".
+     * @param isFuzzy         {@code true} to find words a few typos away from the search term, closest first.
+     * @param filter          The status and type of the matches to show, as in "find --open book", or null.
+     */
+    public FindCommand(String command, String searchTerm, boolean includesHistory, boolean isFuzzy,
+            TaskFilter filter) {
         super(command);
         this.searchTerm = searchTerm;
+        this.includesHistory = includesHistory;
+        this.isFuzzy = isFuzzy;
+        this.filter = filter;
     }
 
     /**
@@ -38,11 +98,37 @@ public class FindCommand extends Command {
      *
      * @param tasks   The current {@code TaskList} containing all tasks.
      * @param ui      The {@code Ui} instance used to display messages to the user.
-     * @param storage The {@code Storage} instance used for saving/loading tasks (not used in this command).
+     * @param storage The {@code StorageBackend} instance that archived tasks are read from, if they are searched.
      * @return a string representation of the tasks that match the search term.
      */
     @Override
-    public String execute(TaskList tasks, Ui ui, Storage storage) {
-        return tasks.find(searchTerm).toString();
+    public String execute(TaskList tasks, Ui ui, StorageBackend storage) {
+        TaskList found = isFuzzy ? tasks.findFuzzy(searchTerm) : tasks.find(searchTerm);
+        if (filter != null) {
+            found = tasks.filter(found, filter);
+        }
+        if (!includesHistory) {
+            return found.toString();
+        }
+        List<Task> archived = new ArrayList<>();
+        try {
+            List<Task> history = storage.readHistory();
+            List<Task> matches = history;
+            if (isFuzzy) {
+                // tasks are archived in the order they were completed, but a task list is kept in ID order
+                List<Task> byId = new ArrayList<>(history);
+                byId.sort(Comparator.comparingInt(Task::getId));
+                matches = new TaskList(byId).findFuzzy(searchTerm).asList();
+            }
+            for (Task task : matches) {
+                boolean isMatch = (isFuzzy || task.checkLabel(searchTerm)) && (filter == null || filter.matches(task));
+                if (isMatch && tasks.findPosition(task.getId()) == 0) {
+                    archived.add(task);
+                }
+            }
+        } catch (IOException e) {
+            return "There was an error trying to read your stored away tasks master: " + e.getMessage();
+        }
+        return found + "\n" + ui.displayArchivedTasks(archived);
     }
 }
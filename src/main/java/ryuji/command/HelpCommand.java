@@ -1,6 +1,6 @@
 package ryuji.command;
 
-import ryuji.storage.Storage;
+import ryuji.storage.StorageBackend;
 import ryuji.task.TaskList;
 import ryuji.ui.Ui;
 
@@ -27,7 +27,8 @@ public class HelpCommand extends Command {
             "    result: [D][ ] return book (by 2025-09-15 1600)\n\n" +
             "Events\n" +
             "    type: event JMOF /from 2026-01-09 /to 2026-01-11\n" +
-            "    result: [E][ ] JMOF (from 2026-01-09 to 2026-01-11)\n\n" +
+            "    result: [E][ ] JMOF (from 2026-01-09 to 2026-01-11)\n" +
+            "    tip: I will warn you if the event shares a day with events already in your list\n\n" +
             "Commands to help you with your list of tasks:\n" +
             "Mark\n" +
             "    type: mark 1\n" +
@@ -38,15 +39,40 @@ public class HelpCommand extends Command {
             "List\n" +
             "    type: list\n" +
             "    result:\n" +
-            "    1. [T][ ] make coffee\n" +
-            "    2. [D][ ] return book (by 2025-09-15 1600)\n" +
-            "    3. [E][ ] JMOF (from 2026-01-09 to 2026-01-11)\n\n" +
+            "    1. [T][ ] make coffee (#1)\n" +
+            "    2. [D][ ] return book (by 2025-09-15 1600) (#2)\n" +
+            "    3. [E][ ] JMOF (from 2026-01-09 to 2026-01-11) (#3)\n" +
+            "    tip: type list --history to also see completed tasks that have been stored away\n" +
+            "    tip: type list open deadline to only see the deadlines you have not done yet;\n" +
+            "    pick open or done, todo, deadline or event, or one of each\n" +
+            "    tip: type list page 2 to see tasks 51 to 100 of a long list, or list --limit 20 --after 40\n" +
+            "    to see the 20 tasks that come after the task with ID 40\n\n" +
             "Delete\n" +
             "    type delete 1\n" +
-            "    result: first item will be removed from the list\n\n" +
+            "    result: first item will be removed from the list\n" +
+            "    tip: type #3 instead of 3 in mark, unmark or delete to pick the task by its ID,\n" +
+            "    which is shown after it in the list and does not change when other tasks are deleted\n\n" +
             "Find\n" +
             "    type: find book\n" +
-            "    result: 1. [D] return book (by 2025-09-15)\n\n" +
+            "    result: 1. [D] return book (by 2025-09-15)\n" +
+            "    tip: type find --history book to also search completed tasks that have been stored away\n" +
+            "    tip: type find~ bokk to also find words with a typo or two, closest first\n" +
+            "    tip: type find --open --deadline book to only see the matches that are open deadlines\n\n" +
+            "Due\n" +
+            "    type: due before 2025-12-01\n" +
+            "    result: shows deadlines due and events starting before Dec 1 2025, earliest first\n" +
+            "    tip: type due between 2025-12-01 and 2025-12-31 to include both dates\n\n" +
+            "On\n" +
+            "    type: on 2026-01-10\n" +
+            "    result: shows the events taking place on Jan 10 2026\n" +
+            "    tip: type during 2026-01-01 2026-01-31 to see the events during a range of dates\n\n" +
+            "Import\n" +
+            "    type: import tasks.txt\n" +
+            "    result: adds every task in tasks.txt, where each line is written like a todo,\n" +
+            "    deadline or event command, and tells you which lines could not be added\n\n" +
+            "Stats\n" +
+            "    type: stats\n" +
+            "    result: shows how many tasks you have and how much memory the indexes behind find and list take\n\n" +
             "Exit\n" +
             "    type: exit\n" +
             "    result: ends the chat with Ryuji\n\n" +
@@ -67,11 +93,11 @@ public class HelpCommand extends Command {
      *
      * @param tasks   the current {@code TaskList} (not used in this command)
      * @param ui      the {@code Ui} instance used to display messages to the user
-     * @param storage the {@code Storage} instance (not used in this command)
+     * @param storage the {@code StorageBackend} instance (not used in this command)
      * @return the help message that provides usage instructions for various commands
      */
     @Override
-    public String execute(TaskList tasks, Ui ui, Storage storage) {
+    public String execute(TaskList tasks, Ui ui, StorageBackend storage) {
         return HELPMESSAGE;
     }
 }
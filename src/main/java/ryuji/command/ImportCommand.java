@@ -0,0 +1,182 @@
+package ryuji.command;
+
+import ryuji.storage.StorageBackend;
+import ryuji.task.Deadline;
+import ryuji.task.Event;
+import ryuji.task.Task;
+import ryuji.task.TaskList;
+import ryuji.task.ToDo;
+import ryuji.ui.Ui;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Represents a command that adds every task listed in a file to the task list.
+ * <p>Each line of the file is written the same way as a command that adds a task, such as
+ * {@code todo read book} or {@code deadline return book /by 2025-09-15}. The file is read one batch of lines
+ * at a time rather than all at once, so even very large files need little memory. Each batch is added to
+ * the task list in one go and saved to storage with a single write in the background, while the next batch
+ * is read.</p>
+ * <p>Lines that are not a valid task are skipped and reported at the end, together with how quickly the
+ * tasks were imported. The report waits until every batch has been saved, so the time covers saving the
+ * tasks as well as reading them.</p>
+ */
+public class ImportCommand extends Command {
+
+    /** The number of lines read, added and saved together. */
+    private static final int BATCH_SIZE = 1000;
+
+    /** The number of rejected lines quoted in the report; the rest are only counted. */
+    private static final int MAX_REPORTED_REJECTIONS = 5;
+
+    /** The start of the message reporting that imported tasks could not be saved. */
+    private static final String SAVE_ERROR = "there was an error trying to save your imported tasks: ";
+
+    /** The path of the file to import tasks from. */
+    private final String sourcePath;
+
+    /**
+     * Constructs an {@code ImportCommand} that imports the tasks listed in the given file.
+     *
+     * @param command    the command keyword (typically "import")
+     * @param sourcePath the path of the file to import tasks from
+     */
+    public ImportCommand(String command, String sourcePath) {
+        super(command);
+        this.sourcePath = sourcePath.trim();
+    }
+
+    /**
+     * Executes the import command by reading the file in batches and adding every valid task to the list.
+     * <p>Each batch is saved in the background while the next one is read, and every batch is waited for
+     * before the report is made. If saving one fails, the report says so instead of how quickly the tasks
+     * were imported.</p>
+     *
+     * @param tasks   the current {@code TaskList} the imported tasks are added to
+     * @param ui      the {@code Ui} of the application (not used)
+     * @param storage the {@code StorageBackend} the imported tasks are saved to
+     * @return a report of how many tasks were imported, how quickly, and which lines were rejected
+     */
+    @Override
+    public String execute(TaskList tasks, Ui ui, StorageBackend storage) {
+        Path source = Path.of(sourcePath);
+        if (!Files.isReadable(source)) {
+            return "Sorry master but I cannot read that file: " + sourcePath;
+        }
+
+        long start = System.nanoTime();
+        int imported = 0;
+        int rejected = 0;
+        StringBuilder rejections = new StringBuilder();
+        List<Task> batch = new ArrayList<>(BATCH_SIZE);
+        List<Integer> batchLineNums = new ArrayList<>(BATCH_SIZE);
+        List<CompletableFuture<Void>> saves = new ArrayList<>();
+
+        try (BufferedReader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNum = 0;
+            while (true) {
+                line = reader.readLine();
+                if (line != null) {
+                    lineNum++;
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    Task task = parseLine(line);
+                    if (task != null) {
+                        batch.add(task);
+                        batchLineNums.add(lineNum);
+                    } else if (++rejected <= MAX_REPORTED_REJECTIONS) {
+                        rejections.append("    line ").append(lineNum).append(": ").append(line).append("\n");
+                    }
+                }
+                if (batch.size() == BATCH_SIZE || (line == null && !batch.isEmpty())) {
+                    List<Task> added = tasks.addAllToList(batch);
+                    for (int i = 0; i < batch.size(); i++) {
+                        if (batch.get(i).getId() == 0 && ++rejected <= MAX_REPORTED_REJECTIONS) {
+                            rejections.append("    line ").append(batchLineNums.get(i)).append(": ")
+                                    .append(batch.get(i)).append("\n");
+                        }
+                    }
+                    imported += added.size();
+                    saves.add(storage.writeTasksToFileAsync(added));
+                    batch = new ArrayList<>(BATCH_SIZE);
+                    batchLineNums.clear();
+                }
+                if (line == null) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            String saveError = awaitSaves(saves);
+            return "I could only import " + imported + " tasks before I had trouble reading your file master: "
+                    + e.getMessage() + (saveError == null ? "" : "\n" + SAVE_ERROR + saveError);
+        }
+
+        String saveError = awaitSaves(saves);
+        long millis = Math.max((System.nanoTime() - start) / 1_000_000, 1);
+        StringBuilder report = new StringBuilder();
+        if (saveError != null) {
+            report.append("I have added ").append(imported).append(" tasks from ").append(sourcePath)
+                    .append(" to your list master, but ").append(SAVE_ERROR).append(saveError);
+        } else {
+            report.append("I have imported ").append(imported)
+                    .append(" tasks from ").append(sourcePath).append(" in ").append(millis).append(" ms (")
+                    .append(imported * 1000L / millis).append(" tasks per second) master");
+        }
+        if (rejected > 0) {
+            report.append("\nI could not import ").append(rejected).append(" lines:\n").append(rejections);
+            if (rejected > MAX_REPORTED_REJECTIONS) {
+                report.append("    and ").append(rejected - MAX_REPORTED_REJECTIONS).append(" more\n");
+            }
+        }
+        return report.toString();
+    }
+
+    /**
+     * Waits until every batch handed to storage has been saved.
+     *
+     * @param saves the saves of the batches, in the order they were started
+     * @return the message of the error that stopped a batch from being saved, or null if every batch was saved
+     */
+    private static String awaitSaves(List<CompletableFuture<Void>> saves) {
+        try {
+            CompletableFuture.allOf(saves.toArray(new CompletableFuture<?>[0])).join();
+            return null;
+        } catch (CompletionException e) {
+            return e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+        }
+    }
+
+    /**
+     * Turns a line of the import file into a task, the same way the matching command would.
+     *
+     * @param line a line such as {@code todo read book}
+     * @return the task described by the line, or null if the line does not describe a task
+     */
+    private static Task parseLine(String line) {
+        String[] parts = line.trim().split(" ", 2);
+        try {
+            switch (parts[0].toLowerCase()) {
+            case "todo":
+                return new ToDo(parts[1]);
+            case "deadline":
+                return new Deadline(parts[1]);
+            case "event":
+                return new Event(parts[1]);
+            default:
+                return null;
+            }
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+}
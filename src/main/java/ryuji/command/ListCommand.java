@@ -1,15 +1,43 @@
 package ryuji.command;
 
-import ryuji.storage.Storage;
+import ryuji.storage.StorageBackend;
+import ryuji.task.Task;
+import ryuji.task.TaskFilter;
 import ryuji.task.TaskList;
 import ryuji.ui.Ui;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Represents a command to display the full list of tasks to the user.
  * <p>The {@code ListCommand} is used to show all tasks currently stored in the {@code TaskList}.</p>
+ * <p>The list can be narrowed down to the tasks of one status, one type or both, as in "list open deadline".</p>
+ * <p>A long list can be shown a page at a time, as in "list page 3", or a number of tasks from just after a
+ * task, as in "list --limit 50 --after 1200", which keeps showing the next tasks even when tasks before them
+ * have been deleted in between.</p>
  */
 public class ListCommand extends Command {
 
+    /** The number of tasks on each page of "list page", unless {@code --limit} gives another number. */
+    private static final int PAGE_SIZE = 50;
+
+    /** Whether the tasks archived out of the list are shown as well. */
+    private final boolean includesHistory;
+
+    /** The status and type of the tasks shown, or null to show every task. */
+    private final TaskFilter filter;
+
+    /** The 1-based page of tasks shown, or 0 to show the tasks after {@link #afterId}. */
+    private final int page;
+
+    /** The ID of the task the tasks shown come after, or 0 to show them from the top. */
+    private final int afterId;
+
+    /** The largest number of tasks shown, or the number on a page, or 0 for no limit. */
+    private final int limit;
+
     /**
      * Constructs a {@code ListCommand} with the specified command keyword.
      * The command keyword is typically "list".
@@ -17,20 +45,95 @@ public class ListCommand extends Command {
      * @param command the command keyword (usually "list")
      */
     public ListCommand(String command) {
+        this(command, false);
+    }
+
+    /**
+     * Constructs a {@code ListCommand} that can also show the tasks archived out of the list.
+     *
+     * @param command         the command keyword (usually "list")
+     * @param includesHistory {@code true} to also show archived tasks, as in "list --history"
+     */
+    public ListCommand(String command, boolean includesHistory) {
+        this(command, includesHistory, null);
+    }
+
+    /**
+     * Constructs a {@code ListCommand} that shows only the tasks with a status and type.
+     *
+     * @param command         the command keyword (usually "list")
+     * @param includesHistory {@code true} to also show archived tasks, as in "list --history"
+     * @param filter          the status and type of the tasks to show, as in "list open deadline", or null
+     */
+    public ListCommand(String command, boolean includesHistory, TaskFilter filter) {
+        this(command, includesHistory, filter, 0, 0, 0);
+    }
+
+    /**
+     * Constructs a {@code ListCommand} that shows a page of the tasks, or a number of tasks after a task.
+     *
+     * @param command         the command keyword (usually "list")
+     * @param includesHistory {@code true} to also show archived tasks, as in "list --history"
+     * @param filter          the status and type of the tasks to show, as in "list open deadline", or null
+     * @param page            the 1-based page to show, as in "list page 3", or 0
+     * @param afterId         the ID of the task to show the tasks after, as in "list --after 1200", or 0
+     * @param limit           the largest number of tasks to show, or the number on a page, as in
+     *                        "list --limit 50", or 0 for no limit
+     */
+    public ListCommand(String command, boolean includesHistory, TaskFilter filter, int page, int afterId,
+            int limit) {
         super(command);
+        this.includesHistory = includesHistory;
+        this.filter = filter;
+        this.page = page;
+        this.afterId = afterId;
+        this.limit = limit;
     }
 
     /**
-     * Executes the list command by displaying all tasks in the current {@code TaskList}.
+     * Executes the list command by displaying all tasks in the current {@code TaskList}, or those that pass
+     * the filter.
      * This method uses the {@code Ui} to present the task list to the user.
+     * <p>Archived tasks are read from storage only when the history is asked for. A task that is still in
+     * the list, which can happen if the application stopped while archiving it, is shown only once.</p>
+     * <p>If a page or a task to start after was asked for, only that stretch of the tasks is shown; archived
+     * tasks are still shown in full. Pages are counted within the tasks that pass the filter, but every task is
+     * numbered by its position in the full list, so the numbers shown are the ones to mark or delete it by.</p>
      *
      * @param tasks   the current {@code TaskList} containing all tasks
      * @param ui      the {@code Ui} used to interact with the user and display the task list
-     * @param storage the {@code Storage} handler (not used in this command)
+     * @param storage the {@code StorageBackend} handler, which archived tasks are read from if they are asked for
      * @return a string representation of the entire task list to be displayed
      */
     @Override
-    public String execute(TaskList tasks, Ui ui, Storage storage) {
-        return ui.displayTaskList(tasks);
+    public String execute(TaskList tasks, Ui ui, StorageBackend storage) {
+        TaskList shown = filter == null ? tasks : tasks.filter(filter);
+        int from = shown.countUpTo(afterId);
+        int count = limit > 0 ? limit : Integer.MAX_VALUE;
+        if (page > 0) {
+            int pageSize = limit > 0 ? limit : PAGE_SIZE;
+            int pages = Math.max(1, (int) (((long) shown.size() + pageSize - 1) / pageSize));
+            if (page > pages) {
+                return "Your list only has " + pages + (pages == 1 ? " page" : " pages") + " of " + pageSize
+                        + " tasks master";
+            }
+            from = (page - 1) * pageSize;
+            count = pageSize;
+        }
+        String listed = ui.displayTaskList(shown, from, count, tasks);
+        if (!includesHistory) {
+            return listed;
+        }
+        List<Task> archived = new ArrayList<>();
+        try {
+            for (Task task : storage.readHistory()) {
+                if ((filter == null || filter.matches(task)) && tasks.findPosition(task.getId()) == 0) {
+                    archived.add(task);
+                }
+            }
+        } catch (IOException e) {
+            return "There was an error trying to read your stored away tasks master: " + e.getMessage();
+        }
+        return listed + "\n" + ui.displayArchivedTasks(archived);
     }
 }
@@ -1,6 +1,6 @@
 package ryuji.command;
 
-import ryuji.storage.Storage;
+import ryuji.storage.StorageBackend;
 import ryuji.task.TaskList;
 import ryuji.ui.Ui;
 
@@ -11,8 +11,11 @@ import ryuji.ui.Ui;
  */
 public class MarkCommand extends Command {
 
-    /** The 1-based position of the task to be marked as done. */
-    private final int position;
+    /** The 1-based position or the ID of the task to be marked as done. */
+    private final int target;
+
+    /** Whether {@link #target} is a task ID rather than a position in the list. */
+    private final boolean isTaskId;
 
     /**
      * Constructs a {@code MarkCommand} with the specified command string and task position.
@@ -23,28 +26,45 @@ public class MarkCommand extends Command {
      * @throws AssertionError if the position is less than or equal to 0
      */
     public MarkCommand(String command, int position) {
+        this(command, position, false);
+    }
+
+    /**
+     * Constructs a {@code MarkCommand} for the task with the given position or ID.
+     * <p>A task's ID stays the same when tasks before it are deleted, so it is a safer way to refer to a
+     * task than its position.</p>
+     *
+     * @param command  the command keyword (typically "mark")
+     * @param target   the 1-based position of the task, or its ID
+     * @param isTaskId {@code true} if {@code target} is a task ID
+     * @throws AssertionError if the target is less than or equal to 0
+     */
+    public MarkCommand(String command, int target, boolean isTaskId) {
         super(command);
-        assert position > 0 : "Position must be greater than 0";
-        this.position = position;
+        assert target > 0 : "Position must be greater than 0";
+        this.target = target;
+        this.isTaskId = isTaskId;
     }
 
     /**
      * Executes the mark command by updating the status of the specified task.
      * This method changes the task's status to "done" and returns a confirmation message.
+     * <p>The change is saved in the background, and the user is told with a follow-up message if it fails.</p>
      *
      * @param tasks   the current {@code TaskList} containing all tasks
-     * @param ui      the {@code Ui} used for displaying messages (not used in this command)
-     * @param storage the {@code Storage} responsible for saving task data (not used in this command)
+     * @param ui      the {@code Ui} used to show a follow-up message if the change cannot be saved
+     * @param storage the {@code StorageBackend} responsible for saving task data
      * @return a message indicating that the task has been marked as done
      */
     @Override
-    public String execute(TaskList tasks, Ui ui, Storage storage) {
-        String message = tasks.mark(position);
-        try {
-            storage.updateTaskStatus(position, tasks.getTask(position));
-        } catch (Exception e) {
-            return "There was an error trying to mark your task master: " + e.getMessage();
+    public String execute(TaskList tasks, Ui ui, StorageBackend storage) {
+        int position = isTaskId ? tasks.findPosition(target) : target;
+        if (position < 1 || position > tasks.size()) {
+            return "Master I can't find that item in your list";
         }
+        String message = tasks.mark(position);
+        saveInBackground(storage.updateTaskStatusAsync(position, tasks.getTask(position)), ui,
+                "There was an error trying to mark your task master: ");
         return message;
     }
 }
@@ -0,0 +1,66 @@
+package ryuji.command;
+
+import ryuji.storage.StorageBackend;
+import ryuji.task.TaskList;
+import ryuji.ui.Ui;
+
+import java.time.LocalDate;
+
+/**
+ * Represents a command to list the events taking place on a date or during a range of dates.
+ * <p>The {@code ScheduleCommand} shows every event that covers the date, as in "on 2025-10-20", or that covers at
+ * least one day between two dates, including both, as in "during 2025-10-01 2025-10-31". An event covers every
+ * day from its start date to its end date. The events are shown ordered by start date.</p>
+ * <p>Events whose dates could not be read as dates are shown separately, since they could be on any day.</p>
+ */
+public class ScheduleCommand extends Command {
+
+    /** The first date of the range. */
+    private final LocalDate from;
+
+    /** The last date of the range, the same as {@link #from} for a single date. */
+    private final LocalDate to;
+
+    /**
+     * Constructs a {@code ScheduleCommand} that shows the events taking place on a date.
+     *
+     * @param command The command keyword (e.g., "on").
+     * @param date    The date the events must take place on.
+     */
+    public ScheduleCommand(String command, LocalDate date) {
+        this(command, date, date);
+    }
+
+    /**
+     * Constructs a {@code ScheduleCommand} that shows the events taking place during a range of dates.
+     *
+     * @param command The command keyword (e.g., "during").
+     * @param from    The first date of the range.
+     * @param to      The last date of the range, the same as {@code from} for a single date.
+     */
+    public ScheduleCommand(String command, LocalDate from, LocalDate to) {
+        super(command);
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Executes the schedule command by listing the events during the range of dates, followed by the events
+     * whose dates could not be read.
+     * This method does not modify the task list or the storage.
+     *
+     * @param tasks   The current {@code TaskList} containing all tasks.
+     * @param ui      The {@code Ui} instance used to display the events.
+     * @param storage The {@code StorageBackend} instance (not used in this command).
+     * @return the events during the range, and the events that may be but have no readable dates.
+     */
+    @Override
+    public String execute(TaskList tasks, Ui ui, StorageBackend storage) {
+        TaskList during = tasks.findEventsDuring(from, to);
+        TaskList unreadDates = tasks.findEventsWithUnreadDates();
+        if (unreadDates.size() == 0) {
+            return ui.displayTaskList(during);
+        }
+        return ui.displayTaskList(during) + "\n" + ui.displayTasksWithUnreadDates(unreadDates.asList());
+    }
+}
@@ -0,0 +1,40 @@
+package ryuji.command;
+
+import ryuji.storage.StorageBackend;
+import ryuji.task.TaskList;
+import ryuji.ui.Ui;
+
+/**
+ * Represents a command that reports the size of the task list and of the search index kept for it.
+ * <p>The search index makes "find" quick on long lists at the cost of memory, so this lets the user see
+ * what that cost is.</p>
+ */
+public class StatsCommand extends Command {
+
+    /**
+     * Constructs a {@code StatsCommand} with the given command keyword.
+     *
+     * @param command the command keyword (usually "stats")
+     */
+    public StatsCommand(String command) {
+        super(command);
+    }
+
+    /**
+     * Executes the stats command by describing the task list and its indexes.
+     * This method does not modify the task list or the storage.
+     *
+     * @param tasks   the current {@code TaskList} to describe
+     * @param ui      the {@code Ui} instance (not used in this command)
+     * @param storage the {@code StorageBackend} whose location is shown
+     * @return the number of tasks, where they are kept and the size of the search and filter indexes
+     */
+    @Override
+    public String execute(TaskList tasks, Ui ui, StorageBackend storage) {
+        return "Here is how your list is doing master:\n"
+                + "    tasks: " + tasks.size() + "\n"
+                + "    kept in: " + storage.getFilePath() + "\n"
+                + "    search index: " + tasks.describeSearchIndex() + "\n"
+                + "    status and type index: " + tasks.describeFilterIndex();
+    }
+}
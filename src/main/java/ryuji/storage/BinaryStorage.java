@@ -0,0 +1,431 @@
+package ryuji.storage;
+
+import ryuji.task.Task;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Stores tasks in a binary file of fixed-width records, accessed through a memory-mapped buffer.
+ * <p>Every task is kept as a 24-byte record holding its ID, type, status and the location of its label.
+ * Labels have different lengths, so they are appended to a separate label heap file and the record only
+ * points at them. Because a record never changes size, marking or unmarking a task flips a single status
+ * byte in place, which takes the same time no matter how many tasks are stored.</p>
+ * <p>Records file layout: a 16-byte header (magic, version, record count, last used ID) followed by the
+ * records. The last used ID is the highest ID ever given to a stored task, so that the ID of a deleted
+ * task is not handed out again; files that kept it reserved start from the ID of their last record.
+ * Record layout: type (1 byte), status (1 byte), padding (2 bytes), label length (4 bytes), label offset
+ * in the heap (8 bytes), task ID (4 bytes) and padding (4 bytes). The first time the store is opened, tasks
+ * already in the CSV file are copied in. Files written with the 16-byte records of version 1, which had no
+ * IDs, are widened in place when opened, numbering the tasks in order.</p>
+ * <p>Deleting a task shifts the records after it down by one slot; the label bytes of deleted tasks stay in
+ * the heap until the store is rebuilt.</p>
+ */
+public class BinaryStorage extends Storage {
+
+    /** Marks the file as a Ryuji record file ("RYJB"). */
+    private static final int MAGIC = 0x52594A42;
+
+    /** Version of the record layout. */
+    private static final int VERSION = 2;
+
+    /** Version of the record layout before tasks had IDs. */
+    private static final int VERSION_WITHOUT_IDS = 1;
+
+    /** Size of a single task record in version 1 files. */
+    private static final int RECORD_SIZE_WITHOUT_IDS = 16;
+
+    /** Size of the header at the start of the records file. */
+    private static final int HEADER_SIZE = 16;
+
+    /** Offset of the record count inside the header. */
+    private static final int COUNT_OFFSET = 8;
+
+    /** Offset of the last used ID inside the header. */
+    private static final int LAST_USED_ID_OFFSET = 12;
+
+    /** Size of a single task record. */
+    private static final int RECORD_SIZE = 24;
+
+    /** Offset of the status byte inside a record. */
+    private static final int STATUS_OFFSET = 1;
+
+    /** Offset of the label length inside a record. */
+    private static final int LENGTH_OFFSET = 4;
+
+    /** Offset of the label heap offset inside a record. */
+    private static final int LABEL_OFFSET = 8;
+
+    /** Offset of the task ID inside a record. */
+    private static final int ID_OFFSET = 16;
+
+    /** Number of records the file has room for when it is first created. */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /** The path of the fixed-width records file. */
+    private final Path recordsPath;
+
+    /** The path of the label heap file. */
+    private final Path labelsPath;
+
+    /** Channel of the records file, opened on first use. */
+    private FileChannel recordsChannel;
+
+    /** Channel of the label heap file, opened on first use. */
+    private FileChannel labelsChannel;
+
+    /** The records file mapped into memory, including unused capacity at the end. */
+    private MappedByteBuffer records;
+
+    /** The number of records currently in use. */
+    private int count;
+
+    /**
+     * Constructs a {@code BinaryStorage} for the given task file.
+     * <p>The records and labels are kept next to it in files with {@code .records} and {@code .labels}
+     * suffixes.</p>
+     *
+     * @param fileName the name of the CSV file the tasks are kept alongside
+     */
+    public BinaryStorage(String fileName) {
+        super(fileName);
+        this.recordsPath = Path.of(getFilePath() + ".records");
+        this.labelsPath = Path.of(getFilePath() + ".labels");
+    }
+
+    /**
+     * Reads every record and its label back into tasks.
+     *
+     * @return a list of tasks stored in the records file
+     */
+    @Override
+    public List<Task> readFile() {
+        List<Task> rows = new ArrayList<>();
+        try {
+            ensureOpen();
+            long heapSize = labelsChannel.size();
+            MappedByteBuffer heap = labelsChannel.map(FileChannel.MapMode.READ_ONLY, 0, heapSize);
+
+            for (int i = 0; i < count; i++) {
+                int base = HEADER_SIZE + i * RECORD_SIZE;
+                byte[] label = new byte[records.getInt(base + LENGTH_OFFSET)];
+                heap.get(Math.toIntExact(records.getLong(base + LABEL_OFFSET)), label);
+
+                String[] values = {
+                    String.valueOf((char) records.get(base)),
+                    records.get(base + STATUS_OFFSET) == 1 ? "X" : " ",
+                    new String(label, StandardCharsets.UTF_8)
+                };
+                try {
+                    Task task = Task.fromCsvRow(values);
+                    task.setId(records.getInt(base + ID_OFFSET));
+                    rows.add(task);
+                } catch (Exception e) {
+                    ui.showError("Sorry master but I can't read this task:\n" + (i + 1) + ": " + values[2]);
+                }
+            }
+        } catch (IOException | ArithmeticException e) {
+            ui.showError(e.getMessage());
+        }
+        return rows;
+    }
+
+    /**
+     * Reads every record in full, as reading the fixed-width records is already cheap.
+     *
+     * @return a list of tasks stored in the records file
+     */
+    @Override
+    public List<Task> readFileLazily() {
+        return readFile();
+    }
+
+    /**
+     * Appends the task's label to the heap and its record to the end of the records file.
+     *
+     * @param task the task to be written to the file
+     * @throws IOException if the store could not be opened or written
+     */
+    @Override
+    public void writeTaskToFile(Task task) throws IOException {
+        ensureOpen();
+        appendRecord(task);
+        syncIfRequired();
+    }
+
+    /**
+     * Appends the labels of several tasks to the heap in one write and their records to the records file.
+     *
+     * @param tasks the tasks to be written to the file, in list order
+     * @throws IOException if the store could not be opened or written
+     */
+    @Override
+    public void writeTasksToFile(List<Task> tasks) throws IOException {
+        ensureOpen();
+        appendRecords(tasks);
+        syncIfRequired();
+    }
+
+    /**
+     * Removes the record at the given position by shifting every later record down by one slot.
+     *
+     * @param position the 1-based position of the task to be removed
+     * @param task     the task that was removed
+     * @throws IOException if the records file could not be opened
+     */
+    @Override
+    public void removeTaskFromFile(int position, Task task) throws IOException {
+        ensureOpen();
+        if (position < 1 || position > count) {
+            return;
+        }
+
+        int start = HEADER_SIZE + position * RECORD_SIZE;
+        int end = HEADER_SIZE + count * RECORD_SIZE;
+        records.put(start - RECORD_SIZE, records, start, end - start);
+        setCount(count - 1);
+        syncIfRequired();
+    }
+
+    /**
+     * Flips the status byte of the record at the given position in place.
+     *
+     * @param position the 1-based position of the task to be updated
+     * @param task     the task holding the new status
+     * @throws IOException if the records file could not be opened
+     */
+    @Override
+    public void updateTaskStatus(int position, Task task) throws IOException {
+        ensureOpen();
+        if (position < 1 || position > count) {
+            return;
+        }
+
+        int base = HEADER_SIZE + (position - 1) * RECORD_SIZE;
+        records.put(base + STATUS_OFFSET, task.isMarked() ? (byte) 1 : (byte) 0);
+        syncIfRequired();
+    }
+
+    /**
+     * Forces the mapped records and the label heap to disk.
+     *
+     * @throws IOException if the label heap could not be forced to disk
+     */
+    @Override
+    public void flush() throws IOException {
+        super.flush();
+        if (records != null) {
+            records.force();
+            labelsChannel.force(false);
+        }
+    }
+
+    /**
+     * Does nothing, as every change is already made in place in the records file, the last used ID included,
+     * and {@link #flush()} has forced it to disk.
+     *
+     * @param tasks every task in the list, in list order (not used)
+     */
+    @Override
+    public void checkpoint(List<Task> tasks) {
+    }
+
+    /**
+     * Returns the highest ID ever given to a stored task, as kept in the header of the records file.
+     *
+     * @return the highest task ID used so far, or 0 if none is known
+     */
+    @Override
+    public int getLastUsedId() {
+        try {
+            ensureOpen();
+        } catch (IOException e) {
+            return super.getLastUsedId();
+        }
+        return records.getInt(LAST_USED_ID_OFFSET);
+    }
+
+    /**
+     * Does not watch for changes made by other programs, as the records file is rewritten in place and
+     * cannot be followed by reading what was appended.
+     *
+     * @param listener the receiver of changes made by other programs (not used)
+     * @return {@code false}, as binary storage cannot be watched
+     */
+    @Override
+    public boolean watchForExternalChanges(Consumer<ExternalChange> listener) {
+        return false;
+    }
+
+    /**
+     * Forces the store to disk after a change when the durability policy asks for every write to be synced.
+     *
+     * @throws IOException if the store could not be forced to disk
+     */
+    private void syncIfRequired() throws IOException {
+        if (getDurability() == DurabilityPolicy.SYNC_EVERY_WRITE) {
+            flush();
+        }
+    }
+
+    /**
+     * Opens and maps the records file, creating it from the CSV file if it does not exist yet.
+     *
+     * @throws IOException if either file could not be opened or the records file is not valid
+     */
+    private void ensureOpen() throws IOException {
+        if (records != null) {
+            return;
+        }
+
+        boolean isNew = !recordsPath.toFile().exists();
+        recordsChannel = FileChannel.open(recordsPath,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        labelsChannel = FileChannel.open(labelsPath,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        long size = Math.max(recordsChannel.size(), HEADER_SIZE + (long) INITIAL_CAPACITY * RECORD_SIZE);
+        records = recordsChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+
+        if (isNew) {
+            records.putInt(0, MAGIC);
+            records.putInt(4, VERSION);
+            setCount(0);
+            for (Task task : super.readFile()) {
+                appendRecord(task);
+            }
+            raiseLastUsedId(super.getLastUsedId());
+        } else if (records.getInt(0) == MAGIC && records.getInt(4) == VERSION_WITHOUT_IDS) {
+            count = records.getInt(COUNT_OFFSET);
+            addIds();
+        } else if (records.getInt(0) != MAGIC || records.getInt(4) != VERSION) {
+            records = null;
+            throw new IOException("Not a task records file: " + recordsPath);
+        } else {
+            count = records.getInt(COUNT_OFFSET);
+        }
+        if (count > 0) {
+            raiseLastUsedId(records.getInt(HEADER_SIZE + (count - 1) * RECORD_SIZE + ID_OFFSET));
+        }
+    }
+
+    /**
+     * Widens the 16-byte records of a version 1 file to the current layout, numbering the tasks in order.
+     * <p>Records are moved starting from the last one, so that no record is overwritten before it is moved.</p>
+     *
+     * @throws IOException if the records file could not be grown
+     */
+    private void addIds() throws IOException {
+        ensureCapacity(HEADER_SIZE + (long) count * RECORD_SIZE);
+        byte[] record = new byte[RECORD_SIZE_WITHOUT_IDS];
+        for (int i = count - 1; i >= 0; i--) {
+            records.get(HEADER_SIZE + i * RECORD_SIZE_WITHOUT_IDS, record);
+            int base = HEADER_SIZE + i * RECORD_SIZE;
+            records.put(base, record);
+            records.putInt(base + ID_OFFSET, i + 1);
+            records.putInt(base + ID_OFFSET + 4, 0);
+        }
+        records.putInt(4, VERSION);
+    }
+
+    /**
+     * Remaps the records file so that it has room for at least the given number of bytes, doubling its size.
+     *
+     * @param needed the number of bytes needed
+     * @throws IOException if the records file is full or could not be remapped
+     */
+    private void ensureCapacity(long needed) throws IOException {
+        long newSize = records.capacity();
+        while (newSize < needed) {
+            newSize = Math.min(newSize * 2, Integer.MAX_VALUE);
+            if (newSize == Integer.MAX_VALUE && newSize < needed) {
+                throw new IOException("The records file is full: " + recordsPath);
+            }
+        }
+        if (newSize > records.capacity()) {
+            records = recordsChannel.map(FileChannel.MapMode.READ_WRITE, 0, newSize);
+        }
+    }
+
+    /**
+     * Writes the task's label to the end of the heap and its record after the last record in use.
+     *
+     * @param task the task to append
+     * @throws IOException if the label could not be written or the records file could not be grown
+     */
+    private void appendRecord(Task task) throws IOException {
+        appendRecords(List.of(task));
+    }
+
+    /**
+     * Writes the labels of several tasks to the end of the heap with a single write, then their records
+     * after the last record in use.
+     *
+     * @param tasks the tasks to append, in list order
+     * @throws IOException if the labels could not be written or the records file could not be grown
+     */
+    private void appendRecords(List<Task> tasks) throws IOException {
+        String[][] values = new String[tasks.size()][];
+        byte[][] labels = new byte[tasks.size()][];
+        int labelBytes = 0;
+        for (int i = 0; i < tasks.size(); i++) {
+            values[i] = tasks.get(i).toCsvRow().split(",", 3);
+            labels[i] = values[i][2].getBytes(StandardCharsets.UTF_8);
+            labelBytes += labels[i].length;
+        }
+
+        long labelOffset = labelsChannel.size();
+        ByteBuffer labelBuffer = ByteBuffer.allocate(labelBytes);
+        for (byte[] label : labels) {
+            labelBuffer.put(label);
+        }
+        labelBuffer.flip();
+        while (labelBuffer.hasRemaining()) {
+            labelsChannel.write(labelBuffer, labelOffset + labelBuffer.position());
+        }
+
+        int base = HEADER_SIZE + count * RECORD_SIZE;
+        ensureCapacity((long) base + (long) tasks.size() * RECORD_SIZE);
+        for (int i = 0; i < tasks.size(); i++) {
+            Task task = tasks.get(i);
+            records.put(base, (byte) values[i][0].charAt(0));
+            records.put(base + STATUS_OFFSET, task.isMarked() ? (byte) 1 : (byte) 0);
+            records.putInt(base + LENGTH_OFFSET, labels[i].length);
+            records.putLong(base + LABEL_OFFSET, labelOffset);
+            records.putInt(base + ID_OFFSET, task.getId());
+            raiseLastUsedId(task.getId());
+            labelOffset += labels[i].length;
+            base += RECORD_SIZE;
+        }
+        setCount(count + tasks.size());
+    }
+
+    /**
+     * Raises the last used ID in the file header to the given ID if it is higher.
+     *
+     * @param id the ID of a stored task
+     */
+    private void raiseLastUsedId(int id) {
+        if (id > records.getInt(LAST_USED_ID_OFFSET)) {
+            records.putInt(LAST_USED_ID_OFFSET, id);
+        }
+    }
+
+    /**
+     * Updates the number of records in use, both in memory and in the file header.
+     *
+     * @param newCount the new number of records
+     */
+    private void setCount(int newCount) {
+        count = newCount;
+        records.putInt(COUNT_OFFSET, newCount);
+    }
+}
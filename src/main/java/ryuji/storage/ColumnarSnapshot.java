@@ -0,0 +1,378 @@
+package ryuji.storage;
+
+import ryuji.task.Deadline;
+import ryuji.task.Event;
+import ryuji.task.Task;
+import ryuji.task.ToDo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Saves and loads a whole list of tasks as a columnar binary snapshot.
+ * <p>Instead of one line of text per task, a snapshot keeps every field of every task together in its own
+ * column: a byte array of task types, a bitset of statuses, int arrays of label references and of dates as
+ * epoch days, and a pool holding every distinct string once. Loading a snapshot reads each column with a
+ * single bulk copy and never parses a label or a date, which is what makes it much faster than reading the
+ * CSV file row by row.</p>
+ * <p>File layout, all numbers big-endian:</p>
+ * <ul>
+ *   <li>Header: magic, version, journal generation, journal offset, task count, pool size, last used ID,
+ *   padding</li>
+ *   <li>Types: one byte per task ({@code T}, {@code D} or {@code E})</li>
+ *   <li>Statuses: one bit per task, in longs</li>
+ *   <li>Labels: one pool index per task</li>
+ *   <li>First and second dates: one epoch day per task each, or {@link #NO_DATE}</li>
+ *   <li>First and second raw dates: one pool index per task each, or {@link #NO_STRING}</li>
+ *   <li>IDs: one task ID per task</li>
+ *   <li>Pool: the byte length of every string, then the UTF-8 bytes of all strings</li>
+ * </ul>
+ * <p>The first date of a deadline is its due date; an event uses the first date for its start and the
+ * second for its end. A raw date is kept instead of a parsed one when the user's date could not be parsed.</p>
+ * <p>A snapshot also remembers how much of the change journal it already includes, as a journal generation
+ * and a byte offset into that generation, so that only the changes made after it need to be replayed. It also
+ * keeps the highest ID ever given to a task, as the journal records of tasks deleted before it are gone.
+ * Snapshots are written to a temporary file first and then moved over the old snapshot, so a crash never
+ * leaves a half-written snapshot behind.</p>
+ */
+class ColumnarSnapshot {
+
+    /** Marks the file as a Ryuji snapshot ("RYJS"). */
+    private static final int MAGIC = 0x52594A53;
+
+    /** Version of the snapshot layout. */
+    private static final int VERSION = 4;
+
+    /** Version of the snapshot layout before the last used ID was kept, which is still read. */
+    private static final int VERSION_WITHOUT_LAST_ID = 3;
+
+    /** Version of the snapshot layout before tasks had IDs, which is still read. */
+    private static final int VERSION_WITHOUT_IDS = 2;
+
+    /** Size of the header at the start of the snapshot. */
+    private static final int HEADER_SIZE = 40;
+
+    /** Size of the header in snapshots older than {@link #VERSION}. */
+    private static final int OLD_HEADER_SIZE = 32;
+
+    /** Epoch day stored for a task without a parsed date. */
+    static final int NO_DATE = Integer.MIN_VALUE;
+
+    /** Pool index stored for a task without a raw date. */
+    static final int NO_STRING = -1;
+
+    /** The tasks in the snapshot. */
+    private final List<Task> tasks;
+
+    /** The generation of the journal the snapshot was taken against. */
+    private final long generation;
+
+    /** The number of bytes of that journal generation whose changes the snapshot already includes. */
+    private final long journalOffset;
+
+    /** The highest ID ever given to a task, including tasks deleted before the snapshot was taken. */
+    private final int lastUsedId;
+
+    /**
+     * Constructs a {@code ColumnarSnapshot} holding the given tasks.
+     *
+     * @param tasks         the tasks in the snapshot
+     * @param generation    the generation of the journal the snapshot was taken against
+     * @param journalOffset the number of bytes of that generation whose changes the snapshot includes
+     * @param lastUsedId    the highest ID ever given to a task
+     */
+    ColumnarSnapshot(List<Task> tasks, long generation, long journalOffset, int lastUsedId) {
+        this.tasks = tasks;
+        this.generation = generation;
+        this.journalOffset = journalOffset;
+        this.lastUsedId = lastUsedId;
+    }
+
+    /**
+     * Returns the tasks in the snapshot.
+     *
+     * @return the tasks, in list order
+     */
+    List<Task> getTasks() {
+        return tasks;
+    }
+
+    /**
+     * Returns the generation of the journal the snapshot was taken against.
+     * <p>Every change in earlier generations is already included in the snapshot.</p>
+     *
+     * @return the journal generation
+     */
+    long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Returns how many bytes of the journal the snapshot already includes.
+     *
+     * @return the journal offset to resume replaying from
+     */
+    long getJournalOffset() {
+        return journalOffset;
+    }
+
+    /**
+     * Returns the highest ID ever given to a task when the snapshot was taken.
+     * <p>Snapshots taken before this was kept report the ID of their last task.</p>
+     *
+     * @return the last used ID, or 0 if there was none
+     */
+    int getLastUsedId() {
+        return lastUsedId;
+    }
+
+    /**
+     * Writes the snapshot to the given path, replacing any snapshot already there.
+     *
+     * @param path the snapshot file
+     * @throws IOException if the snapshot could not be written or moved into place
+     */
+    void write(Path path) throws IOException {
+        int count = tasks.size();
+        byte[] types = new byte[count];
+        long[] statuses = new long[(count + 63) / 64];
+        int[] labels = new int[count];
+        int[] ids = new int[count];
+        int[] firstDates = new int[count];
+        int[] secondDates = new int[count];
+        int[] firstRaws = new int[count];
+        int[] secondRaws = new int[count];
+
+        Map<String, Integer> poolIndex = new HashMap<>();
+        List<byte[]> pool = new ArrayList<>();
+
+        for (int i = 0; i < count; i++) {
+            Task task = tasks.get(i);
+            if (task.isMarked()) {
+                statuses[i >>> 6] |= 1L << i;
+            }
+            labels[i] = intern(task.getLabel(), poolIndex, pool);
+            ids[i] = task.getId();
+            firstDates[i] = NO_DATE;
+            secondDates[i] = NO_DATE;
+            firstRaws[i] = NO_STRING;
+            secondRaws[i] = NO_STRING;
+
+            if (task instanceof Deadline) {
+                Deadline deadline = (Deadline) task;
+                types[i] = 'D';
+                firstDates[i] = toEpochDay(deadline.getParsedDate());
+                firstRaws[i] = intern(deadline.getRawDateTime(), poolIndex, pool);
+            } else if (task instanceof Event) {
+                Event event = (Event) task;
+                types[i] = 'E';
+                firstDates[i] = toEpochDay(event.getStartParsed());
+                firstRaws[i] = intern(event.getStartRaw(), poolIndex, pool);
+                secondDates[i] = toEpochDay(event.getEndParsed());
+                secondRaws[i] = intern(event.getEndRaw(), poolIndex, pool);
+            } else {
+                types[i] = 'T';
+            }
+        }
+
+        long poolBytes = 0;
+        for (byte[] bytes : pool) {
+            poolBytes += bytes.length;
+        }
+        long size = HEADER_SIZE + align(count) + statuses.length * 8L + 6L * count * 4 + pool.size() * 4L
+                + poolBytes;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Too many tasks to fit in a snapshot: " + count);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(generation).putLong(journalOffset)
+                .putInt(count).putInt(pool.size()).putInt(lastUsedId).putInt(0);
+        buffer.put(types).position(HEADER_SIZE + align(count));
+        buffer.asLongBuffer().put(statuses);
+        buffer.position(buffer.position() + statuses.length * 8);
+        for (int[] column : new int[][] {labels, firstDates, secondDates, firstRaws, secondRaws, ids}) {
+            buffer.asIntBuffer().put(column);
+            buffer.position(buffer.position() + column.length * 4);
+        }
+        for (byte[] bytes : pool) {
+            buffer.putInt(bytes.length);
+        }
+        for (byte[] bytes : pool) {
+            buffer.put(bytes);
+        }
+        buffer.flip();
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Reads the snapshot at the given path.
+     *
+     * @param path the snapshot file
+     * @return the snapshot read from the file
+     * @throws IOException if the file could not be read or is not a valid snapshot
+     */
+    static ColumnarSnapshot read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < OLD_HEADER_SIZE || fileSize > Integer.MAX_VALUE) {
+                throw new IOException("Not a task snapshot: " + path);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            int version = buffer.getInt(4);
+            if (buffer.getInt() != MAGIC || (buffer.getInt() != VERSION && version != VERSION_WITHOUT_LAST_ID
+                    && version != VERSION_WITHOUT_IDS)) {
+                throw new IOException("Not a task snapshot: " + path);
+            }
+            int headerSize = version == VERSION ? HEADER_SIZE : OLD_HEADER_SIZE;
+
+            try {
+                long generation = buffer.getLong();
+                long journalOffset = buffer.getLong();
+                int count = buffer.getInt();
+                int poolSize = buffer.getInt();
+                int lastUsedId = version == VERSION ? buffer.getInt() : 0;
+
+                byte[] types = new byte[count];
+                buffer.position(headerSize);
+                buffer.get(types).position(headerSize + align(count));
+                long[] statuses = new long[(count + 63) / 64];
+                buffer.asLongBuffer().get(statuses);
+                buffer.position(buffer.position() + statuses.length * 8);
+                int[][] columns = new int[version == VERSION_WITHOUT_IDS ? 5 : 6][count];
+                for (int[] column : columns) {
+                    buffer.asIntBuffer().get(column);
+                    buffer.position(buffer.position() + count * 4);
+                }
+                int[] lengths = new int[poolSize];
+                buffer.asIntBuffer().get(lengths);
+                buffer.position(buffer.position() + poolSize * 4);
+
+                byte[] poolBytes = new byte[buffer.remaining()];
+                buffer.get(poolBytes);
+                String[] pool = new String[poolSize];
+                int offset = 0;
+                for (int i = 0; i < poolSize; i++) {
+                    pool[i] = new String(poolBytes, offset, lengths[i], StandardCharsets.UTF_8);
+                    offset += lengths[i];
+                }
+
+                int[] labels = columns[0];
+                int[] firstDates = columns[1];
+                int[] secondDates = columns[2];
+                int[] firstRaws = columns[3];
+                int[] secondRaws = columns[4];
+                int[] ids = version == VERSION_WITHOUT_IDS ? null : columns[5];
+                List<Task> tasks = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    boolean isMarked = (statuses[i >>> 6] & (1L << i)) != 0;
+                    String label = pool[labels[i]];
+                    Task task;
+                    switch (types[i]) {
+                    case 'T':
+                        task = new ToDo(label, isMarked);
+                        break;
+                    case 'D':
+                        task = new Deadline(label, toDate(firstDates[i]), toString(firstRaws[i], pool), isMarked);
+                        break;
+                    case 'E':
+                        task = new Event(label, toDate(firstDates[i]), toString(firstRaws[i], pool),
+                                toDate(secondDates[i]), toString(secondRaws[i], pool), isMarked);
+                        break;
+                    default:
+                        throw new IOException("Unknown task type in snapshot: " + (char) types[i]);
+                    }
+                    task.setId(ids != null ? ids[i] : i + 1);
+                    tasks.add(task);
+                    lastUsedId = Math.max(lastUsedId, task.getId());
+                }
+                return new ColumnarSnapshot(tasks, generation, journalOffset, lastUsedId);
+            } catch (RuntimeException e) {
+                throw new IOException("The task snapshot is damaged: " + path, e);
+            }
+        }
+    }
+
+    /**
+     * Returns the pool index of the given string, adding it to the pool if it is not there yet.
+     *
+     * @param value     the string, or null
+     * @param poolIndex the index of every string already in the pool
+     * @param pool      the UTF-8 bytes of every string in the pool, in index order
+     * @return the pool index of the string, or {@link #NO_STRING} for null
+     */
+    private static int intern(String value, Map<String, Integer> poolIndex, List<byte[]> pool) {
+        if (value == null) {
+            return NO_STRING;
+        }
+        Integer index = poolIndex.get(value);
+        if (index == null) {
+            index = pool.size();
+            poolIndex.put(value, index);
+            pool.add(value.getBytes(StandardCharsets.UTF_8));
+        }
+        return index;
+    }
+
+    /**
+     * Rounds the size of the type column up so that the columns after it start on an 8-byte boundary.
+     *
+     * @param count the number of tasks
+     * @return the size of the type column including padding
+     */
+    private static int align(int count) {
+        return (count + 7) & ~7;
+    }
+
+    /**
+     * Converts a date to the epoch day stored in a date column.
+     *
+     * @param date the date, or null
+     * @return the epoch day of the date, or {@link #NO_DATE} for null
+     */
+    private static int toEpochDay(LocalDate date) {
+        return date == null ? NO_DATE : Math.toIntExact(date.toEpochDay());
+    }
+
+    /**
+     * Converts an epoch day read from a date column back to a date.
+     *
+     * @param epochDay the stored epoch day
+     * @return the date, or null for {@link #NO_DATE}
+     */
+    private static LocalDate toDate(int epochDay) {
+        return epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    /**
+     * Looks up a string read from a raw date column in the pool.
+     *
+     * @param index the stored pool index
+     * @param pool  the strings in the pool
+     * @return the string, or null for {@link #NO_STRING}
+     */
+    private static String toString(int index, String[] pool) {
+        return index == NO_STRING ? null : pool[index];
+    }
+}
@@ -0,0 +1,115 @@
+package ryuji.storage;
+
+/**
+ * Decides when the changes piled up in a journal should be compacted into a fresh snapshot.
+ * <p>Three triggers are supported, and compaction starts as soon as any enabled trigger is met:</p>
+ * <ul>
+ *   <li>{@code records}: the number of changes recorded since the last compaction</li>
+ *   <li>{@code ratio}: the size of the journal compared to the size of the snapshot or base file it is
+ *   replayed on, so that replaying it never takes much longer than loading the base</li>
+ *   <li>{@code idle}: the number of milliseconds without any change, so that pending changes are
+ *   compacted while the user is not busy</li>
+ * </ul>
+ * <p>A trigger set to 0 is disabled. Policies are written as a comma-separated list of settings, for
+ * example {@code records=10000,ratio=1,idle=60000}, or {@code off} to never compact.</p>
+ */
+public class CompactionPolicy {
+
+    /** A policy that never compacts. */
+    public static final CompactionPolicy DISABLED = new CompactionPolicy(0, 0, 0);
+
+    /** The policy used when none is given. */
+    public static final CompactionPolicy DEFAULT = new CompactionPolicy(10_000, 1.0, 60_000);
+
+    /** Journals smaller than this are never compacted for their size alone, however small the base is. */
+    private static final long MIN_RATIO_JOURNAL_BYTES = 64 * 1024;
+
+    /** The number of changes that triggers compaction, or 0 to disable. */
+    private final long maxRecords;
+
+    /** The journal to base size ratio that triggers compaction, or 0 to disable. */
+    private final double maxSizeRatio;
+
+    /** The number of idle milliseconds that triggers compaction, or 0 to disable. */
+    private final long idleMillis;
+
+    /**
+     * Constructs a {@code CompactionPolicy} with the given triggers, where 0 disables a trigger.
+     *
+     * @param maxRecords   the number of changes that triggers compaction
+     * @param maxSizeRatio the journal to base size ratio that triggers compaction
+     * @param idleMillis   the number of idle milliseconds that triggers compaction
+     */
+    public CompactionPolicy(long maxRecords, double maxSizeRatio, long idleMillis) {
+        this.maxRecords = maxRecords;
+        this.maxSizeRatio = maxSizeRatio;
+        this.idleMillis = idleMillis;
+    }
+
+    /**
+     * Reads a policy from its text form, such as {@code records=10000,ratio=1,idle=60000} or {@code off}.
+     * <p>Triggers that are not mentioned are disabled.</p>
+     *
+     * @param text the text form of the policy
+     * @return the policy described by the text
+     * @throws IllegalArgumentException if a setting is unknown or its value is not a number
+     */
+    public static CompactionPolicy parse(String text) {
+        if (text.trim().equals("off")) {
+            return DISABLED;
+        }
+
+        long maxRecords = 0;
+        double maxSizeRatio = 0;
+        long idleMillis = 0;
+        for (String setting : text.split(",")) {
+            String[] parts = setting.split("=", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Unknown compaction setting: " + setting);
+            }
+            switch (parts[0].trim()) {
+            case "records":
+                maxRecords = Long.parseLong(parts[1].trim());
+                break;
+            case "ratio":
+                maxSizeRatio = Double.parseDouble(parts[1].trim());
+                break;
+            case "idle":
+                idleMillis = Long.parseLong(parts[1].trim());
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown compaction setting: " + setting);
+            }
+        }
+        return new CompactionPolicy(maxRecords, maxSizeRatio, idleMillis);
+    }
+
+    /**
+     * Returns whether any trigger is enabled.
+     *
+     * @return {@code true} if this policy can ever start a compaction
+     */
+    public boolean isEnabled() {
+        return maxRecords > 0 || maxSizeRatio > 0 || idleMillis > 0;
+    }
+
+    /**
+     * Returns whether a journal in the given state should be compacted now.
+     *
+     * @param records      the number of changes recorded since the last compaction
+     * @param journalBytes the size of the journal in bytes
+     * @param baseBytes    the size of the snapshot or base file the journal is replayed on
+     * @param idleFor      the number of milliseconds since the last change
+     * @return {@code true} if an enabled trigger is met
+     */
+    boolean isDue(long records, long journalBytes, long baseBytes, long idleFor) {
+        if (records == 0) {
+            return false;
+        }
+        boolean hasTooManyRecords = maxRecords > 0 && records >= maxRecords;
+        boolean isTooLarge = maxSizeRatio > 0 && journalBytes >= MIN_RATIO_JOURNAL_BYTES
+                && journalBytes >= maxSizeRatio * baseBytes;
+        boolean isIdle = idleMillis > 0 && idleFor >= idleMillis;
+        return hasTooManyRecords || isTooLarge || isIdle;
+    }
+}
@@ -0,0 +1,17 @@
+package ryuji.storage;
+
+/**
+ * Describes when lines written by a {@link GroupCommitWriter} are forced from the operating system's
+ * buffers onto the disk.
+ */
+public enum DurabilityPolicy {
+
+    /** Every batch is forced to disk before the commands that wrote it are allowed to continue. */
+    SYNC_EVERY_WRITE,
+
+    /** Batches are written straight away and forced to disk at most once every configured interval. */
+    SYNC_INTERVAL,
+
+    /** Batches are handed to the operating system, which decides when to write them to disk. */
+    OS_BUFFERED
+}
@@ -0,0 +1,109 @@
+package ryuji.storage;
+
+import ryuji.task.Task;
+
+import java.util.List;
+
+/**
+ * A change made to the task file by another program while the application is running.
+ * <p>Either tasks were appended to the file, in which case only the new tasks are passed on, or rows that
+ * had already been read were rewritten, in which case the whole file was read again and every task in it is
+ * passed on to replace the list. If the file could not be read, the change carries the reason
+ * instead.</p>
+ */
+public final class ExternalChange {
+
+    /** Whether the file was read again in full. */
+    private final boolean isReload;
+
+    /** The appended tasks, or every task in the file if it was read again in full. */
+    private final List<Task> tasks;
+
+    /** The number of appended rows that could not be read as tasks. */
+    private final int unreadableRows;
+
+    /** Why the file could not be read, or null if it was read. */
+    private final String error;
+
+    /**
+     * Constructs an {@code ExternalChange}.
+     *
+     * @param isReload       whether the file was read again in full
+     * @param tasks          the appended tasks, or every task in the file
+     * @param unreadableRows the number of appended rows that could not be read
+     * @param error          why the file could not be read, or null if it was read
+     */
+    private ExternalChange(boolean isReload, List<Task> tasks, int unreadableRows, String error) {
+        this.isReload = isReload;
+        this.tasks = tasks;
+        this.unreadableRows = unreadableRows;
+        this.error = error;
+    }
+
+    /**
+     * Creates a change in which tasks were appended to the file.
+     *
+     * @param tasks          the appended tasks, in file order
+     * @param unreadableRows the number of appended rows that could not be read
+     * @return the change
+     */
+    static ExternalChange appended(List<Task> tasks, int unreadableRows) {
+        return new ExternalChange(false, tasks, unreadableRows, null);
+    }
+
+    /**
+     * Creates a change in which the file was rewritten and read again in full.
+     *
+     * @param tasks every task now in the file, in file order
+     * @return the change
+     */
+    static ExternalChange reloaded(List<Task> tasks) {
+        return new ExternalChange(true, tasks, 0, null);
+    }
+
+    /**
+     * Creates a change that could not be read, so that nothing is added to the list.
+     *
+     * @param error why the file could not be read
+     * @return the change
+     */
+    static ExternalChange failed(String error) {
+        return new ExternalChange(false, List.of(), 0, error);
+    }
+
+    /**
+     * Returns whether the file was read again in full, so that {@link #getTasks()} replaces the list.
+     *
+     * @return {@code true} if the list should be replaced, {@code false} if the tasks should be added to it
+     */
+    public boolean isReload() {
+        return isReload;
+    }
+
+    /**
+     * Returns the appended tasks, or every task in the file if it was read again in full.
+     *
+     * @return the tasks of the change, in file order
+     */
+    public List<Task> getTasks() {
+        return tasks;
+    }
+
+    /**
+     * Returns the number of appended rows that could not be read as tasks and were skipped.
+     *
+     * @return the number of skipped rows
+     */
+    public int getUnreadableRows() {
+        return unreadableRows;
+    }
+
+    /**
+     * Returns why the file could not be read.
+     *
+     * @return the reason, or null if the file was read
+     */
+    public String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,302 @@
+package ryuji.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.CRC32;
+
+/**
+ * Follows a file that other programs append to, reading only the bytes added since it last looked.
+ * <p>It remembers which file it follows, how much of it has been read, and a checksum of the first and
+ * last few kilobytes of that part and of small samples spread evenly across it; together these form the
+ * fingerprint of what it has seen. If the file was replaced, has shrunk or no longer matches the checksum,
+ * bytes it had already read were rewritten and the file has to be read again in full; otherwise everything
+ * after the read part was appended and can be read on its own. Checking the fingerprint reads the same few
+ * kilobytes however large the file is, so a rewrite that keeps the size and only changes bytes between the
+ * samples is not noticed.</p>
+ * <p>Only complete lines are read: a line still being written is left until its line separator arrives.</p>
+ */
+final class FileTailer {
+
+    /** The number of bytes at the start and at the end of the read part that the checksum covers. */
+    private static final int FINGERPRINT_WINDOW = 4096;
+
+    /** The number of evenly spaced samples of the read part that the checksum covers. */
+    private static final int FINGERPRINT_SAMPLES = 16;
+
+    /** The number of bytes in each sample. */
+    private static final int SAMPLE_SIZE = 256;
+
+    /** The file being followed. */
+    private final Path path;
+
+    /** The number of bytes read so far, always just after a line separator or at the start of the file. */
+    private long knownSize;
+
+    /** The identity of the file, such as its inode, which changes when the file is replaced by another. */
+    private Object fileKey;
+
+    /** The checksum of the windows and samples of the read part, up to {@link #knownSize}. */
+    private long fingerprint;
+
+    /** The number of lines before the last batch of appended lines, or -1 if they have not been counted. */
+    private int linesBeforeBatch = -1;
+
+    /** The offset the last batch of appended lines started at. */
+    private long batchStart;
+
+    /** The number of lines in the last batch of appended lines. */
+    private int batchLines;
+
+    /**
+     * A complete line appended to the file.
+     */
+    static final class Line {
+
+        /** The text of the line, without its line separator. */
+        private final String text;
+
+        /** The byte offset the line starts at. */
+        private final long offset;
+
+        /** The position of the line in its batch, starting from 0. */
+        private final int positionInBatch;
+
+        /**
+         * Constructs a {@code Line}.
+         *
+         * @param text            the text of the line
+         * @param offset          the byte offset the line starts at
+         * @param positionInBatch the position of the line in its batch
+         */
+        private Line(String text, long offset, int positionInBatch) {
+            this.text = text;
+            this.offset = offset;
+            this.positionInBatch = positionInBatch;
+        }
+
+        String getText() {
+            return text;
+        }
+
+        long getOffset() {
+            return offset;
+        }
+    }
+
+    /**
+     * Constructs a {@code FileTailer} that treats everything already in the file as read.
+     *
+     * @param path the file to follow
+     * @throws IOException if the file could not be read
+     */
+    FileTailer(Path path) throws IOException {
+        this.path = path;
+        reset();
+    }
+
+    /**
+     * Treats everything now in the file as read, as after the file has been read in full.
+     *
+     * @throws IOException if the file could not be read
+     */
+    void reset() throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            knownSize = channel.size();
+            fingerprint = checksum(channel, knownSize);
+        }
+        fileKey = readFileKey();
+        linesBeforeBatch = -1;
+        batchStart = knownSize;
+        batchLines = 0;
+    }
+
+    /**
+     * Takes a new fingerprint of the read part, after this application changed bytes in it on purpose.
+     *
+     * @throws IOException if the file could not be read
+     */
+    void refreshFingerprint() throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            fingerprint = checksum(channel, Math.min(knownSize, channel.size()));
+        }
+    }
+
+    /**
+     * Returns whether bytes that were already read have changed, so that the file must be read in full.
+     *
+     * @return {@code true} if the file was replaced, has shrunk or its read part no longer matches the
+     *         fingerprint
+     * @throws IOException if the file could not be read
+     */
+    boolean wasRewritten() throws IOException {
+        if (!Objects.equals(fileKey, readFileKey())) {
+            return true;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.size() < knownSize || checksum(channel, knownSize) != fingerprint;
+        }
+    }
+
+    /**
+     * Reads the complete lines appended since the last call and marks them as read.
+     * <p>This should only be called once {@link #wasRewritten()} has returned {@code false}.</p>
+     *
+     * @return the appended lines, in file order
+     * @throws IOException if the file could not be read
+     */
+    List<Line> readAppendedLines() throws IOException {
+        List<Line> lines = new ArrayList<>();
+        byte[] appended;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size <= knownSize) {
+                return lines;
+            }
+            if (size - knownSize > Integer.MAX_VALUE) {
+                throw new IOException("Too much was appended to " + path + " at once");
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) (size - knownSize));
+            while (buffer.hasRemaining() && channel.read(buffer, knownSize + buffer.position()) >= 0) {
+                // keep reading until the buffer is full
+            }
+            appended = buffer.array();
+        }
+
+        Charset charset = Charset.defaultCharset();
+        int lineStart = 0;
+        for (int i = 0; i < appended.length; i++) {
+            if (appended[i] == '\n') {
+                int lineEnd = i > lineStart && appended[i - 1] == '\r' ? i - 1 : i;
+                lines.add(new Line(new String(appended, lineStart, lineEnd - lineStart, charset),
+                        knownSize + lineStart, lines.size()));
+                lineStart = i + 1;
+            }
+        }
+        if (lines.isEmpty()) {
+            return lines;
+        }
+
+        if (linesBeforeBatch >= 0) {
+            linesBeforeBatch += batchLines;
+        }
+        batchStart = knownSize;
+        batchLines = lines.size();
+        knownSize += lineStart;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            fingerprint = checksum(channel, knownSize);
+        }
+        return lines;
+    }
+
+    /**
+     * Returns the 1-based line number of an appended line from the last batch.
+     * <p>The lines before the batch are only counted the first time a line number is needed, as most rows
+     * carry their own ID and never need one.</p>
+     *
+     * @param line a line returned by the last call to {@link #readAppendedLines()}
+     * @return the line number of the line in the file
+     * @throws IOException if the file could not be read
+     */
+    int lineNumberOf(Line line) throws IOException {
+        if (linesBeforeBatch < 0) {
+            linesBeforeBatch = countLines(0, batchStart);
+        }
+        return linesBeforeBatch + line.positionInBatch + 1;
+    }
+
+    /**
+     * Returns the number of bytes read so far.
+     *
+     * @return the offset just after the last line read
+     */
+    long getKnownSize() {
+        return knownSize;
+    }
+
+    /**
+     * Counts the line separators between two offsets of the file.
+     *
+     * @param from the offset to start counting at
+     * @param to   the offset to stop counting at
+     * @return the number of lines that end between the offsets
+     * @throws IOException if the file could not be read
+     */
+    private int countLines(long from, long to) throws IOException {
+        int count = 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            long position = from;
+            while (position < to) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), to - position));
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    break;
+                }
+                for (int i = 0; i < read; i++) {
+                    if (buffer.get(i) == '\n') {
+                        count++;
+                    }
+                }
+                position += read;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the identity of the file, which stays the same while the file is only written to.
+     *
+     * @return the file key, or null if the file system does not provide one
+     * @throws IOException if the file could not be read
+     */
+    private Object readFileKey() throws IOException {
+        return Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+    }
+
+    /**
+     * Computes the checksum of the read part, over its first and last {@link #FINGERPRINT_WINDOW} bytes and
+     * {@link #FINGERPRINT_SAMPLES} samples spread evenly between them.
+     *
+     * @param channel the open file
+     * @param end     the offset the read part ends at
+     * @return the checksum of the read part
+     * @throws IOException if the file could not be read
+     */
+    private static long checksum(FileChannel channel, long end) throws IOException {
+        CRC32 crc = new CRC32();
+        update(crc, channel, 0, Math.min(end, FINGERPRINT_WINDOW));
+        for (int i = 1; i < FINGERPRINT_SAMPLES; i++) {
+            long start = end / FINGERPRINT_SAMPLES * i;
+            update(crc, channel, start, Math.min(end, start + SAMPLE_SIZE));
+        }
+        update(crc, channel, Math.max(0, end - FINGERPRINT_WINDOW), end);
+        return crc.getValue();
+    }
+
+    /**
+     * Adds the bytes between two offsets of the file to a checksum.
+     *
+     * @param crc     the checksum to add to
+     * @param channel the open file
+     * @param start   the offset to start at
+     * @param end     the offset to stop at
+     * @throws IOException if the file could not be read
+     */
+    private static void update(CRC32 crc, FileChannel channel, long start, long end) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.max(0, end - start));
+        while (buffer.hasRemaining() && channel.read(buffer, start + buffer.position()) >= 0) {
+            // keep reading until the buffer is full
+        }
+        crc.update(buffer.array(), 0, buffer.position());
+    }
+}
@@ -0,0 +1,371 @@
+package ryuji.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Appends lines to a file from a background thread, grouping every line that is waiting into one write.
+ * <p>Commands hand their lines to {@link #append(String)} and carry on; a single flusher thread collects
+ * whatever has piled up since its last write, opens the file once and writes the whole batch in a single
+ * buffered call. When many lines arrive at once, for example during scripted bulk adds, they share one
+ * file open and one write instead of paying for one each.</p>
+ * <p>When the lines are forced onto the disk is decided by the {@link DurabilityPolicy}. A shutdown hook
+ * flushes anything still waiting when the application exits.</p>
+ * <p>A batch that cannot be written is cut back off the file and put back at the front of the queue, to be
+ * tried again after a short pause or as soon as a caller waits for it. Until a retry succeeds, every call
+ * that queues lines or waits for them reports the error, so a failed write is never mistaken for a saved
+ * one; the lines themselves are kept and written once the file can be written again.</p>
+ */
+public class GroupCommitWriter {
+
+    /** The file that lines are appended to. */
+    private final Path path;
+
+    /** When written batches are forced to disk. */
+    private final DurabilityPolicy policy;
+
+    /** The longest time written lines may stay unforced under {@link DurabilityPolicy#SYNC_INTERVAL}. */
+    private final long syncIntervalMillis;
+
+    /** Guards every field below and is used to wake the flusher and waiting callers. */
+    private final Object lock = new Object();
+
+    /** Lines waiting to be written by the flusher. */
+    private List<String> pending = new ArrayList<>();
+
+    /** Number of lines handed to {@link #append(String)} so far. */
+    private long appendedCount;
+
+    /** Number of lines written to the file so far. */
+    private long writtenCount;
+
+    /** Number of lines forced to disk so far. */
+    private long syncedCount;
+
+    /** When the file was last forced to disk, in nanoseconds. */
+    private long lastSyncNanos = System.nanoTime();
+
+    /** Whether a caller is waiting for everything written so far to be forced to disk. */
+    private boolean isSyncRequested;
+
+    /** Whether the writer has been closed. */
+    private boolean isClosed;
+
+    /** How long the flusher waits before trying a failed batch again, unless a caller asks for it sooner. */
+    private static final long RETRY_MILLIS = 1000;
+
+    /** The error that stopped the last write, or null if the last write succeeded. */
+    private IOException failure;
+
+    /** The number of writes that have failed so far, so that callers can wait for the next attempt. */
+    private long failedWrites;
+
+    /** Flushes pending lines when the application shuts down. */
+    private final Thread shutdownHook = new Thread(this::flushQuietly);
+
+    /**
+     * Constructs a {@code GroupCommitWriter} for the given file and starts its flusher thread.
+     *
+     * @param path               the file to append lines to
+     * @param policy             when written lines are forced to disk
+     * @param syncIntervalMillis the longest time written lines may stay unforced, used by
+     *                           {@link DurabilityPolicy#SYNC_INTERVAL}
+     */
+    public GroupCommitWriter(Path path, DurabilityPolicy policy, long syncIntervalMillis) {
+        this.path = path;
+        this.policy = policy;
+        this.syncIntervalMillis = syncIntervalMillis;
+
+        Thread flusher = new Thread(this::runFlusher, "ryuji-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Queues a line to be appended to the file.
+     * <p>Under {@link DurabilityPolicy#SYNC_EVERY_WRITE} this waits until the line is on disk; under the
+     * other policies it returns straight away.</p>
+     *
+     * @param line the line to append, without a line separator
+     * @throws IOException if the writer is closed or writing to the file is failing; the line is still
+     *                     queued in the second case
+     */
+    public void append(String line) throws IOException {
+        appendAll(List.of(line));
+    }
+
+    /**
+     * Queues several lines to be appended to the file together.
+     * <p>The lines are queued at once, so the flusher writes them all in the same batch. Under
+     * {@link DurabilityPolicy#SYNC_EVERY_WRITE} this waits until the lines are on disk; under the other
+     * policies it returns straight away.</p>
+     *
+     * @param lines the lines to append, without line separators
+     * @throws IOException if the writer is closed or writing to the file is failing; the lines are still
+     *                     queued in the second case
+     */
+    public void appendAll(List<String> lines) throws IOException {
+        long target;
+        synchronized (lock) {
+            if (isClosed) {
+                throw new IOException("The writer for " + path + " is closed");
+            }
+            pending.addAll(lines);
+            appendedCount += lines.size();
+            target = appendedCount;
+            lock.notifyAll();
+            throwIfFailed();
+        }
+
+        if (policy == DurabilityPolicy.SYNC_EVERY_WRITE) {
+            awaitSynced(target);
+        }
+    }
+
+    /**
+     * Waits until every line queued so far has been written to the file, without forcing it to disk.
+     * <p>Call this before reading or replacing the file so that no queued line is missed.</p>
+     *
+     * @throws IOException if a write failed or the wait was interrupted
+     */
+    public void drain() throws IOException {
+        synchronized (lock) {
+            long target = appendedCount;
+            long failedBefore = failedWrites;
+            lock.notifyAll();
+            try {
+                while (writtenCount < target && failedWrites == failedBefore) {
+                    lock.wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while writing " + path);
+            }
+            if (writtenCount < target) {
+                throwIfFailed();
+            }
+        }
+    }
+
+    /**
+     * Waits until every line queued so far has been written to the file and forced to disk.
+     *
+     * @throws IOException if a write failed or the wait was interrupted
+     */
+    public void flush() throws IOException {
+        long target;
+        synchronized (lock) {
+            target = appendedCount;
+            if (syncedCount >= target) {
+                return;
+            }
+            isSyncRequested = true;
+            lock.notifyAll();
+        }
+        awaitSynced(target);
+    }
+
+    /**
+     * Flushes every queued line and stops the flusher thread.
+     *
+     * @throws IOException if the final flush failed
+     */
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            synchronized (lock) {
+                isClosed = true;
+                lock.notifyAll();
+            }
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // Already shutting down, the hook is running or has run.
+            }
+        }
+    }
+
+    /**
+     * Waits until the given number of lines has been forced to disk, or until the next attempt to write them
+     * fails.
+     *
+     * @param target the number of lines that must be on disk
+     * @throws IOException if the next write failed or the wait was interrupted
+     */
+    private void awaitSynced(long target) throws IOException {
+        synchronized (lock) {
+            long failedBefore = failedWrites;
+            try {
+                while (syncedCount < target && failedWrites == failedBefore) {
+                    lock.wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while writing " + path);
+            }
+            if (syncedCount < target) {
+                throwIfFailed();
+            }
+        }
+    }
+
+    /**
+     * Throws the error that stopped the last write, if it has not been written since.
+     * The error is kept, so that every caller is told until a retry succeeds.
+     * Must be called while holding {@code lock}.
+     *
+     * @throws IOException the error that stopped the last write
+     */
+    private void throwIfFailed() throws IOException {
+        if (failure != null) {
+            throw new IOException("Could not write to " + path + ", the unsaved lines will be tried again: "
+                    + failure.getMessage(), failure);
+        }
+    }
+
+    /**
+     * Flushes every queued line, ignoring errors. Used by the shutdown hook.
+     */
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException e) {
+            System.err.println("Could not save pending changes to " + path + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns whether written lines are due to be forced to disk under {@link DurabilityPolicy#SYNC_INTERVAL}.
+     * Must be called while holding {@code lock}.
+     *
+     * @return {@code true} if there are unforced lines and the interval has passed
+     */
+    private boolean isIntervalSyncDue() {
+        return policy == DurabilityPolicy.SYNC_INTERVAL && syncedCount < writtenCount
+                && System.nanoTime() - lastSyncNanos >= syncIntervalMillis * 1_000_000L;
+    }
+
+    /**
+     * Returns how long the flusher may sleep before it has to act again.
+     * Must be called while holding {@code lock}.
+     *
+     * @return the time to wait in milliseconds, or 0 to wait until woken up
+     */
+    private long computeWaitMillis() {
+        if (policy != DurabilityPolicy.SYNC_INTERVAL || syncedCount >= writtenCount) {
+            return 0;
+        }
+        long elapsedMillis = (System.nanoTime() - lastSyncNanos) / 1_000_000L;
+        return Math.max(1, syncIntervalMillis - elapsedMillis);
+    }
+
+    /**
+     * Main loop of the flusher thread: takes every pending line, writes them with one call and forces the
+     * file to disk when the policy or a waiting caller asks for it.
+     */
+    private void runFlusher() {
+        while (true) {
+            List<String> batch;
+            long batchEnd;
+            boolean shouldSync;
+
+            synchronized (lock) {
+                try {
+                    while (pending.isEmpty() && !isSyncRequested && !isIntervalSyncDue() && !isClosed) {
+                        lock.wait(computeWaitMillis());
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (isClosed && pending.isEmpty() && !isSyncRequested) {
+                    return;
+                }
+
+                batch = pending;
+                pending = new ArrayList<>();
+                batchEnd = appendedCount;
+                shouldSync = policy == DurabilityPolicy.SYNC_EVERY_WRITE || isSyncRequested || isIntervalSyncDue();
+                isSyncRequested = false;
+            }
+
+            IOException error = null;
+            try {
+                writeBatch(batch, shouldSync);
+            } catch (IOException e) {
+                error = e;
+            }
+
+            synchronized (lock) {
+                if (error != null) {
+                    batch.addAll(pending);
+                    pending = batch;
+                    failure = error;
+                    failedWrites++;
+                    isSyncRequested |= shouldSync;
+                    lock.notifyAll();
+                    if (isClosed) {
+                        return;
+                    }
+                    try {
+                        lock.wait(RETRY_MILLIS);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    continue;
+                }
+                failure = null;
+                writtenCount = batchEnd;
+                if (shouldSync) {
+                    syncedCount = batchEnd;
+                    lastSyncNanos = System.nanoTime();
+                }
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Appends the given lines to the file in one write, forcing it to disk if asked.
+     * <p>If the write fails part way, whatever part of the batch reached the file is cut off again, so that
+     * retrying the batch does not leave half a line in the file.</p>
+     *
+     * @param batch      the lines to write
+     * @param shouldSync whether to force the file to disk after writing
+     * @throws IOException if the file could not be written
+     */
+    private void writeBatch(List<String> batch, boolean shouldSync) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (String line : batch) {
+            sb.append(line).append(System.lineSeparator());
+        }
+        ByteBuffer bytes = Charset.defaultCharset().encode(sb.toString());
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            long start = channel.size();
+            try {
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+            } catch (IOException e) {
+                try {
+                    channel.truncate(start);
+                } catch (IOException truncateError) {
+                    e.addSuppressed(truncateError);
+                }
+                throw e;
+            }
+            if (shouldSync) {
+                channel.force(false);
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package ryuji.storage;
+
+import ryuji.task.Task;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * A {@link StorageBackend} that keeps nothing: every session starts with an empty list and every change is
+ * forgotten.
+ * <p>With no disk I/O at all, it shows what a command costs on its own, so that benchmarks and tests can
+ * tell the cost of a command apart from the cost of the storage behind it.</p>
+ */
+public class InMemoryStorage implements StorageBackend {
+
+    /**
+     * Returns an empty list, as nothing is ever saved.
+     *
+     * @return an empty list
+     */
+    @Override
+    public List<Task> readFile() {
+        return new ArrayList<>();
+    }
+
+    /**
+     * Returns an empty list, as nothing is ever saved.
+     *
+     * @return an empty list
+     */
+    @Override
+    public List<Task> readFileLazily() {
+        return readFile();
+    }
+
+    @Override
+    public void writeTaskToFile(Task task) {
+    }
+
+    @Override
+    public void writeTasksToFile(List<Task> tasks) {
+    }
+
+    @Override
+    public void removeTaskFromFile(int position, Task task) {
+    }
+
+    @Override
+    public void updateTaskStatus(int position, Task task) {
+    }
+
+    @Override
+    public CompletableFuture<Void> writeTaskToFileAsync(Task task) {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Void> writeTasksToFileAsync(List<Task> tasks) {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Void> removeTaskFromFileAsync(int position, Task task) {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Void> updateTaskStatusAsync(int position, Task task) {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void checkpoint(List<Task> tasks) {
+    }
+
+    @Override
+    public List<Task> readHistory() {
+        return new ArrayList<>();
+    }
+
+    @Override
+    public int getLastUsedId() {
+        return 0;
+    }
+
+    /**
+     * Does not watch anything, as there is no file for other programs to change.
+     *
+     * @param listener the receiver of changes made by other programs (not used)
+     * @return {@code false}
+     */
+    @Override
+    public boolean watchForExternalChanges(Consumer<ExternalChange> listener) {
+        return false;
+    }
+
+    /**
+     * Returns a description of where the tasks are kept, as there is no file.
+     *
+     * @return a note that the tasks are only kept in memory
+     */
+    @Override
+    public String getFilePath() {
+        return "(kept in memory only, nothing was saved)";
+    }
+}
@@ -0,0 +1,636 @@
+package ryuji.storage;
+
+import ryuji.task.Task;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Stores tasks as a base CSV file plus an append-only journal of changes.
+ * <p>Instead of rewriting the whole task file for every mark, unmark or delete, each change is appended
+ * as a single record to a journal file that sits next to the task file. When the tasks are loaded, the
+ * base file is read as usual and the journal is replayed on top of it, so every change costs one small
+ * append no matter how many tasks are in the list.</p>
+ * <p>Each journal line is one record of the form {@code add,<row>}, {@code mark,<position>},
+ * {@code unmark,<position>} or {@code delete,<position>}, where positions are 1-based like in the commands.
+ * A journal starts with a {@code gen,<generation>} line; journals written before generations existed have
+ * no such line and count as generation 0.</p>
+ * <p>When the user exits, the whole list is saved as a {@link ColumnarSnapshot} that remembers how far into
+ * the journal it goes. The next start loads the snapshot in bulk instead of the base file and only replays
+ * the journal records written after it.</p>
+ * <p>So that the journal does not grow forever, it is also compacted in the background according to a
+ * {@link CompactionPolicy}. Compacting moves the current journal aside as an archived generation, so new
+ * changes go to a fresh journal straight away, then folds the archived journals into a new snapshot that
+ * is moved into place atomically. The archives are only deleted once the new snapshot is in place, so a
+ * crash at any point still leaves every change on disk. Compaction works from the files alone and never
+ * touches the task list in memory, so commands carry on while it runs.</p>
+ */
+public class JournalStorage extends Storage {
+
+    /** Record type for a task that was added to the end of the list. */
+    private static final String ADD = "add";
+
+    /** Record type for a task that was marked as done. */
+    private static final String MARK = "mark";
+
+    /** Record type for a task that was unmarked. */
+    private static final String UNMARK = "unmark";
+
+    /** Record type for a task that was removed from the list. */
+    private static final String DELETE = "delete";
+
+    /** Record type of the first line of a journal, holding its generation. */
+    private static final String GENERATION = "gen";
+
+    /** How often the compaction triggers are checked, in milliseconds. */
+    private static final long COMPACTION_CHECK_MILLIS = 1000;
+
+    /** The absolute path of the journal file. */
+    private final String journalPath;
+
+    /** The path of the snapshot file. */
+    private final Path snapshotPath;
+
+    /** Guards the journal writer and the counters describing the current journal. */
+    private final Object journalLock = new Object();
+
+    /** Guards the snapshot file and the archived journals, so loading, compaction and checkpoints take turns. */
+    private final Object snapshotLock = new Object();
+
+    /** Background writer that appends records to the journal, created on the first change. */
+    private GroupCommitWriter journal;
+
+    /** The generation of the current journal. */
+    private long generation;
+
+    /** The number of changes recorded since the last compaction. */
+    private long recordsSinceCompaction;
+
+    /** When the last change was recorded, in epoch milliseconds. */
+    private long lastChangeMillis = System.currentTimeMillis();
+
+    /** The journal generation the snapshot on disk was taken against, or -1 if there is no snapshot. */
+    private long snapshotGeneration = -1;
+
+    /** How far into its journal generation the snapshot on disk goes, or -1 if there is no snapshot. */
+    private long snapshotOffset = -1;
+
+    /** Decides when the journal is compacted. */
+    private volatile CompactionPolicy compactionPolicy = CompactionPolicy.DISABLED;
+
+    /** Checks the compaction triggers and runs compactions, started when a policy is first enabled. */
+    private ScheduledExecutorService compactor;
+
+    /**
+     * Constructs a {@code JournalStorage} for the given task file.
+     * <p>The journal is kept in a file with the same name plus a {@code .journal} suffix, and the snapshot
+     * in one with a {@code .snapshot} suffix. Archived journals waiting to be compacted add their generation
+     * to the journal's name, as in {@code tasks.csv.journal.3}.</p>
+     *
+     * @param fileName the name of the base file to store tasks
+     */
+    public JournalStorage(String fileName) {
+        super(fileName);
+        this.journalPath = getFilePath() + ".journal";
+        this.snapshotPath = Path.of(getFilePath() + ".snapshot");
+    }
+
+    /**
+     * Loads the snapshot, or the base file if there is no usable snapshot, and replays the journal records
+     * written after it.
+     *
+     * @return the list of tasks as it was after the last recorded change
+     */
+    @Override
+    public List<Task> readFile() {
+        synchronized (snapshotLock) {
+            drainJournal();
+            ColumnarSnapshot snapshot = readSnapshot();
+            List<Task> tasks = snapshot != null ? snapshot.getTasks() : super.readFile();
+            replayJournals(tasks, snapshot, true);
+            return tasks;
+        }
+    }
+
+    /**
+     * Indexes the base file lazily and replays every journal record on top of it.
+     * <p>Only the tasks touched by a replayed mark, unmark or delete are parsed while replaying. When there
+     * is a snapshot it is loaded in full instead, as loading it is already cheaper than indexing.</p>
+     *
+     * @return the list of tasks as it was after the last recorded change, parsed on demand
+     */
+    @Override
+    public List<Task> readFileLazily() {
+        if (Files.exists(snapshotPath)) {
+            return readFile();
+        }
+        synchronized (snapshotLock) {
+            drainJournal();
+            List<Task> tasks = super.readFileLazily();
+            replayJournals(tasks, null, true);
+            return tasks;
+        }
+    }
+
+    /**
+     * Records that a task was added to the end of the list.
+     *
+     * @param task the task that was added
+     * @throws IOException if writing to the journal is failing
+     */
+    @Override
+    public void writeTaskToFile(Task task) throws IOException {
+        noteUsedId(task.getId());
+        appendRecord(ADD + "," + formatRow(task));
+    }
+
+    /**
+     * Records that several tasks were added to the end of the list, handing all the records to the journal
+     * writer at once.
+     *
+     * @param tasks the tasks that were added, in list order
+     * @throws IOException if an earlier record could not be written to the journal
+     */
+    @Override
+    public void writeTasksToFile(List<Task> tasks) throws IOException {
+        List<String> records = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            noteUsedId(task.getId());
+            records.add(ADD + "," + formatRow(task));
+        }
+        appendRecords(records);
+    }
+
+    /**
+     * Records that the task at the given position was removed.
+     *
+     * @param position the 1-based position of the removed task
+     * @param task     the task that was removed
+     * @throws IOException if the record could not be written to the journal
+     */
+    @Override
+    public void removeTaskFromFile(int position, Task task) throws IOException {
+        noteUsedId(task.getId());
+        appendRecord(DELETE + "," + position);
+    }
+
+    /**
+     * Records the new status of the task at the given position.
+     *
+     * @param position the 1-based position of the task
+     * @param task     the task with its updated status
+     * @throws IOException if the record could not be written to the journal
+     */
+    @Override
+    public void updateTaskStatus(int position, Task task) throws IOException {
+        String type = task.isMarked() ? MARK : UNMARK;
+        appendRecord(type + "," + position);
+    }
+
+    /**
+     * Writes every pending record to the journal and forces it to disk.
+     *
+     * @throws IOException if a pending record could not be written
+     */
+    @Override
+    public void flush() throws IOException {
+        super.flush();
+        synchronized (journalLock) {
+            if (journal != null) {
+                journal.flush();
+            }
+        }
+    }
+
+    /**
+     * Saves the whole list as a snapshot covering every record in the journal so far.
+     * <p>Nothing is written if the journal has not grown since the snapshot on disk was taken. Archived
+     * journals are deleted afterwards, as the snapshot already includes them.</p>
+     *
+     * @param tasks every task in the list, in list order
+     * @throws IOException if a pending record or the snapshot could not be written
+     */
+    @Override
+    public void checkpoint(List<Task> tasks) throws IOException {
+        synchronized (snapshotLock) {
+            long currentGeneration;
+            long offset;
+            synchronized (journalLock) {
+                if (journal != null) {
+                    journal.drain();
+                }
+                currentGeneration = generation;
+                offset = new File(journalPath).length();
+            }
+            if (currentGeneration == snapshotGeneration && offset == snapshotOffset) {
+                return;
+            }
+            writeSnapshot(tasks, currentGeneration, offset);
+            deleteArchivesBefore(currentGeneration);
+        }
+    }
+
+    /**
+     * Does not watch for changes made by other programs, as the task file only holds the tasks as of the
+     * last compaction and rows appended to it would be lost when the journal is replayed.
+     *
+     * @param listener the receiver of changes made by other programs (not used)
+     * @return {@code false}, as journal storage cannot be watched
+     */
+    @Override
+    public boolean watchForExternalChanges(Consumer<ExternalChange> listener) {
+        return false;
+    }
+
+    /**
+     * Sets when the journal is compacted in the background, and starts checking if any trigger is enabled.
+     *
+     * @param policy the compaction policy to follow
+     */
+    public void setCompactionPolicy(CompactionPolicy policy) {
+        this.compactionPolicy = policy;
+        synchronized (snapshotLock) {
+            if (policy.isEnabled() && compactor == null) {
+                compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "ryuji-compactor");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                compactor.scheduleWithFixedDelay(this::compactIfDue,
+                        COMPACTION_CHECK_MILLIS, COMPACTION_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Folds every change recorded so far into a fresh snapshot and starts a new journal.
+     * <p>The current journal is first moved aside, which only briefly holds up new changes. The snapshot
+     * is then rebuilt from the files on disk, while new changes go to the new journal.</p>
+     *
+     * @throws IOException if the journal could not be moved aside or the snapshot could not be written
+     */
+    public void compact() throws IOException {
+        synchronized (snapshotLock) {
+            long archived = rotateJournal();
+            if (archived < 0) {
+                return;
+            }
+            ColumnarSnapshot snapshot = readSnapshot();
+            List<Task> tasks = snapshot != null ? snapshot.getTasks() : super.readFile();
+            replayJournals(tasks, snapshot, false);
+            writeSnapshot(tasks, archived + 1, 0);
+            deleteArchivesBefore(archived + 1);
+        }
+    }
+
+    /**
+     * Returns the path of the journal file.
+     *
+     * @return the absolute path of the journal file
+     */
+    public String getJournalPath() {
+        return journalPath;
+    }
+
+    /**
+     * Compacts the journal if the compaction policy says it is time. Runs on the compactor thread.
+     * <p>Errors are printed rather than thrown, so that a failed compaction does not stop later ones.</p>
+     */
+    private void compactIfDue() {
+        long records;
+        long idleFor;
+        synchronized (journalLock) {
+            records = recordsSinceCompaction;
+            idleFor = System.currentTimeMillis() - lastChangeMillis;
+        }
+        long journalBytes = new File(journalPath).length();
+        long baseBytes = Files.exists(snapshotPath)
+                ? snapshotPath.toFile().length()
+                : new File(getFilePath()).length();
+        if (!compactionPolicy.isDue(records, journalBytes, baseBytes, idleFor)) {
+            return;
+        }
+
+        try {
+            compact();
+        } catch (Exception e) {
+            System.err.println("Could not compact " + journalPath + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Moves the current journal aside as an archived generation, so that new records start a new journal.
+     *
+     * @return the generation of the archived journal, or -1 if there was no journal to archive
+     * @throws IOException if pending records could not be written or the journal could not be moved
+     */
+    private long rotateJournal() throws IOException {
+        synchronized (journalLock) {
+            if (journal != null) {
+                // flushed first, as closing a writer whose file cannot be written would lose its records
+                journal.flush();
+                journal.close();
+                journal = null;
+            }
+            Path current = Path.of(journalPath);
+            if (!Files.exists(current)) {
+                return -1;
+            }
+            long archived = generation;
+            Files.move(current, archivePath(archived), StandardCopyOption.ATOMIC_MOVE);
+            generation++;
+            recordsSinceCompaction = 0;
+            return archived;
+        }
+    }
+
+    /**
+     * Writes the given tasks as the new snapshot and remembers how far into the journal it goes.
+     * <p>The snapshot keeps the last used ID as well, since it replaces the journal records of deleted tasks.</p>
+     *
+     * @param tasks         the tasks to save
+     * @param journalGen    the journal generation the snapshot is taken against
+     * @param journalOffset how far into that generation the snapshot goes
+     * @throws IOException if the snapshot could not be written
+     */
+    private void writeSnapshot(List<Task> tasks, long journalGen, long journalOffset) throws IOException {
+        if (!tasks.isEmpty()) {
+            noteUsedId(tasks.get(tasks.size() - 1).getId());
+        }
+        new ColumnarSnapshot(tasks, journalGen, journalOffset, getLastUsedId()).write(snapshotPath);
+        snapshotGeneration = journalGen;
+        snapshotOffset = journalOffset;
+    }
+
+    /**
+     * Deletes the archived journals older than the given generation, which a snapshot already includes.
+     *
+     * @param oldestKept the oldest generation to keep
+     * @throws IOException if an archived journal could not be deleted
+     */
+    private void deleteArchivesBefore(long oldestKept) throws IOException {
+        for (long archived : listArchivedGenerations()) {
+            if (archived < oldestKept) {
+                Files.deleteIfExists(archivePath(archived));
+            }
+        }
+    }
+
+    /**
+     * Returns the generations of the archived journals next to the journal file, oldest first.
+     *
+     * @return the archived generations in ascending order
+     */
+    private List<Long> listArchivedGenerations() {
+        File journalFile = new File(journalPath);
+        String prefix = journalFile.getName() + ".";
+        File[] files = journalFile.getAbsoluteFile().getParentFile().listFiles();
+        List<Long> generations = new ArrayList<>();
+        if (files == null) {
+            return generations;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (name.startsWith(prefix) && name.substring(prefix.length()).matches("\\d+")) {
+                generations.add(Long.parseLong(name.substring(prefix.length())));
+            }
+        }
+        Collections.sort(generations);
+        return generations;
+    }
+
+    /**
+     * Returns the path of the archived journal of the given generation.
+     *
+     * @param archived the generation of the archived journal
+     * @return the path of the archived journal
+     */
+    private Path archivePath(long archived) {
+        return Path.of(journalPath + "." + archived);
+    }
+
+    /**
+     * Waits until every record handed to the background writer is in the journal file.
+     */
+    private void drainJournal() {
+        synchronized (journalLock) {
+            if (journal == null) {
+                return;
+            }
+            try {
+                journal.drain();
+            } catch (IOException e) {
+                ui.showError(e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Reads the snapshot file, if there is one.
+     * <p>A damaged snapshot is reported and ignored, so the tasks are loaded from the base file instead.</p>
+     *
+     * @return the snapshot, or null if there is no usable snapshot
+     */
+    private ColumnarSnapshot readSnapshot() {
+        if (!Files.exists(snapshotPath)) {
+            return null;
+        }
+        try {
+            ColumnarSnapshot snapshot = ColumnarSnapshot.read(snapshotPath);
+            snapshotGeneration = snapshot.getGeneration();
+            snapshotOffset = snapshot.getJournalOffset();
+            noteUsedId(snapshot.getLastUsedId());
+            return snapshot;
+        } catch (IOException e) {
+            ui.showError("Sorry master but I can't read my snapshot, so I will use the task file instead:\n"
+                    + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Hands a single record to the background writer of the journal, starting a new journal with its
+     * generation line if there is none.
+     *
+     * @param record the record to append
+     * @throws IOException if an earlier record could not be written
+     */
+    private void appendRecord(String record) throws IOException {
+        appendRecords(List.of(record));
+    }
+
+    /**
+     * Hands several records to the background writer of the journal at once, so that they are written in
+     * the same batch.
+     *
+     * @param records the records to append, in order
+     * @throws IOException if an earlier record could not be written
+     */
+    private void appendRecords(List<String> records) throws IOException {
+        synchronized (journalLock) {
+            if (journal == null) {
+                Path current = Path.of(journalPath);
+                if (!Files.exists(current)) {
+                    Files.writeString(current, GENERATION + "," + generation + System.lineSeparator());
+                }
+                journal = createAppendWriter(journalPath);
+            }
+            journal.appendAll(records);
+            recordsSinceCompaction += records.size();
+            lastChangeMillis = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Replays the archived journals, and optionally the current journal, that were written after the given
+     * snapshot on top of the given tasks.
+     * <p>When loading, this also works out the generation that new records belong to.</p>
+     *
+     * @param tasks          the tasks read from the snapshot or the base file
+     * @param snapshot       the snapshot the tasks come from, or null if they come from the base file
+     * @param includeCurrent whether to replay the current journal as well as the archived ones
+     */
+    private void replayJournals(List<Task> tasks, ColumnarSnapshot snapshot, boolean includeCurrent) {
+        long fromGeneration = snapshot == null ? 0 : snapshot.getGeneration();
+        long fromOffset = snapshot == null ? 0 : snapshot.getJournalOffset();
+        long latest = fromGeneration;
+        long replayed = 0;
+
+        for (long archived : listArchivedGenerations()) {
+            if (archived >= fromGeneration) {
+                long offset = archived == fromGeneration ? fromOffset : 0;
+                replayed += replayJournal(archivePath(archived).toFile(), tasks, offset);
+            }
+            latest = Math.max(latest, archived + 1);
+        }
+        if (!includeCurrent) {
+            return;
+        }
+
+        File current = new File(journalPath);
+        if (current.exists()) {
+            long currentGeneration = readGeneration(current);
+            if (currentGeneration >= fromGeneration) {
+                long offset = currentGeneration == fromGeneration ? fromOffset : 0;
+                replayed += replayJournal(current, tasks, offset);
+            }
+            latest = Math.max(latest, currentGeneration);
+        }
+        synchronized (journalLock) {
+            generation = Math.max(generation, latest);
+            recordsSinceCompaction = replayed;
+        }
+    }
+
+    /**
+     * Reads the generation of a journal from its first line.
+     *
+     * @param file the journal file
+     * @return the generation of the journal, or 0 if it has no generation line
+     */
+    private long readGeneration(File file) {
+        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
+            String first = br.readLine();
+            if (first != null && first.startsWith(GENERATION + ",")) {
+                return Long.parseLong(first.substring(GENERATION.length() + 1).trim());
+            }
+        } catch (IOException | NumberFormatException e) {
+            ui.showError(e.getMessage());
+        }
+        return 0;
+    }
+
+    /**
+     * Applies the records in a journal from the given byte offset onwards to the given tasks, in the
+     * order they were written.
+     * <p>Records that cannot be read are reported and skipped, like unreadable lines in the base file. The ID
+     * of every added task is noted as used, even if a later record deletes the task again.</p>
+     *
+     * @param file   the journal to replay
+     * @param tasks  the tasks read from the base file or the snapshot
+     * @param offset the byte offset of the first record that is not in the tasks yet
+     * @return the number of records replayed
+     */
+    private long replayJournal(File file, List<Task> tasks, long offset) {
+        long replayed = 0;
+        try (FileInputStream in = new FileInputStream(file);
+             BufferedReader br = new BufferedReader(new InputStreamReader(in))) {
+            in.getChannel().position(offset);
+            String line;
+            int lineNum = 0;
+            while ((line = br.readLine()) != null) {
+                lineNum++;
+                try {
+                    applyRecord(line, tasks);
+                    if (line.startsWith(ADD + ",")) {
+                        noteUsedId(tasks.get(tasks.size() - 1).getId());
+                    }
+                    replayed++;
+                } catch (Exception e) {
+                    ui.showError("Sorry master but I can't replay this change:\n" + lineNum + ": " + line);
+                }
+            }
+        } catch (IOException e) {
+            ui.showError(e.getMessage());
+        }
+        return replayed;
+    }
+
+    /**
+     * Applies a single journal record to the given tasks.
+     * <p>Positions outside the list are ignored, the same way the CSV storage ignores them. Generation
+     * lines do not change the tasks. Added tasks recorded before IDs existed are given the ID after the
+     * last task's, as they were when they were added.</p>
+     *
+     * @param record the journal record
+     * @param tasks  the tasks to update
+     * @throws IllegalArgumentException if the record type is unknown
+     */
+    static void applyRecord(String record, List<Task> tasks) {
+        String[] parts = record.split(",", 2);
+        if (parts[0].equals(GENERATION)) {
+            return;
+        }
+        if (parts[0].equals(ADD)) {
+            Task task = parseRow(parts[1]);
+            if (task.getId() == 0) {
+                task.setId(tasks.isEmpty() ? 1 : tasks.get(tasks.size() - 1).getId() + 1);
+            }
+            tasks.add(task);
+            return;
+        }
+
+        int index = Integer.parseInt(parts[1].trim()) - 1;
+        if (index < 0 || index >= tasks.size()) {
+            return;
+        }
+
+        switch (parts[0]) {
+        case MARK:
+            tasks.get(index).mark();
+            break;
+        case UNMARK:
+            tasks.get(index).unmark();
+            break;
+        case DELETE:
+            tasks.remove(index);
+            break;
+        default:
+            throw new IllegalArgumentException("Unknown journal record: " + parts[0]);
+        }
+    }
+}
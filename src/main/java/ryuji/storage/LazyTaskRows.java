@@ -0,0 +1,272 @@
+package ryuji.storage;
+
+import ryuji.task.Task;
+import ryuji.ui.Ui;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.Arrays;
+
+/**
+ * A list of tasks that only knows where each task's line is in the task file until the task is needed.
+ * <p>Opening the list only records the byte offset and length of every line, which is much cheaper than
+ * parsing the labels and dates of every task. A line is parsed into a {@link Task} the first time it is
+ * asked for, for example by {@code getTask}, {@code find} or when the list is shown, and the parsed task
+ * is kept so it is only parsed once. Tasks added during the session are simply kept in memory.</p>
+ * <p>Lines are always read from the file as it was when the list was opened: the file channel stays open,
+ * so rewrites of the task file, which replace it with a new file, do not move the lines it points at.</p>
+ * <p>Lines that are obviously not tasks (unknown type, missing fields or missing date keywords) are
+ * reported and skipped while indexing, like {@link Storage#readFile()} does. Rows deleted in place are
+ * skipped silently, and rows without an ID are given their line number as ID when they are parsed.</p>
+ */
+class LazyTaskRows extends AbstractList<Task> {
+
+    /** Offset of a row that only exists in memory. */
+    private static final long IN_MEMORY = -1;
+
+    /** The task file, kept open so lines can be read on demand. */
+    private final FileChannel channel;
+
+    /** Byte offset of each row's line in the file, or {@link #IN_MEMORY}. */
+    private long[] offsets;
+
+    /** Length in bytes of each row's line, without the line break. */
+    private int[] lengths;
+
+    /** The 1-based line number of each row's line, used as the ID of rows that have none. */
+    private int[] lineNums;
+
+    /** Tasks that have already been parsed or added, {@code null} for rows not parsed yet. */
+    private Task[] cache;
+
+    /** The number of rows in the list. */
+    private int size;
+
+    /**
+     * Indexes the lines of the given file without parsing them.
+     *
+     * @param path the task file to index
+     * @param ui   the {@code Ui} used to report lines that cannot be read
+     * @throws IOException if the file could not be opened or is larger than 2 GB
+     */
+    LazyTaskRows(Path path, Ui ui) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        long fileSize = channel.size();
+        if (fileSize > Integer.MAX_VALUE) {
+            channel.close();
+            throw new IOException("File is too large to index: " + path);
+        }
+
+        offsets = new long[16];
+        lengths = new int[16];
+        lineNums = new int[16];
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+        int lineStart = 0;
+        int lineNum = 0;
+        while (lineStart < fileSize) {
+            int lineEnd = lineStart;
+            while (lineEnd < fileSize && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int textEnd = lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+
+            lineNum++;
+            if (textEnd > lineStart && buffer.get(lineStart) == Storage.DELETED_ROW_MARK) {
+                lineStart = lineEnd + 1;
+                continue;
+            }
+            if (isWellFormed(buffer, lineStart, textEnd)) {
+                ensureCapacity(size + 1);
+                offsets[size] = lineStart;
+                lengths[size] = textEnd - lineStart;
+                lineNums[size] = lineNum;
+                size++;
+            } else {
+                ui.showError("Sorry master but I can't read this task:\n" + lineNum + ": "
+                        + Charset.defaultCharset().decode(buffer.slice(lineStart, textEnd - lineStart)));
+            }
+            lineStart = lineEnd + 1;
+        }
+        cache = new Task[offsets.length];
+    }
+
+    /**
+     * Returns the task at the given index, parsing its line first if it has not been parsed yet.
+     *
+     * @param index the 0-based index of the task
+     * @return the task at the index
+     * @throws IllegalStateException if the line cannot be read or parsed
+     */
+    @Override
+    public Task get(int index) {
+        checkIndex(index, size);
+        if (cache[index] == null) {
+            cache[index] = readRow(index);
+        }
+        return cache[index];
+    }
+
+    @Override
+    public Task set(int index, Task task) {
+        Task previous = get(index);
+        cache[index] = task;
+        offsets[index] = IN_MEMORY;
+        return previous;
+    }
+
+    @Override
+    public void add(int index, Task task) {
+        checkIndex(index, size + 1);
+        ensureCapacity(size + 1);
+        System.arraycopy(offsets, index, offsets, index + 1, size - index);
+        System.arraycopy(lengths, index, lengths, index + 1, size - index);
+        System.arraycopy(lineNums, index, lineNums, index + 1, size - index);
+        System.arraycopy(cache, index, cache, index + 1, size - index);
+        offsets[index] = IN_MEMORY;
+        lengths[index] = 0;
+        cache[index] = task;
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public Task remove(int index) {
+        Task removed = get(index);
+        int moved = size - index - 1;
+        System.arraycopy(offsets, index + 1, offsets, index, moved);
+        System.arraycopy(lengths, index + 1, lengths, index, moved);
+        System.arraycopy(lineNums, index + 1, lineNums, index, moved);
+        System.arraycopy(cache, index + 1, cache, index, moved);
+        size--;
+        cache[size] = null;
+        modCount++;
+        return removed;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Reads and parses the line of the row at the given index.
+     *
+     * @param index the 0-based index of the row
+     * @return the parsed task
+     * @throws IllegalStateException if the line cannot be read or parsed
+     */
+    private Task readRow(int index) {
+        String line = null;
+        try {
+            ByteBuffer bytes = ByteBuffer.allocate(lengths[index]);
+            while (bytes.hasRemaining()) {
+                if (channel.read(bytes, offsets[index] + bytes.position()) < 0) {
+                    break;
+                }
+            }
+            bytes.flip();
+            line = Charset.defaultCharset().decode(bytes).toString();
+            return Storage.parseRow(line, lineNums[index]);
+        } catch (Exception e) {
+            throw new IllegalStateException("Sorry master but I can't read this task:\n" + line, e);
+        }
+    }
+
+    /**
+     * Grows the arrays so that they can hold at least the given number of rows.
+     *
+     * @param capacity the number of rows needed
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity <= offsets.length) {
+            return;
+        }
+        int newLength = Math.max(capacity, offsets.length * 2);
+        offsets = Arrays.copyOf(offsets, newLength);
+        lengths = Arrays.copyOf(lengths, newLength);
+        lineNums = Arrays.copyOf(lineNums, newLength);
+        if (cache != null) {
+            cache = Arrays.copyOf(cache, newLength);
+        }
+    }
+
+    /**
+     * Checks whether a line looks like a task row: an optional ID, a known type, a status field, and the date
+     * keywords that deadlines and events need. This catches most rows that would fail to parse, without
+     * parsing them.
+     *
+     * @param buffer the mapped file
+     * @param start  the offset of the first byte of the line
+     * @param end    the offset just past the last byte of the line
+     * @return {@code true} if the line looks like a task row
+     */
+    private static boolean isWellFormed(MappedByteBuffer buffer, int start, int end) {
+        if (start < end && buffer.get(start) >= '0' && buffer.get(start) <= '9') {
+            start = indexOf(buffer, start, end, ",") + 1;
+            if (start == 0) {
+                return false;
+            }
+        }
+        if (end - start < 3 || buffer.get(start + 1) != ',') {
+            return false;
+        }
+        int labelStart = indexOf(buffer, start + 2, end, ",") + 1;
+        if (labelStart == 0) {
+            return false;
+        }
+
+        switch (buffer.get(start)) {
+        case 'T':
+            return true;
+        case 'D':
+            return indexOf(buffer, labelStart, end, "/by") >= 0;
+        case 'E':
+            int from = indexOf(buffer, labelStart, end, "/from");
+            return from >= 0 && indexOf(buffer, from + 5, end, "/") >= 0
+                    && indexOf(buffer, labelStart, end, "/to") >= 0;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Finds the first occurrence of an ASCII pattern in a range of the buffer.
+     *
+     * @param buffer  the buffer to search
+     * @param start   the offset to start searching at
+     * @param end     the offset to stop searching at
+     * @param pattern the ASCII pattern to find
+     * @return the offset of the first match, or -1 if there is none
+     */
+    private static int indexOf(MappedByteBuffer buffer, int start, int end, String pattern) {
+        outer:
+        for (int i = start; i <= end - pattern.length(); i++) {
+            for (int j = 0; j < pattern.length(); j++) {
+                if (buffer.get(i + j) != pattern.charAt(j)) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Checks that an index lies between 0 (inclusive) and the given bound (exclusive).
+     *
+     * @param index the index to check
+     * @param bound the exclusive upper bound
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    private static void checkIndex(int index, int bound) {
+        if (index < 0 || index >= bound) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + bound);
+        }
+    }
+}
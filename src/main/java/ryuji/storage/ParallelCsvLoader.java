@@ -0,0 +1,187 @@
+package ryuji.storage;
+
+import ryuji.task.Task;
+import ryuji.ui.Ui;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Loads large task files by parsing chunks of the file in parallel.
+ * <p>The file is mapped into memory and cut into byte ranges that always end on a line break. Each range
+ * is parsed into tasks on the common fork-join pool, and the results are joined back together in file
+ * order, so the tasks come out in exactly the order a line-by-line read would give.</p>
+ * <p>Unreadable lines are reported with the same message and line number as {@link Storage#readFile()}
+ * uses. Each chunk counts its own lines, and the counts of the chunks before it are added afterwards. Rows
+ * without an ID are given their line number as ID the same way.</p>
+ */
+class ParallelCsvLoader {
+
+    /** Files at least this large are parsed in parallel; smaller files are not worth splitting. */
+    static final long PARALLEL_THRESHOLD_BYTES = 1L << 20;
+
+    /** The approximate size of the byte range parsed by a single task. */
+    private static final int TARGET_CHUNK_BYTES = 1 << 20;
+
+    /** The file to load. */
+    private final Path path;
+
+    /** Used to report lines that cannot be read. */
+    private final Ui ui;
+
+    /**
+     * Constructs a {@code ParallelCsvLoader} for the given file.
+     *
+     * @param path the task file to load
+     * @param ui   the {@code Ui} used to report lines that cannot be read
+     */
+    ParallelCsvLoader(Path path, Ui ui) {
+        this.path = path;
+        this.ui = ui;
+    }
+
+    /**
+     * Returns whether a file of the given size should be loaded in parallel.
+     * <p>Small files are not worth splitting, and with a single processor the chunks would only run one
+     * after another anyway.</p>
+     *
+     * @param size the size of the file in bytes
+     * @return {@code true} if the file should be loaded with a {@code ParallelCsvLoader}
+     */
+    static boolean isWorthUsing(long size) {
+        return size >= PARALLEL_THRESHOLD_BYTES && size <= Integer.MAX_VALUE
+                && Runtime.getRuntime().availableProcessors() > 1;
+    }
+
+    /**
+     * Parses every line of the file into a task, in file order.
+     *
+     * @return the tasks read from the file
+     * @throws IOException if the file could not be mapped or is larger than 2 GB
+     */
+    List<Task> load() throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File is too large to load in parallel: " + path);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            List<ForkJoinTask<ChunkResult>> chunks = new ArrayList<>();
+            int start = 0;
+            while (start < size) {
+                int end = findChunkEnd(buffer, start);
+                chunks.add(ForkJoinPool.commonPool().submit(new ChunkParser(buffer, start, end)));
+                start = end;
+            }
+
+            List<Task> rows = new ArrayList<>();
+            int linesBefore = 0;
+            for (ForkJoinTask<ChunkResult> chunk : chunks) {
+                ChunkResult result = chunk.join();
+                rows.addAll(result.tasks);
+                for (Task task : result.unnumberedTasks) {
+                    task.setId(linesBefore + task.getId());
+                }
+                for (int i = 0; i < result.errorLineNums.size(); i++) {
+                    int lineNum = linesBefore + result.errorLineNums.get(i);
+                    ui.showError("Sorry master but I can't read this task:\n" + lineNum + ": "
+                            + result.errorLines.get(i));
+                }
+                linesBefore += result.lineCount;
+            }
+            return rows;
+        }
+    }
+
+    /**
+     * Finds where the chunk starting at the given offset should end: just after the first line break
+     * at or past the target chunk size, or at the end of the file.
+     *
+     * @param buffer the mapped file
+     * @param start  the offset the chunk starts at
+     * @return the offset just past the end of the chunk
+     */
+    private static int findChunkEnd(MappedByteBuffer buffer, int start) {
+        int end = (int) Math.min((long) start + TARGET_CHUNK_BYTES, buffer.limit());
+        while (end < buffer.limit() && buffer.get(end - 1) != '\n') {
+            end++;
+        }
+        return end;
+    }
+
+    /**
+     * Tasks, line count and unreadable lines found in one chunk of the file.
+     */
+    private static final class ChunkResult {
+        private final List<Task> tasks = new ArrayList<>();
+        private final List<Task> unnumberedTasks = new ArrayList<>();
+        private final List<Integer> errorLineNums = new ArrayList<>();
+        private final List<String> errorLines = new ArrayList<>();
+        private int lineCount;
+    }
+
+    /**
+     * Parses the lines in one byte range of the mapped file.
+     * <p>Every chunk is already a single unit of work, so each is submitted to the pool on its own rather than
+     * split any further.</p>
+     */
+    private static final class ChunkParser implements Callable<ChunkResult> {
+
+        private final MappedByteBuffer buffer;
+        private final int start;
+        private final int end;
+
+        ChunkParser(MappedByteBuffer buffer, int start, int end) {
+            this.buffer = buffer;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public ChunkResult call() {
+            byte[] bytes = new byte[end - start];
+            buffer.get(start, bytes);
+            Charset charset = Charset.defaultCharset();
+
+            ChunkResult result = new ChunkResult();
+            int lineStart = 0;
+            while (lineStart < bytes.length) {
+                int lineEnd = lineStart;
+                while (lineEnd < bytes.length && bytes[lineEnd] != '\n') {
+                    lineEnd++;
+                }
+                int textEnd = lineEnd > lineStart && bytes[lineEnd - 1] == '\r' ? lineEnd - 1 : lineEnd;
+                String line = new String(bytes, lineStart, textEnd - lineStart, charset);
+
+                result.lineCount++;
+                if (Storage.isDeletedRow(line)) {
+                    lineStart = lineEnd + 1;
+                    continue;
+                }
+                try {
+                    Task task = Storage.parseRow(line);
+                    if (task.getId() == 0) {
+                        task.setId(result.lineCount);
+                        result.unnumberedTasks.add(task);
+                    }
+                    result.tasks.add(task);
+                } catch (Exception e) {
+                    result.errorLineNums.add(result.lineCount);
+                    result.errorLines.add(line);
+                }
+                lineStart = lineEnd + 1;
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package ryuji.storage;
+
+import ryuji.task.Task;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A {@link Storage} that keeps completed tasks out of the task file.
+ * <p>The task file is the hot segment: it holds the open tasks and is loaded on startup as usual. When the
+ * user exits, every completed task is moved out of it into a new cold segment for the current month, a
+ * compressed file such as {@code tasks.csv.2025-09.1.gz}. Cold segments are written once and never changed,
+ * and are only opened when the user asks for their history, so startup reads and keeps in memory only the
+ * open tasks however many completed tasks have piled up.</p>
+ * <p>A small manifest, {@code tasks.csv.segments}, lists the cold segments with the number of tasks and
+ * the highest task ID in each, so that IDs of archived tasks are not handed out again.</p>
+ */
+public class SegmentedStorage extends Storage {
+
+    /** Suffix of the manifest file, added to the task file name. */
+    private static final String MANIFEST_SUFFIX = ".segments";
+
+    /** Suffix of each cold segment file, added to the task file name, the month and the part number. */
+    private static final String SEGMENT_SUFFIX = ".gz";
+
+    /** The cold segments, oldest first. */
+    private final List<Segment> segments = new ArrayList<>();
+
+    /**
+     * What the manifest records about one cold segment.
+     */
+    private static final class Segment {
+
+        /** The month the tasks in the segment were archived in. */
+        private final YearMonth month;
+
+        /** The number of the segment among the segments of its month, starting from 1. */
+        private final int part;
+
+        /** The number of tasks in the segment. */
+        private final int count;
+
+        /** The highest task ID in the segment. */
+        private final int lastId;
+
+        /**
+         * Constructs a {@code Segment} entry.
+         *
+         * @param month  the month the tasks were archived in
+         * @param part   the number of the segment within its month
+         * @param count  the number of tasks in the segment
+         * @param lastId the highest task ID in the segment
+         */
+        private Segment(YearMonth month, int part, int count, int lastId) {
+            this.month = month;
+            this.part = part;
+            this.count = count;
+            this.lastId = lastId;
+        }
+    }
+
+    /**
+     * Constructs a {@code SegmentedStorage} for the given task file and reads the manifest of its cold
+     * segments, if there is one.
+     *
+     * @param fileName the name of the file that holds the open tasks
+     */
+    public SegmentedStorage(String fileName) {
+        super(fileName);
+        try {
+            readManifest();
+        } catch (IOException e) {
+            ui.showError("I could not read the list of your stored away tasks master: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the highest ID given to any task, archived ones included, so that the task list does not hand
+     * it out again.
+     *
+     * @return the highest task ID used so far, or 0 if none is known
+     */
+    @Override
+    public int getLastUsedId() {
+        int lastId = super.getLastUsedId();
+        for (Segment segment : segments) {
+            lastId = Math.max(lastId, segment.lastId);
+        }
+        return lastId;
+    }
+
+    /**
+     * Reads every archived task from the cold segments, in ID order.
+     * <p>A task archived twice, which can happen if the application stopped while archiving it, is
+     * returned once, as it was archived last.</p>
+     *
+     * @return the archived tasks
+     * @throws IOException if a segment could not be read
+     */
+    @Override
+    public List<Task> readHistory() throws IOException {
+        Map<Integer, Task> history = new TreeMap<>();
+        for (Segment segment : segments) {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(Files.newInputStream(getSegmentPath(segment.month, segment.part))),
+                    StandardCharsets.UTF_8))) {
+                String row;
+                while ((row = reader.readLine()) != null) {
+                    Task task = row.isEmpty() ? null : parseRow(row);
+                    if (task != null) {
+                        history.put(task.getId(), task);
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(history.values());
+    }
+
+    /**
+     * Moves every completed task into a new cold segment, then saves the task file.
+     * <p>The segment and the manifest are written before the tasks are removed from the task file, so a
+     * crash part way through can only leave a task in both places, never in neither.</p>
+     *
+     * @param tasks every task in the list, in list order
+     * @throws IOException if the segment, the manifest or the task file could not be written
+     */
+    @Override
+    public void checkpoint(List<Task> tasks) throws IOException {
+        List<Task> completed = new ArrayList<>();
+        for (Task task : tasks) {
+            if (task.isMarked()) {
+                completed.add(task);
+            }
+        }
+
+        if (!completed.isEmpty()) {
+            archive(YearMonth.now(), completed);
+            removeTasksFromFile(completed);
+        }
+        super.checkpoint(tasks);
+    }
+
+    /**
+     * Writes the given tasks to a new cold segment for a month and adds it to the manifest.
+     * <p>The segment is written to a temporary file, forced to disk and then moved into place, so it is
+     * never seen half-written.</p>
+     *
+     * @param month the month the tasks are archived in
+     * @param tasks the tasks to archive
+     * @throws IOException if the segment or the manifest could not be written
+     */
+    private void archive(YearMonth month, List<Task> tasks) throws IOException {
+        int part = 1;
+        for (Segment segment : segments) {
+            if (segment.month.equals(month)) {
+                part = Math.max(part, segment.part + 1);
+            }
+        }
+
+        int lastId = 0;
+        Path segmentPath = getSegmentPath(month, part);
+        Path temp = segmentPath.resolveSibling(segmentPath.getFileName() + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temp.toFile());
+             GZIPOutputStream gzip = new GZIPOutputStream(file);
+             BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8))) {
+            for (Task task : tasks) {
+                writer.write(formatRow(task));
+                writer.newLine();
+                lastId = Math.max(lastId, task.getId());
+            }
+            writer.flush();
+            gzip.finish();
+            file.getFD().sync();
+        }
+        Files.move(temp, segmentPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        segments.add(new Segment(month, part, tasks.size(), lastId));
+        writeManifest();
+    }
+
+    /**
+     * Reads the manifest, where each line describes one cold segment as {@code month,part,count,lastId}.
+     *
+     * @throws IOException if the manifest exists but could not be read
+     */
+    private void readManifest() throws IOException {
+        Path manifestPath = getManifestPath();
+        if (!Files.exists(manifestPath)) {
+            return;
+        }
+        for (String line : Files.readAllLines(manifestPath, StandardCharsets.UTF_8)) {
+            String[] fields = line.split(",");
+            try {
+                segments.add(new Segment(YearMonth.parse(fields[0]), Integer.parseInt(fields[1]),
+                        Integer.parseInt(fields[2]), Integer.parseInt(fields[3])));
+            } catch (DateTimeParseException | NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                ui.showError("I skipped a damaged line in the list of your stored away tasks master: " + line);
+            }
+        }
+    }
+
+    /**
+     * Writes the manifest through a temporary file, so that it is replaced in one step.
+     *
+     * @throws IOException if the manifest could not be written
+     */
+    private void writeManifest() throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (Segment segment : segments) {
+            lines.add(segment.month + "," + segment.part + "," + segment.count + "," + segment.lastId);
+        }
+        Path manifestPath = getManifestPath();
+        Path temp = manifestPath.resolveSibling(manifestPath.getFileName() + ".tmp");
+        Files.write(temp, lines, StandardCharsets.UTF_8);
+        Files.move(temp, manifestPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Returns the path of a cold segment.
+     *
+     * @param month the month the tasks in the segment were archived in
+     * @param part  the number of the segment within its month
+     * @return the path of the segment file
+     */
+    private Path getSegmentPath(YearMonth month, int part) {
+        return Path.of(getFilePath() + "." + month + "." + part + SEGMENT_SUFFIX);
+    }
+
+    /**
+     * Returns the path of the manifest file.
+     *
+     * @return the path of the manifest
+     */
+    private Path getManifestPath() {
+        return Path.of(getFilePath() + MANIFEST_SUFFIX);
+    }
+}
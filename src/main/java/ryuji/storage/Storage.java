@@ -11,22 +11,121 @@ import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 /**
  * Handles reading and writing of CSV-like data files stored on the desktop.
  * <p>This class provides methods to read, write, and update task data stored in a file.
  * The file is used to persist tasks between application sessions. Tasks are read as CSV rows, and the
  * class ensures that the file is created if it doesn't exist.</p>
+ * <p>Each row starts with the task's stable ID, as in {@code 12,T,X,read book}. Rows written before IDs
+ * existed have none and are given their line number as ID when they are read; the first change to the
+ * file writes those IDs into it. A {@link TaskIndex} from ID to row offset lets marking, unmarking and
+ * deleting change the row in place: a status change rewrites the single status byte, and a deleted row is
+ * marked by replacing its first byte with {@code -} and skipped when the file is read. Deleted rows are
+ * cleared out of the file when they outnumber the remaining rows.</p>
+ * <p>The file can also be watched for rows that other programs append to it while the application runs.
+ * Only the appended bytes are read; the file is read again in full only when bytes that were already read
+ * have changed.</p>
  */
-public class Storage {
+public class Storage implements StorageBackend {
 
     /** The absolute path of the file used for storing tasks. */
     private final String filePath;
 
     /** An instance of the {@link Ui} class used for interacting with the user. */
-    private final Ui ui = new Ui();
+    protected final Ui ui = new Ui();
+
+    /** When appended rows are forced to disk. */
+    private DurabilityPolicy durability = DurabilityPolicy.OS_BUFFERED;
+
+    /** The longest time appended rows may stay unforced under {@link DurabilityPolicy#SYNC_INTERVAL}. */
+    private long syncIntervalMillis;
+
+    /** Background writer that batches appended rows, created on the first append. */
+    private GroupCommitWriter appendWriter;
+
+    /** Index from task ID to row offset, built or loaded on the first change made in place. */
+    private TaskIndex index;
+
+    /** The size the file will have once every appended row is written, kept while {@link #index} is set. */
+    private long fileEnd;
+
+    /**
+     * The highest ID ever given to a task in the file, including tasks that have been deleted since.
+     * <p>It is raised by every task read, written or removed, and saved with the ID index on checkpoint, so
+     * that the ID of a deleted task is not handed out again after a restart.</p>
+     */
+    private final AtomicInteger lastUsedId = new AtomicInteger();
+
+    /** The last used ID as it is saved in the index file, or 0 if none is saved. */
+    private int savedLastUsedId;
+
+    /** How long the file must go without a reported change before it is checked, so a rewrite is seen whole. */
+    private static final long WATCH_SETTLE_MILLIS = 50;
+
+    /** The first byte of a row that has been deleted in place. */
+    static final byte DELETED_ROW_MARK = '-';
+
+    /** Runs the changes handed to the asynchronous methods one at a time, created on the first one. */
+    private ExecutorService asyncWriter;
+
+    /** The thread of {@link #asyncWriter}, which must not wait for its own queue. */
+    private volatile Thread asyncWriterThread;
+
+    /** Follows the file for rows appended by other programs, set while the file is watched. */
+    private volatile FileTailer tailer;
+
+    /** Receives the changes other programs make to the file, set while the file is watched. */
+    private Consumer<ExternalChange> externalChangeListener;
+
+    /** IDs of rows appended by this application that {@link #tailer} has not read back yet. */
+    private final Set<Integer> ownRowIds = ConcurrentHashMap.newKeySet();
+
+    /** Whether a check for changes made by other programs is already waiting on the background writer. */
+    private final AtomicBoolean isCheckQueued = new AtomicBoolean();
+
+    /**
+     * A change to the stored tasks that may fail with an {@link IOException}.
+     */
+    @FunctionalInterface
+    private interface StorageChange {
+
+        /**
+         * Makes the change.
+         *
+         * @throws IOException if the change could not be saved
+         */
+        void run() throws IOException;
+    }
 
     /**
      * Constructs a {@code Storage} object with the specified file name.
@@ -55,12 +154,15 @@ public class Storage {
         }
 
         this.filePath = absolutePath;
+        this.savedLastUsedId = TaskIndex.readLastUsedId(getIndexPath());
+        lastUsedId.set(savedLastUsedId);
     }
 
     /**
      * Reads the file from the specified path and parses its contents into tasks.
      * <p>The file is assumed to have a CSV format, where each line represents a task. The tasks are returned
      * as a list of {@link Task} objects.</p>
+     * <p>Large files are split into chunks and parsed in parallel by a {@link ParallelCsvLoader}.</p>
      *
      * @return a list of tasks parsed from the file
      */
@@ -68,6 +170,12 @@ public class Storage {
         List<Task> rows = new ArrayList<>();
         File file = new File(filePath);
 
+        try {
+            drainAppends();
+        } catch (IOException e) {
+            ui.showError(e.getMessage());
+        }
+
         if (!file.exists()) {
             ui.showError("Sorry master but your file does not exist: " + filePath);
             return rows;
@@ -78,15 +186,27 @@ public class Storage {
             return rows;
         }
 
+        if (ParallelCsvLoader.isWorthUsing(file.length())) {
+            try {
+                rows = new ParallelCsvLoader(file.toPath(), ui).load();
+                noteUsedIds(rows);
+                return rows;
+            } catch (IOException e) {
+                ui.showError(e.getMessage());
+                return rows;
+            }
+        }
+
         try (BufferedReader br = new BufferedReader(new FileReader(file))) {
             String line;
             int lineNum = 0;
             while ((line = br.readLine()) != null) {
                 lineNum++;
+                if (isDeletedRow(line)) {
+                    continue;
+                }
                 try {
-                    String[] values = line.split(",", 3);
-                    Task task = Task.fromCsvRow(values);
-                    rows.add(task);
+                    rows.add(parseRow(line, lineNum));
                 } catch (Exception e) {
                     ui.showError("Sorry master but I can't read this task:\n" + lineNum + ": " + line);
                 }
@@ -95,35 +215,400 @@ public class Storage {
             ui.showError(e.getMessage());
         }
 
+        noteUsedIds(rows);
         return rows;
     }
 
+    /**
+     * Reads the file lazily: only the position of every line is read now, and each task is parsed the
+     * first time it is used.
+     * <p>This makes startup time depend on the size of the file rather than on the cost of parsing every
+     * task. If the file cannot be indexed, it is read in full with {@link #readFile()} instead.</p>
+     *
+     * @return a list of tasks that are parsed on demand
+     */
+    public List<Task> readFileLazily() {
+        File file = new File(filePath);
+        try {
+            drainAppends();
+            List<Task> rows = new LazyTaskRows(file.toPath(), ui);
+            if (!rows.isEmpty()) {
+                noteUsedId(rows.get(rows.size() - 1).getId());
+            }
+            return rows;
+        } catch (IOException e) {
+            return readFile();
+        }
+    }
+
+    /**
+     * Parses a single line of the storage file into a {@link Task}.
+     * <p>The line may start with the task's ID. The rest is split into at most three values (type, status
+     * and label) so that commas inside the label are kept intact.</p>
+     *
+     * @param line a line of the storage file
+     * @return the task described by the line, with ID 0 if the line has no ID
+     */
+    static Task parseRow(String line) {
+        int id = 0;
+        if (!line.isEmpty() && Character.isDigit(line.charAt(0))) {
+            int comma = line.indexOf(',');
+            id = Integer.parseInt(line.substring(0, comma));
+            line = line.substring(comma + 1);
+        }
+        String[] values = line.split(",", 3);
+        Task task = Task.fromCsvRow(values);
+        if (id > 0) {
+            task.setId(id);
+        }
+        return task;
+    }
+
+    /**
+     * Parses a line of the storage file into a {@link Task}, giving it its line number as ID if the line
+     * was written before IDs existed.
+     *
+     * @param line    a line of the storage file
+     * @param lineNum the 1-based line number of the line
+     * @return the task described by the line
+     */
+    static Task parseRow(String line, int lineNum) {
+        Task task = parseRow(line);
+        if (task.getId() == 0) {
+            task.setId(lineNum);
+        }
+        return task;
+    }
+
+    /**
+     * Returns whether a line of the storage file is a row that has been deleted in place.
+     *
+     * @param line a line of the storage file
+     * @return {@code true} if the row has been deleted
+     */
+    static boolean isDeletedRow(String line) {
+        return !line.isEmpty() && line.charAt(0) == DELETED_ROW_MARK;
+    }
+
+    /**
+     * Formats a task as a row of the storage file, starting with its ID.
+     *
+     * @param task the task to format
+     * @return the row for the task, without a line separator
+     */
+    static String formatRow(Task task) {
+        return task.getId() + "," + task.toCsvRow();
+    }
+
     /**
      * Writes a task to the file in CSV format.
      * <p>The task is serialized as a CSV row and appended to the file.</p>
      *
      * @param task the task to be written to the file
+     * @throws IOException if appending to the file is failing; the row is still kept to be written later
      */
-    public void writeTaskToFile(Task task) {
-        String data = task.toCsvRow();
+    public void writeTaskToFile(Task task) throws IOException {
+        String data = formatRow(task);
+        noteUsedId(task.getId());
+        if (tailer != null) {
+            ownRowIds.add(task.getId());
+        }
+        if (index != null) {
+            index.add(task.getId(), fileEnd);
+            fileEnd += Charset.defaultCharset().encode(data + System.lineSeparator()).remaining();
+        }
         writeToFile(data);
     }
 
+    /**
+     * Writes several tasks to the file with a single append.
+     * <p>Their rows are handed to the background writer together, so they are written in one batch.</p>
+     *
+     * @param tasks the tasks to be written to the file, in list order
+     * @throws IOException if an earlier append failed
+     */
+    public void writeTasksToFile(List<Task> tasks) throws IOException {
+        List<String> rows = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            String data = formatRow(task);
+            noteUsedId(task.getId());
+            if (tailer != null) {
+                ownRowIds.add(task.getId());
+            }
+            if (index != null) {
+                index.add(task.getId(), fileEnd);
+                fileEnd += Charset.defaultCharset().encode(data + System.lineSeparator()).remaining();
+            }
+            rows.add(data);
+        }
+        if (appendWriter == null) {
+            appendWriter = createAppendWriter(filePath);
+        }
+        appendWriter.appendAll(rows);
+    }
+
+    /**
+     * Writes several tasks to the file in the background.
+     *
+     * @param tasks the tasks to be written to the file, in list order
+     * @return a future completed once the tasks have been handed to the file, or completed with the error
+     *         that stopped it
+     * @see #runAsync(StorageChange)
+     */
+    public CompletableFuture<Void> writeTasksToFileAsync(List<Task> tasks) {
+        return runAsync(() -> writeTasksToFile(tasks));
+    }
+
+    /**
+     * Writes a task to the file in the background.
+     *
+     * @param task the task to be written to the file
+     * @return a future completed once the task has been handed to the file
+     * @see #runAsync(StorageChange)
+     */
+    public CompletableFuture<Void> writeTaskToFileAsync(Task task) {
+        return runAsync(() -> writeTaskToFile(task));
+    }
+
+    /**
+     * Removes a task from the file in the background.
+     *
+     * @param position the 1-based position the task had in the list
+     * @param task     the task that was removed
+     * @return a future completed once the task has been removed, or completed with the error that stopped it
+     * @see #runAsync(StorageChange)
+     */
+    public CompletableFuture<Void> removeTaskFromFileAsync(int position, Task task) {
+        return runAsync(() -> removeTaskFromFile(position, task));
+    }
+
+    /**
+     * Updates the status of a task in the file in the background.
+     *
+     * @param position the 1-based position of the task in the list
+     * @param task     the task whose status changed
+     * @return a future completed once the status has been saved, or completed with the error that stopped it
+     * @see #runAsync(StorageChange)
+     */
+    public CompletableFuture<Void> updateTaskStatusAsync(int position, Task task) {
+        return runAsync(() -> updateTaskStatus(position, task));
+    }
+
+    /**
+     * Runs a change on the background writer thread, so that the caller, usually the JavaFX application
+     * thread, never waits for the disk.
+     * <p>Changes run one at a time in the order they were handed over, which keeps the file consistent even
+     * when a rewrite of the whole file is still running as the next change arrives. The tasks themselves
+     * are already changed in memory, so only saving them is left to the background.</p>
+     *
+     * @param change the change to save
+     * @return a future completed once the change has been saved, or completed with the error that stopped it
+     */
+    private CompletableFuture<Void> runAsync(StorageChange change) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        getAsyncWriter().execute(() -> {
+            try {
+                change.run();
+                future.complete(null);
+            } catch (IOException | RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Returns the executor of the background writer thread, starting it the first time it is needed.
+     *
+     * @return the executor that saves changes in the background
+     */
+    private synchronized ExecutorService getAsyncWriter() {
+        if (asyncWriter == null) {
+            asyncWriter = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "ryuji-storage");
+                thread.setDaemon(true);
+                asyncWriterThread = thread;
+                return thread;
+            });
+        }
+        return asyncWriter;
+    }
+
+    /**
+     * Waits until every change handed to the background writer has been saved.
+     * <p>Changes that failed have already been reported through their futures, so they are not reported
+     * again here.</p>
+     *
+     * @throws IOException if the wait was interrupted
+     */
+    private void awaitAsyncChanges() throws IOException {
+        ExecutorService writer;
+        synchronized (this) {
+            writer = asyncWriter;
+        }
+        if (writer == null || Thread.currentThread() == asyncWriterThread) {
+            return;
+        }
+        try {
+            CompletableFuture.runAsync(() -> { }, writer).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for changes to be saved", e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+    }
+
     /**
      * Helper method to write a row to the file.
-     * <p>This method is used to append a new line to the file.</p>
+     * <p>The row is handed to a background writer, which appends it together with any other rows waiting
+     * to be written.</p>
      *
      * @param row the row to be written to the file
+     * @throws IOException if appending to the file is failing; the row is still kept to be written later
      */
-    private void writeToFile(String row) {
-        try (FileWriter fw = new FileWriter(filePath, true);
-             BufferedWriter bw = new BufferedWriter(fw);
-             PrintWriter out = new PrintWriter(bw)) {
+    private void writeToFile(String row) throws IOException {
+        if (appendWriter == null) {
+            appendWriter = createAppendWriter(filePath);
+        }
+        appendWriter.append(row);
+    }
 
-            out.println(row);
+    /**
+     * Sets when appended rows are forced to disk.
+     * <p>This should be called before the first change is saved, as writers that are already open keep
+     * the policy they were created with.</p>
+     *
+     * @param durability         when appended rows are forced to disk
+     * @param syncIntervalMillis the longest time rows may stay unforced, used by
+     *                           {@link DurabilityPolicy#SYNC_INTERVAL}
+     */
+    public void setDurability(DurabilityPolicy durability, long syncIntervalMillis) {
+        this.durability = durability;
+        this.syncIntervalMillis = syncIntervalMillis;
+    }
 
-        } catch (IOException e) {
-            ui.showError("I had trouble writing the file into your storage master: " + e.getMessage());
+    /**
+     * Returns when appended rows are forced to disk.
+     *
+     * @return the durability policy of this storage
+     */
+    protected DurabilityPolicy getDurability() {
+        return durability;
+    }
+
+    /**
+     * Creates a background writer for the given file using this storage's durability policy.
+     *
+     * @param path the path of the file to append to
+     * @return a new {@link GroupCommitWriter} for the file
+     */
+    protected GroupCommitWriter createAppendWriter(String path) {
+        return new GroupCommitWriter(Path.of(path), durability, syncIntervalMillis);
+    }
+
+    /**
+     * Waits until every row handed to the background writer has been written to the file.
+     *
+     * @throws IOException if a pending row could not be written
+     */
+    private void drainAppends() throws IOException {
+        if (appendWriter != null) {
+            appendWriter.drain();
+        }
+    }
+
+    /**
+     * Writes every pending change to the file and forces it to disk.
+     * <p>This is called when the user exits so that no change is lost. Changes still being saved in the
+     * background are waited for first.</p>
+     *
+     * @throws IOException if a pending change could not be written
+     */
+    public void flush() throws IOException {
+        awaitAsyncChanges();
+        if (appendWriter != null) {
+            appendWriter.flush();
+        }
+    }
+
+    /**
+     * Saves the whole task list in a form that is faster to load than replaying every change.
+     * <p>This is called when the user exits, after {@link #flush()}. The CSV file already holds the whole
+     * list, so plain storage only saves its ID index, together with the last used ID, purging rows deleted
+     * in place first if they outnumber the rest. Nothing is saved if neither has changed. A file that cannot
+     * be indexed gets an empty index, saved for a file size no file has, that only keeps the last used ID.
+     * Storage that keeps a log of changes can override this to write a snapshot.</p>
+     *
+     * @param tasks every task in the list, in list order
+     * @throws IOException if the snapshot could not be written
+     */
+    public void checkpoint(List<Task> tasks) throws IOException {
+        if (!tasks.isEmpty()) {
+            noteUsedId(tasks.get(tasks.size() - 1).getId());
+        }
+        int lastId = lastUsedId.get();
+        if (index == null && lastId == savedLastUsedId) {
+            return;
+        }
+        drainAppends();
+        TaskIndex taskIndex = getIndex();
+        if (taskIndex == null) {
+            TaskIndex.empty().save(getIndexPath(), -1, 0, lastId);
+            savedLastUsedId = lastId;
+            return;
+        }
+        if (taskIndex.getDeletedRows() > taskIndex.size()) {
+            rewriteRow(0, null);
+            taskIndex = TaskIndex.scan(Path.of(filePath));
+            index = taskIndex;
+        }
+        File file = new File(filePath);
+        taskIndex.save(getIndexPath(), file.length(), file.lastModified(), lastId);
+        savedLastUsedId = lastId;
+    }
+
+    /**
+     * Reads the tasks that have been moved out of the task file into an archive.
+     * <p>Plain storage keeps every task in the task file, so it has no history; storage that archives
+     * completed tasks overrides this to read them back when the user asks for them.</p>
+     *
+     * @return the archived tasks, in ID order
+     * @throws IOException if the archive could not be read
+     */
+    public List<Task> readHistory() throws IOException {
+        return new ArrayList<>();
+    }
+
+    /**
+     * Returns the highest ID ever given to a task in the file, including tasks that have been deleted.
+     * <p>The task list hands out IDs after the last task it loaded, so this keeps the ID of a deleted newest
+     * task from being handed out again. It covers every task read, written or removed since the application
+     * started, and every one before that as far as the last checkpoint.</p>
+     *
+     * @return the highest task ID used so far, or 0 if none is known
+     */
+    public int getLastUsedId() {
+        return lastUsedId.get();
+    }
+
+    /**
+     * Raises the last used ID to the given ID if it is higher.
+     *
+     * @param id the ID of a task that has been read, written or removed
+     */
+    protected void noteUsedId(int id) {
+        lastUsedId.accumulateAndGet(id, Math::max);
+    }
+
+    /**
+     * Raises the last used ID to the highest ID among the given tasks.
+     *
+     * @param tasks tasks that have been read from the file
+     */
+    private void noteUsedIds(List<Task> tasks) {
+        for (Task task : tasks) {
+            noteUsedId(task.getId());
         }
     }
 
@@ -168,53 +653,50 @@ public class Storage {
     }
 
     /**
-     * Removes a task from the file at the specified position.
-     * <p>This method reads the original file, skips the line at the given position, and writes all other lines
-     * to a temporary file. The original file is then deleted, and the temporary file is renamed to replace it.</p>
+     * Removes a task from the file.
+     * <p>The task's row is found through the ID index and marked as deleted in place. If the row cannot be
+     * found that way, the file is rewritten without it instead.</p>
      *
-     * @param position the 1-based line number of the task to be removed
+     * @param position the 1-based position the task had in the list
+     * @param task     the task that was removed
      * @throws IOException if an I/O error occurs during reading, writing, or file manipulation
      */
-    public void removeTaskFromFile(int position) throws IOException {
-        String currentLine;
-        File originalFile = new File(filePath);
-
-        String pathTemp = makeFilePath("temp.csv");
-        File tempFile = new File(pathTemp);
-
-        tempFile.createNewFile();
-        BufferedReader reader = new BufferedReader(new FileReader(originalFile));
-        BufferedWriter writer = new BufferedWriter(new FileWriter(tempFile));
-        int currentPosition = 1;
-
-        while ((currentLine = reader.readLine()) != null) {
-            if (currentPosition == position) {
-                currentPosition++;
-                continue;
-            }
-            writeToFile(currentLine, pathTemp);
-            currentPosition++;
-        }
-
-        reader.close();
-        writer.close();
-
-        if (!originalFile.delete()) {
-            System.err.println("Could not delete original file");
+    public void removeTaskFromFile(int position, Task task) throws IOException {
+        noteUsedId(task.getId());
+        drainAppends();
+        catchUpWithExternalChanges();
+        TaskIndex taskIndex = getIndex();
+        if (taskIndex != null && writeInPlace(taskIndex, task.getId(), 0, DELETED_ROW_MARK)) {
+            taskIndex.remove(task.getId());
             return;
         }
+        rewriteRow(task.getId(), null);
+    }
 
-        if (!tempFile.renameTo(originalFile)) {
-            System.err.println("Could not rename temporary file");
+    /**
+     * Removes several tasks from the file at once.
+     * <p>Unlike {@link #removeTaskFromFile}, the file is rewritten once without the tasks' rows instead of
+     * marking each row as deleted, which is quicker when many tasks are removed together.</p>
+     *
+     * @param tasks the tasks that were removed
+     * @throws IOException if an I/O error occurs during reading, writing, or file manipulation
+     */
+    public void removeTasksFromFile(List<Task> tasks) throws IOException {
+        drainAppends();
+        Set<Integer> ids = new HashSet<>();
+        for (Task task : tasks) {
+            ids.add(task.getId());
+            noteUsedId(task.getId());
         }
+        rewriteRows(ids, null);
     }
 
     /**
-     * Updates the status of a specific task in a CSV file by replacing the line at the given position with
-     * the new task's information. The method reads the original CSV file, writes the updated task
-     * information to a temporary file, and then replaces the original file with the temporary one.
+     * Updates the status of a task in the file.
+     * <p>The task's row is found through the ID index and its status byte is overwritten in place. If the
+     * row cannot be found that way, the file is rewritten with the updated row instead.</p>
      *
-     * @param position The line number (1-based index) of the task to be updated in the CSV file.
+     * @param position The 1-based position of the task in the list.
      * @param task The task object containing the updated information to be written to the file.
      *             The task is converted to a CSV row format using its {@link Task#toCsvRow} method.
      * @throws IOException If an I/O error occurs during file reading, writing, or renaming operations.
@@ -222,7 +704,127 @@ public class Storage {
      * @see Task#toCsvRow()
      */
     public void updateTaskStatus(int position, Task task) throws IOException {
-        String taskString = task.toCsvRow();
+        drainAppends();
+        catchUpWithExternalChanges();
+        TaskIndex taskIndex = getIndex();
+        byte status = (byte) task.getStatusIcon().charAt(0);
+        int statusOffset = String.valueOf(task.getId()).length() + 3;
+        if (taskIndex != null && writeInPlace(taskIndex, task.getId(), statusOffset, status)) {
+            return;
+        }
+        rewriteRow(task.getId(), formatRow(task));
+    }
+
+    /**
+     * Returns the ID index of the file, loading or building it the first time it is needed.
+     * <p>Rows without an ID are numbered first, by rewriting the file once. A file whose IDs are out of
+     * order cannot be indexed, in which case changes fall back to rewriting the file.</p>
+     *
+     * @return the index, or null if the file cannot be indexed
+     * @throws IOException if the file could not be read or numbered
+     */
+    private TaskIndex getIndex() throws IOException {
+        if (index != null) {
+            return index;
+        }
+
+        File file = new File(filePath);
+        TaskIndex taskIndex = TaskIndex.load(getIndexPath(), file.length(), file.lastModified());
+        if (taskIndex == null) {
+            taskIndex = TaskIndex.scan(file.toPath());
+            if (taskIndex.hasUnnumberedRows()) {
+                rewriteRow(0, null);
+                taskIndex = TaskIndex.scan(file.toPath());
+            }
+        }
+        if (!taskIndex.isSorted()) {
+            return null;
+        }
+        index = taskIndex;
+        fileEnd = file.length();
+        return index;
+    }
+
+    /**
+     * Overwrites a single byte of the row with the given ID.
+     * <p>The start of the row is checked against the ID before writing, so a stale index never changes the
+     * wrong row.</p>
+     *
+     * @param taskIndex the ID index of the file
+     * @param id        the ID of the row to change
+     * @param column    the offset of the byte inside the row
+     * @param value     the new value of the byte
+     * @return {@code true} if the byte was written, {@code false} if the row could not be found
+     * @throws IOException if the file could not be read or written
+     */
+    private boolean writeInPlace(TaskIndex taskIndex, int id, int column, byte value) throws IOException {
+        long offset = taskIndex.offsetOf(id);
+        if (offset < 0) {
+            return false;
+        }
+
+        byte[] prefix = (id + ",").getBytes(StandardCharsets.US_ASCII);
+        try (FileChannel channel = FileChannel.open(Path.of(filePath),
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer found = ByteBuffer.allocate(prefix.length + 3);
+            channel.read(found, offset);
+            if (found.position() < found.capacity()
+                    || !Arrays.equals(found.array(), 0, prefix.length, prefix, 0, prefix.length)
+                    || found.get(prefix.length + 1) != ',') {
+                index = null;
+                return false;
+            }
+
+            channel.write(ByteBuffer.wrap(new byte[] {value}), offset + column);
+            if (durability == DurabilityPolicy.SYNC_EVERY_WRITE) {
+                channel.force(false);
+            }
+        }
+        if (tailer != null) {
+            tailer.refreshFingerprint();
+        }
+        return true;
+    }
+
+    /**
+     * Rewrites the whole file, replacing or dropping the row with the given ID.
+     * <p>Rows deleted in place are left out, and rows without an ID are given their line number as ID, the
+     * same ID they were given when the file was read. Rows that cannot be read are kept as they are, with
+     * ID 0 so they are never indexed. Every other row is copied unchanged. The temporary file then replaces
+     * the original file in a single atomic move.</p>
+     *
+     * @param id          the ID of the row to change, or 0 to change no row
+     * @param replacement the new row, or null to drop the row
+     * @throws IOException if an I/O error occurs during reading, writing, or file manipulation
+     */
+    private void rewriteRow(int id, String replacement) throws IOException {
+        rewriteRows(id == 0 ? Set.of() : Set.of(id), replacement);
+    }
+
+    /**
+     * Rewrites the whole file like {@link #rewriteRow}, replacing or dropping every row with one of the
+     * given IDs.
+     *
+     * @param ids         the IDs of the rows to change
+     * @param replacement the new row, or null to drop the rows
+     * @throws IOException if an I/O error occurs during reading, writing, or file manipulation
+     */
+    private void rewriteRows(Set<Integer> ids, String replacement) throws IOException {
+        catchUpWithExternalChanges();
+        rewriteFile(ids, replacement, Map.of());
+    }
+
+    /**
+     * Rewrites the whole file like {@link #rewriteRows}, without catching up with other programs first, and
+     * gives rows without an ID the IDs chosen for their line numbers instead of the line numbers themselves.
+     *
+     * @param ids         the IDs of the rows to change
+     * @param replacement the new row, or null to drop the rows
+     * @param newIds      the IDs to give rows without an ID, by line number
+     * @throws IOException if an I/O error occurs during reading, writing, or file manipulation
+     */
+    private void rewriteFile(Set<Integer> ids, String replacement, Map<Integer, Integer> newIds)
+            throws IOException {
         String currentLine;
         File originalFile = new File(filePath);
 
@@ -232,31 +834,226 @@ public class Storage {
         tempFile.createNewFile();
         BufferedReader reader = new BufferedReader(new FileReader(originalFile));
         BufferedWriter writer = new BufferedWriter(new FileWriter(tempFile));
-        int currentPosition = 1;
+        int lineNum = 0;
 
         while ((currentLine = reader.readLine()) != null) {
-            if (currentPosition == position) {
-                writeToFile(taskString, pathTemp);
-                currentPosition++;
+            lineNum++;
+            if (currentLine.isEmpty() || isDeletedRow(currentLine)) {
                 continue;
             }
-            writeToFile(currentLine, pathTemp);
-            currentPosition++;
+
+            String row = currentLine;
+            int rowId = 0;
+            if (Character.isDigit(currentLine.charAt(0))) {
+                int comma = currentLine.indexOf(',');
+                rowId = comma > 0 ? Integer.parseInt(currentLine.substring(0, comma)) : 0;
+            } else if (isReadable(currentLine)) {
+                rowId = newIds.getOrDefault(lineNum, lineNum);
+                row = rowId + "," + currentLine;
+            } else {
+                row = "0," + currentLine;
+            }
+
+            if (ids.contains(rowId)) {
+                if (replacement == null) {
+                    continue;
+                }
+                row = replacement;
+            }
+            writer.write(row);
+            writer.newLine();
         }
 
         reader.close();
         writer.close();
 
-        if (!originalFile.delete()) {
-            System.err.println("Could not delete original file");
+        replaceWith(tempFile, originalFile);
+        index = null;
+        Files.deleteIfExists(getIndexPath());
+        savedLastUsedId = 0;
+        if (tailer != null) {
+            tailer.reset();
+            ownRowIds.clear();
+        }
+    }
+
+    /**
+     * Starts watching the file for changes made by other programs while the application runs.
+     * <p>A daemon thread waits for the file system to report a change to the file and then queues a check
+     * on the background writer, so checks never overlap with this application's own changes. Rows appended
+     * by other programs are read on their own and passed to the listener as new tasks; if bytes that were
+     * already read have changed, the whole file is read again and passed on instead. Rows this application
+     * appended itself are recognised by their IDs and skipped.</p>
+     * <p>The listener is called on the background writer thread and must not wait for it, e.g. by calling
+     * {@link #flush()}.</p>
+     *
+     * @param listener the receiver of changes made by other programs
+     * @return {@code true}, as the CSV file can always be watched
+     * @throws IOException if the file or its directory could not be watched
+     */
+    public boolean watchForExternalChanges(Consumer<ExternalChange> listener) throws IOException {
+        Path file = Path.of(filePath);
+        WatchService watchService = file.getFileSystem().newWatchService();
+        file.getParent().register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        externalChangeListener = listener;
+        tailer = new FileTailer(file);
+
+        Thread watcher = new Thread(() -> watchDirectory(watchService, file.getFileName()), "ryuji-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+        return true;
+    }
+
+    /**
+     * Waits for the file system to report changes in the file's directory, queueing a check whenever the
+     * file itself changed.
+     * <p>Reports that follow each other closely are handled together, so a program that empties the file
+     * and then writes it again is seen as one rewrite rather than as an empty file. Reports that arrive while
+     * a check is already queued are covered by that check.</p>
+     *
+     * @param watchService the watch service the directory is registered with
+     * @param fileName     the name of the file within the directory
+     */
+    private void watchDirectory(WatchService watchService, Path fileName) {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean isFileChanged = false;
+                while (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        isFileChanged |= event.kind() == StandardWatchEventKinds.OVERFLOW
+                                || fileName.equals(event.context());
+                    }
+                    key.reset();
+                    key = watchService.poll(WATCH_SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+                }
+                if (isFileChanged && isCheckQueued.compareAndSet(false, true)) {
+                    runAsync(() -> {
+                        isCheckQueued.set(false);
+                        catchUpWithExternalChanges();
+                    }).exceptionally(e -> {
+                        externalChangeListener.accept(ExternalChange.failed(e.getMessage()));
+                        return null;
+                    });
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Reads whatever other programs have changed in the file since it was last checked, and passes it on
+     * to the listener.
+     * <p>This runs on the background writer, both when the file system reports a change and before this
+     * application changes rows in place or rewrites the file, so that the fingerprint is only ever taken
+     * of bytes that have been read. It does nothing while the file is not watched.</p>
+     * <p>Appended rows without an ID are given new IDs after the highest one used so far, which are written
+     * into the file by rewriting it. Their line numbers cannot serve as IDs the way they do when the file
+     * is first read, as rows deleted before them may have had those IDs.</p>
+     *
+     * @throws IOException if the file could not be read
+     */
+    private void catchUpWithExternalChanges() throws IOException {
+        if (tailer == null) {
+            return;
+        }
+        drainAppends();
+        if (tailer.wasRewritten()) {
+            tailer.reset();
+            ownRowIds.clear();
+            index = null;
+            externalChangeListener.accept(ExternalChange.reloaded(readFile()));
             return;
         }
 
-        if (!tempFile.renameTo(originalFile)) {
-            System.err.println("Could not rename temporary file");
+        List<Task> appended = new ArrayList<>();
+        Map<Integer, Task> unnumbered = new LinkedHashMap<>();
+        int unreadableRows = 0;
+        for (FileTailer.Line line : tailer.readAppendedLines()) {
+            String row = line.getText();
+            if (row.isEmpty() || isDeletedRow(row)) {
+                continue;
+            }
+            Task task = isReadable(row) ? parseRow(row) : null;
+            if (task == null) {
+                unreadableRows++;
+                continue;
+            }
+            if (task.getId() == 0) {
+                unnumbered.put(tailer.lineNumberOf(line), task);
+                appended.add(task);
+                continue;
+            }
+            if (ownRowIds.remove(task.getId())) {
+                continue;
+            }
+            if (index != null) {
+                index.add(task.getId(), line.getOffset());
+            }
+            noteUsedId(task.getId());
+            appended.add(task);
+        }
+
+        if (!unnumbered.isEmpty()) {
+            Map<Integer, Integer> newIds = new HashMap<>();
+            for (Map.Entry<Integer, Task> row : unnumbered.entrySet()) {
+                row.getValue().setId(lastUsedId.incrementAndGet());
+                newIds.put(row.getKey(), row.getValue().getId());
+            }
+            rewriteFile(Set.of(), null, newIds);
+        }
+
+        if (index != null && !appended.isEmpty()) {
+            fileEnd = Files.size(Path.of(filePath));
+            if (!index.isSorted()) {
+                index = null;
+            }
+        }
+        if (!appended.isEmpty() || unreadableRows > 0) {
+            externalChangeListener.accept(ExternalChange.appended(appended, unreadableRows));
+        }
+    }
+
+    /**
+     * Returns whether a line of the storage file can be parsed into a task.
+     *
+     * @param line a line of the storage file
+     * @return {@code true} if the line describes a task
+     */
+    private static boolean isReadable(String line) {
+        try {
+            parseRow(line);
+            return true;
+        } catch (Exception e) {
+            return false;
         }
     }
 
+    /**
+     * Returns the path of the file the ID index is saved in.
+     *
+     * @return the path of the index file
+     */
+    private Path getIndexPath() {
+        return Path.of(filePath + ".idx");
+    }
+
+    /**
+     * Replaces a file with a fully written temporary file in a single atomic move.
+     * <p>Readers see either the old file or the new one, never a missing or half-written file, even if the
+     * application stops in the middle of the move.</p>
+     *
+     * @param tempFile     the fully written temporary file
+     * @param originalFile the file to replace
+     * @throws IOException if the temporary file could not be moved over the original file
+     */
+    private static void replaceWith(File tempFile, File originalFile) throws IOException {
+        Files.move(tempFile.toPath(), originalFile.toPath(),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
 /**
  * Returns the file path where the task data is stored.
  * <p>This method is used to retrieve the absolute path of the file where tasks are persisted.</p>
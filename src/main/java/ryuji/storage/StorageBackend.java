@@ -0,0 +1,157 @@
+package ryuji.storage;
+
+import ryuji.task.Task;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the user's tasks between sessions.
+ * <p>Commands and the application only talk to storage through this interface, so the engine behind it can
+ * be swapped without touching them. The implementations are:</p>
+ * <ul>
+ *   <li>{@link Storage}: the CSV task file, changed in place where possible</li>
+ *   <li>{@link JournalStorage}: the CSV file plus an append-only journal of changes and snapshots</li>
+ *   <li>{@link BinaryStorage}: fixed-width records in a memory-mapped file</li>
+ *   <li>{@link SegmentedStorage}: the CSV file with completed tasks archived into compressed segments</li>
+ *   <li>{@link InMemoryStorage}: keeps nothing, for measuring commands without any disk I/O</li>
+ * </ul>
+ * <p>Tasks are passed together with their 1-based position in the list, but each has a stable ID, and
+ * backends are free to find a task by either.</p>
+ */
+public interface StorageBackend {
+
+    /**
+     * Reads every saved task.
+     *
+     * @return the saved tasks, in ID order
+     */
+    List<Task> readFile();
+
+    /**
+     * Reads every saved task, parsing each one only when it is first used if the backend supports it.
+     *
+     * @return the saved tasks, in ID order
+     */
+    List<Task> readFileLazily();
+
+    /**
+     * Saves a task that has just been added to the end of the list.
+     *
+     * @param task the added task
+     * @throws IOException if the task could not be saved
+     */
+    void writeTaskToFile(Task task) throws IOException;
+
+    /**
+     * Saves several tasks that have just been added to the end of the list, in one write where the backend
+     * allows it.
+     *
+     * @param tasks the added tasks, in list order
+     * @throws IOException if the tasks could not be saved
+     */
+    void writeTasksToFile(List<Task> tasks) throws IOException;
+
+    /**
+     * Removes a task that has just been deleted from the list.
+     *
+     * @param position the 1-based position the task had in the list
+     * @param task     the deleted task
+     * @throws IOException if the task could not be removed
+     */
+    void removeTaskFromFile(int position, Task task) throws IOException;
+
+    /**
+     * Saves a task that has just been marked or unmarked.
+     *
+     * @param position the 1-based position of the task in the list
+     * @param task     the changed task
+     * @throws IOException if the change could not be saved
+     */
+    void updateTaskStatus(int position, Task task) throws IOException;
+
+    /**
+     * Saves an added task in the background, like {@link #writeTaskToFile}.
+     *
+     * @param task the added task
+     * @return a future completed once the task has been saved, or completed with the error that stopped it
+     */
+    CompletableFuture<Void> writeTaskToFileAsync(Task task);
+
+    /**
+     * Saves several added tasks in the background, like {@link #writeTasksToFile}.
+     *
+     * @param tasks the added tasks, in list order
+     * @return a future completed once the tasks have been saved, or completed with the error that stopped it
+     */
+    CompletableFuture<Void> writeTasksToFileAsync(List<Task> tasks);
+
+    /**
+     * Removes a deleted task in the background, like {@link #removeTaskFromFile}.
+     *
+     * @param position the 1-based position the task had in the list
+     * @param task     the deleted task
+     * @return a future completed once the task has been removed, or completed with the error that stopped it
+     */
+    CompletableFuture<Void> removeTaskFromFileAsync(int position, Task task);
+
+    /**
+     * Saves a status change in the background, like {@link #updateTaskStatus}.
+     *
+     * @param position the 1-based position of the task in the list
+     * @param task     the changed task
+     * @return a future completed once the change has been saved, or completed with the error that stopped it
+     */
+    CompletableFuture<Void> updateTaskStatusAsync(int position, Task task);
+
+    /**
+     * Waits for every pending change and forces it to disk. This is called when the user exits.
+     *
+     * @throws IOException if a pending change could not be saved
+     */
+    void flush() throws IOException;
+
+    /**
+     * Saves the whole list in whatever form loads fastest next time. This is called after {@link #flush()}
+     * when the user exits.
+     *
+     * @param tasks every task in the list, in list order
+     * @throws IOException if the list could not be saved
+     */
+    void checkpoint(List<Task> tasks) throws IOException;
+
+    /**
+     * Reads the tasks that have been archived out of the list.
+     *
+     * @return the archived tasks, in ID order
+     * @throws IOException if the archive could not be read
+     */
+    List<Task> readHistory() throws IOException;
+
+    /**
+     * Returns the highest ID ever given to a stored task, including tasks that have been deleted or archived,
+     * which must not be handed out again.
+     *
+     * @return the highest task ID used so far, or 0 if none is known
+     */
+    int getLastUsedId();
+
+    /**
+     * Starts watching the stored tasks for changes made by other programs while the application runs, if
+     * the backend supports it.
+     *
+     * @param listener the receiver of changes made by other programs, called from a background thread
+     * @return {@code true} if the tasks are now watched, {@code false} if the backend cannot watch them
+     * @throws IOException if the tasks could not be watched
+     */
+    boolean watchForExternalChanges(Consumer<ExternalChange> listener) throws IOException;
+
+    /**
+     * Returns where the tasks are kept, to show to the user.
+     *
+     * @return the path of the task file, or a description of where the tasks are kept
+     */
+    String getFilePath();
+}
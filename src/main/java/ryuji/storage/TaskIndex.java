@@ -0,0 +1,288 @@
+package ryuji.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * An index from task ID to the byte offset of the task's row in the CSV file.
+ * <p>Rows are written in ID order, so the IDs are kept in a sorted array and looked up with a binary
+ * search. With the offset of a row known, a change to a single task becomes a seek and a one-byte write
+ * instead of a rewrite of the whole file.</p>
+ * <p>The index can be saved next to the task file and loaded again on the next start, so that the file
+ * does not have to be scanned. A saved index remembers the size and modification time of the file it was
+ * built for, and is ignored if the file has changed since.</p>
+ * <p>The saved index also holds the highest ID ever given to a task in the file. Unlike the entries, it is
+ * read even when the file has changed, as a row deleted since cannot lower it.</p>
+ * <p>Index file layout, all numbers big-endian: magic, version, file size, file modification time, number
+ * of entries, number of deleted rows, last used ID, padding, then every ID followed by every offset.</p>
+ */
+class TaskIndex {
+
+    /** Marks the file as a Ryuji task index ("RYJI"). */
+    private static final int MAGIC = 0x52594A49;
+
+    /** Version of the index layout. */
+    private static final int VERSION = 2;
+
+    /** Size of the header at the start of the index file. */
+    private static final int HEADER_SIZE = 40;
+
+    /** Offset of the last used ID inside the header. */
+    private static final int LAST_USED_ID_OFFSET = 32;
+
+    /** The IDs of the indexed rows, in increasing order. */
+    private int[] ids;
+
+    /** The byte offset of each indexed row, in the same order as {@link #ids}. */
+    private long[] offsets;
+
+    /** The number of indexed rows. */
+    private int size;
+
+    /** The number of rows in the file that are marked as deleted. */
+    private int deletedRows;
+
+    /** Whether the file has rows written before IDs existed, which cannot be indexed yet. */
+    private boolean hasUnnumberedRows;
+
+    /** Whether the IDs in the file are in increasing order, which the binary search relies on. */
+    private boolean isSorted = true;
+
+    /**
+     * Constructs an empty {@code TaskIndex} with room for the given number of rows.
+     *
+     * @param capacity the number of rows to make room for
+     */
+    private TaskIndex(int capacity) {
+        ids = new int[Math.max(capacity, 16)];
+        offsets = new long[ids.length];
+    }
+
+    /**
+     * Returns an index without rows, to save the last used ID of a file that cannot be indexed.
+     *
+     * @return an empty index
+     */
+    static TaskIndex empty() {
+        return new TaskIndex(0);
+    }
+
+    /**
+     * Builds an index by scanning every row of the given task file.
+     * <p>Rows marked as deleted are counted but not indexed, and rows with ID 0 are neither.</p>
+     *
+     * @param path the task file to scan
+     * @return the index of the file
+     * @throws IOException if the file could not be read or is larger than 2 GB
+     */
+    static TaskIndex scan(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize > Integer.MAX_VALUE) {
+                throw new IOException("File is too large to index: " + path);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+
+            TaskIndex index = new TaskIndex(0);
+            int lineStart = 0;
+            while (lineStart < fileSize) {
+                int lineEnd = lineStart;
+                while (lineEnd < fileSize && buffer.get(lineEnd) != '\n') {
+                    lineEnd++;
+                }
+
+                byte first = lineEnd > lineStart ? buffer.get(lineStart) : (byte) '\n';
+                if (first == Storage.DELETED_ROW_MARK) {
+                    index.deletedRows++;
+                } else if (first >= '0' && first <= '9') {
+                    int id = 0;
+                    for (int i = lineStart; i < lineEnd && buffer.get(i) != ','; i++) {
+                        id = id * 10 + (buffer.get(i) - '0');
+                    }
+                    if (id > 0) {
+                        index.add(id, lineStart);
+                    }
+                } else if (first != '\r' && first != '\n') {
+                    index.hasUnnumberedRows = true;
+                }
+                lineStart = lineEnd + 1;
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Loads an index saved by {@link #save}, if it was built for the file as it is now.
+     *
+     * @param path         the index file
+     * @param fileSize     the current size of the task file
+     * @param fileModified the current modification time of the task file
+     * @return the saved index, or null if there is none or the task file has changed since it was saved
+     */
+    static TaskIndex load(Path path, long fileSize, long fileModified) {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION
+                    || buffer.getLong() != fileSize || buffer.getLong() != fileModified) {
+                return null;
+            }
+            int size = buffer.getInt();
+            TaskIndex index = new TaskIndex(size);
+            index.deletedRows = buffer.getInt();
+            buffer.position(HEADER_SIZE);
+            buffer.asIntBuffer().get(index.ids, 0, size);
+            buffer.position(buffer.position() + size * 4);
+            buffer.asLongBuffer().get(index.offsets, 0, size);
+            index.size = size;
+            return index;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads the highest task ID saved with an index, whether or not the index still matches the task file.
+     *
+     * @param path the index file
+     * @return the last used ID, or 0 if there is no index or it was saved before the ID was kept
+     */
+    static int readLastUsedId(Path path) {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                return 0;
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                return 0;
+            }
+            return header.getInt(LAST_USED_ID_OFFSET);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Saves the index so that it can be loaded on the next start instead of scanning the file.
+     *
+     * @param path         the index file
+     * @param fileSize     the size of the task file the index describes
+     * @param fileModified the modification time of the task file the index describes
+     * @param lastUsedId   the highest ID ever given to a task in the file
+     * @throws IOException if the index could not be written
+     */
+    void save(Path path, long fileSize, long fileModified, int lastUsedId) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + size * 12);
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(fileSize).putLong(fileModified)
+                .putInt(size).putInt(deletedRows).putInt(lastUsedId).putInt(0);
+        buffer.asIntBuffer().put(ids, 0, size);
+        buffer.position(buffer.position() + size * 4);
+        buffer.asLongBuffer().put(offsets, 0, size);
+        buffer.position(buffer.capacity());
+        buffer.flip();
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Adds a row to the end of the index.
+     * <p>IDs are expected to increase; if they do not, the index is marked as unsorted.</p>
+     *
+     * @param id     the ID of the row
+     * @param offset the byte offset of the row in the file
+     */
+    void add(int id, long offset) {
+        if (size > 0 && id <= ids[size - 1]) {
+            isSorted = false;
+        }
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+            offsets = Arrays.copyOf(offsets, size * 2);
+        }
+        ids[size] = id;
+        offsets[size] = offset;
+        size++;
+    }
+
+    /**
+     * Returns the byte offset of the row with the given ID.
+     *
+     * @param id the ID to look up
+     * @return the offset of the row, or -1 if the ID is not in the index
+     */
+    long offsetOf(int id) {
+        int slot = Arrays.binarySearch(ids, 0, size, id);
+        return slot >= 0 ? offsets[slot] : -1;
+    }
+
+    /**
+     * Removes the row with the given ID from the index and counts it as deleted.
+     *
+     * @param id the ID of the deleted row
+     */
+    void remove(int id) {
+        int slot = Arrays.binarySearch(ids, 0, size, id);
+        if (slot < 0) {
+            return;
+        }
+        System.arraycopy(ids, slot + 1, ids, slot, size - slot - 1);
+        System.arraycopy(offsets, slot + 1, offsets, slot, size - slot - 1);
+        size--;
+        deletedRows++;
+    }
+
+    /**
+     * Returns the number of indexed rows.
+     *
+     * @return the number of rows in the index
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of rows in the file that are marked as deleted.
+     *
+     * @return the number of deleted rows
+     */
+    int getDeletedRows() {
+        return deletedRows;
+    }
+
+    /**
+     * Returns whether the file has rows without an ID, which need numbering before they can be indexed.
+     *
+     * @return {@code true} if some rows have no ID
+     */
+    boolean hasUnnumberedRows() {
+        return hasUnnumberedRows;
+    }
+
+    /**
+     * Returns whether the IDs were found in increasing order, so that lookups can be trusted.
+     *
+     * @return {@code true} if the index is sorted by ID
+     */
+    boolean isSorted() {
+        return isSorted;
+    }
+}
@@ -0,0 +1,425 @@
+package ryuji.task;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * A list of tasks kept in primitive arrays, one per field, rather than as one object per task.
+ * <p>An {@code ArrayList} of tasks costs a reference, a task object, a label string with its own array and,
+ * for deadlines and events, date objects for every task, and at millions of tasks the object headers and
+ * references take more memory than the labels themselves. This list keeps each field in a column instead: the
+ * IDs in an {@code int} array, the types in a {@code byte} array, whether each task is marked in a bitset,
+ * the dates as day numbers in {@code int} arrays, and the labels encoded as UTF-8 one after another in a single
+ * shared {@code byte} array. Dates that could not be read as dates are kept as text after the label.</p>
+ * <p>{@link #get(int)} hands out a new task built from the columns every time it is called, so two calls do
+ * not return the same object. Marking or unmarking a task handed out this way also marks or unmarks its row,
+ * found by ID, so the list stays the one place the mark is kept. Other changes to a task handed out are not
+ * written back. Rows are expected to be in ID order, as a {@link TaskList} keeps them.</p>
+ * <p>Deleting a task leaves its text unused in the shared array, which is packed again once more than half of
+ * it is unused.</p>
+ */
+public final class CompactTaskRows extends AbstractList<Task> implements RandomAccess {
+
+    /** Type of a row holding a {@link ToDo}. */
+    private static final byte TODO = 0;
+
+    /** Type of a row holding a {@link Deadline}. */
+    private static final byte DEADLINE = 1;
+
+    /** Type of a row holding an {@link Event}. */
+    private static final byte EVENT = 2;
+
+    /** Day number of a date that could not be read as a date, which is kept as text instead. */
+    private static final int NO_DATE = Integer.MIN_VALUE;
+
+    /** Separates the label from dates kept as text in a row's text; labels are read from lines, so never hold it. */
+    private static final char FIELD_SEPARATOR = '\0';
+
+    /** Text arrays smaller than this are not worth packing again. */
+    private static final int MIN_PACKED_TEXT = 4096;
+
+    /** The number of rows in the list. */
+    private int size;
+
+    /** The ID of each row. */
+    private int[] ids = new int[16];
+
+    /** The type of each row: {@link #TODO}, {@link #DEADLINE} or {@link #EVENT}. */
+    private byte[] types = new byte[16];
+
+    /** Whether each row is marked as done, one bit per row. */
+    private long[] marked = new long[1];
+
+    /** The due date of a deadline or start date of an event as an epoch day, or {@link #NO_DATE}. */
+    private int[] startDays = new int[16];
+
+    /** The end date of an event as an epoch day, or {@link #NO_DATE}. */
+    private int[] endDays = new int[16];
+
+    /** The offset of each row's text in {@link #text}. */
+    private int[] textStarts = new int[16];
+
+    /** The length in bytes of each row's text. */
+    private int[] textLengths = new int[16];
+
+    /** The text of every row, one after another: the label, then any dates kept as text. */
+    private byte[] text = new byte[256];
+
+    /** The number of bytes of {@link #text} in use, including the text of deleted rows. */
+    private int textSize;
+
+    /** The number of bytes of {@link #text} left by deleted or replaced rows. */
+    private int unusedTextBytes;
+
+    /**
+     * Constructs a {@code CompactTaskRows} holding the given tasks, in order.
+     * <p>The shared text array is cut down to the text of the tasks once they are all in, since a freshly
+     * loaded list is often never added to.</p>
+     *
+     * @param tasks the tasks to hold, in ID order
+     */
+    public CompactTaskRows(Collection<? extends Task> tasks) {
+        ensureCapacity(tasks.size());
+        for (Task task : tasks) {
+            add(task);
+        }
+        text = Arrays.copyOf(text, textSize);
+    }
+
+    /**
+     * Returns a task built from the row at the given index.
+     *
+     * @param index the 0-based index of the task
+     * @return a new task with the fields of the row, which marks the row when it is marked
+     */
+    @Override
+    public Task get(int index) {
+        checkIndex(index, size);
+        String[] fields = readText(index);
+        boolean isMarked = isMarked(index);
+        Task task;
+        switch (types[index]) {
+        case DEADLINE:
+            task = new DeadlineView(fields[0], dateOf(startDays[index]), fields.length > 1 ? fields[1] : null,
+                    isMarked);
+            break;
+        case EVENT:
+            int field = 1;
+            String startRaw = startDays[index] == NO_DATE ? fields[field++] : null;
+            String endRaw = endDays[index] == NO_DATE ? fields[field] : null;
+            task = new EventView(fields[0], dateOf(startDays[index]), startRaw, dateOf(endDays[index]), endRaw,
+                    isMarked);
+            break;
+        default:
+            task = new ToDoView(fields[0], isMarked);
+        }
+        if (ids[index] > 0) {
+            task.setId(ids[index]);
+        }
+        return task;
+    }
+
+    @Override
+    public Task set(int index, Task task) {
+        Task previous = get(index);
+        unusedTextBytes += textLengths[index];
+        write(index, task);
+        packTextIfWasteful();
+        return previous;
+    }
+
+    @Override
+    public void add(int index, Task task) {
+        checkIndex(index, size + 1);
+        ensureCapacity(size + 1);
+        int moved = size - index;
+        System.arraycopy(ids, index, ids, index + 1, moved);
+        System.arraycopy(types, index, types, index + 1, moved);
+        System.arraycopy(startDays, index, startDays, index + 1, moved);
+        System.arraycopy(endDays, index, endDays, index + 1, moved);
+        System.arraycopy(textStarts, index, textStarts, index + 1, moved);
+        System.arraycopy(textLengths, index, textLengths, index + 1, moved);
+        for (int i = size; i > index; i--) {
+            setMarked(i, isMarked(i - 1));
+        }
+        size++;
+        write(index, task);
+        modCount++;
+    }
+
+    @Override
+    public Task remove(int index) {
+        Task removed = get(index);
+        unusedTextBytes += textLengths[index];
+        int moved = size - index - 1;
+        System.arraycopy(ids, index + 1, ids, index, moved);
+        System.arraycopy(types, index + 1, types, index, moved);
+        System.arraycopy(startDays, index + 1, startDays, index, moved);
+        System.arraycopy(endDays, index + 1, endDays, index, moved);
+        System.arraycopy(textStarts, index + 1, textStarts, index, moved);
+        System.arraycopy(textLengths, index + 1, textLengths, index, moved);
+        removeMarkedBit(index);
+        size--;
+        modCount++;
+        packTextIfWasteful();
+        return removed;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the ID of the row at the given index without building its task, so that searching the list by
+     * ID stays cheap.
+     *
+     * @param index the 0-based index of the row
+     * @return the ID of the row
+     */
+    int idAt(int index) {
+        checkIndex(index, size);
+        return ids[index];
+    }
+
+    /**
+     * Writes the fields of a task into the row at the given index, appending its text to the shared array.
+     *
+     * @param index the 0-based index of the row
+     * @param task  the task to write
+     */
+    private void write(int index, Task task) {
+        ids[index] = task.getId();
+        setMarked(index, task.isMarked());
+        StringBuilder rowText = new StringBuilder(task.getLabel());
+        if (task instanceof Deadline) {
+            Deadline deadline = (Deadline) task;
+            types[index] = DEADLINE;
+            startDays[index] = dayOf(deadline.getParsedDate(), deadline.getRawDateTime(), rowText);
+            endDays[index] = NO_DATE;
+        } else if (task instanceof Event) {
+            Event event = (Event) task;
+            types[index] = EVENT;
+            startDays[index] = dayOf(event.getStartParsed(), event.getStartRaw(), rowText);
+            endDays[index] = dayOf(event.getEndParsed(), event.getEndRaw(), rowText);
+        } else {
+            types[index] = TODO;
+            startDays[index] = NO_DATE;
+            endDays[index] = NO_DATE;
+        }
+
+        byte[] bytes = rowText.toString().getBytes(StandardCharsets.UTF_8);
+        if (textSize + bytes.length > text.length) {
+            text = Arrays.copyOf(text, Math.max(textSize + bytes.length, text.length * 2));
+        }
+        System.arraycopy(bytes, 0, text, textSize, bytes.length);
+        textStarts[index] = textSize;
+        textLengths[index] = bytes.length;
+        textSize += bytes.length;
+    }
+
+    /**
+     * Returns the day number to keep for a date, adding the date to the row's text if it was not parsed.
+     *
+     * @param parsed  the parsed date, or null
+     * @param raw     the date as typed, used if it was not parsed
+     * @param rowText the row's text, to which the raw date is added
+     * @return the epoch day of the date, or {@link #NO_DATE} if it is kept as text
+     */
+    private static int dayOf(LocalDate parsed, String raw, StringBuilder rowText) {
+        if (parsed != null) {
+            return Math.toIntExact(parsed.toEpochDay());
+        }
+        rowText.append(FIELD_SEPARATOR).append(raw == null ? "" : raw);
+        return NO_DATE;
+    }
+
+    /**
+     * Returns the date of a day number.
+     *
+     * @param day the epoch day, or {@link #NO_DATE}
+     * @return the date, or null if the date is kept as text
+     */
+    private static LocalDate dateOf(int day) {
+        return day == NO_DATE ? null : LocalDate.ofEpochDay(day);
+    }
+
+    /**
+     * Reads the text of a row, split into the label followed by any dates kept as text.
+     *
+     * @param index the 0-based index of the row
+     * @return the label, then each date kept as text in order
+     */
+    private String[] readText(int index) {
+        String rowText = new String(text, textStarts[index], textLengths[index], StandardCharsets.UTF_8);
+        return rowText.split(String.valueOf(FIELD_SEPARATOR), -1);
+    }
+
+    /**
+     * Copies the text of every row into a new array without the text left by deleted rows, once more than half
+     * of the array is unused.
+     */
+    private void packTextIfWasteful() {
+        if (textSize < MIN_PACKED_TEXT || unusedTextBytes * 2 < textSize) {
+            return;
+        }
+        byte[] packed = new byte[Math.max(256, (textSize - unusedTextBytes) * 3 / 2)];
+        int packedSize = 0;
+        for (int i = 0; i < size; i++) {
+            System.arraycopy(text, textStarts[i], packed, packedSize, textLengths[i]);
+            textStarts[i] = packedSize;
+            packedSize += textLengths[i];
+        }
+        text = packed;
+        textSize = packedSize;
+        unusedTextBytes = 0;
+    }
+
+    /**
+     * Marks or unmarks the row with the given ID, when a task handed out by {@link #get(int)} is marked or
+     * unmarked.
+     *
+     * @param id       the ID of the task
+     * @param isMarked whether the task is now marked
+     */
+    private void markRow(int id, boolean isMarked) {
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        if (index >= 0) {
+            setMarked(index, isMarked);
+        }
+    }
+
+    private boolean isMarked(int index) {
+        return (marked[index >>> 6] & (1L << index)) != 0;
+    }
+
+    private void setMarked(int index, boolean isMarked) {
+        if (isMarked) {
+            marked[index >>> 6] |= 1L << index;
+        } else {
+            marked[index >>> 6] &= ~(1L << index);
+        }
+    }
+
+    /**
+     * Removes the bit of a row from the bitset, moving the bits of every later row down by one a word at a
+     * time.
+     *
+     * @param index the 0-based index of the row being removed
+     */
+    private void removeMarkedBit(int index) {
+        int word = index >>> 6;
+        long below = marked[word] & ((1L << index) - 1);
+        long above = (marked[word] >>> 1) & -(1L << index);
+        marked[word] = below | above;
+        int lastWord = (size - 1) >>> 6;
+        for (int w = word; w < lastWord; w++) {
+            marked[w] |= marked[w + 1] << 63;
+            marked[w + 1] >>>= 1;
+        }
+    }
+
+    /**
+     * Grows the columns so that they can hold at least the given number of rows.
+     *
+     * @param capacity the number of rows needed
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity > ids.length) {
+            int newLength = Math.max(capacity, ids.length * 2);
+            ids = Arrays.copyOf(ids, newLength);
+            types = Arrays.copyOf(types, newLength);
+            startDays = Arrays.copyOf(startDays, newLength);
+            endDays = Arrays.copyOf(endDays, newLength);
+            textStarts = Arrays.copyOf(textStarts, newLength);
+            textLengths = Arrays.copyOf(textLengths, newLength);
+        }
+        if (capacity > marked.length * 64) {
+            marked = Arrays.copyOf(marked, Math.max((capacity + 63) >>> 6, marked.length * 2));
+        }
+    }
+
+    /**
+     * Checks that an index lies between 0 (inclusive) and the given bound (exclusive).
+     *
+     * @param index the index to check
+     * @param bound the exclusive upper bound
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    private static void checkIndex(int index, int bound) {
+        if (index < 0 || index >= bound) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + bound);
+        }
+    }
+
+    /**
+     * A to-do handed out by {@link #get(int)}, which marks its row when it is marked.
+     */
+    private final class ToDoView extends ToDo {
+
+        private ToDoView(String label, boolean isMarked) {
+            super(label, isMarked);
+        }
+
+        @Override
+        public void mark() {
+            super.mark();
+            markRow(getId(), true);
+        }
+
+        @Override
+        public void unmark() {
+            super.unmark();
+            markRow(getId(), false);
+        }
+    }
+
+    /**
+     * A deadline handed out by {@link #get(int)}, which marks its row when it is marked.
+     */
+    private final class DeadlineView extends Deadline {
+
+        private DeadlineView(String label, LocalDate parsedDate, String rawDateTime, boolean isMarked) {
+            super(label, parsedDate, rawDateTime, isMarked);
+        }
+
+        @Override
+        public void mark() {
+            super.mark();
+            markRow(getId(), true);
+        }
+
+        @Override
+        public void unmark() {
+            super.unmark();
+            markRow(getId(), false);
+        }
+    }
+
+    /**
+     * An event handed out by {@link #get(int)}, which marks its row when it is marked.
+     */
+    private final class EventView extends Event {
+
+        private EventView(String label, LocalDate startParsed, String startRaw, LocalDate endParsed, String endRaw,
+                boolean isMarked) {
+            super(label, startParsed, startRaw, endParsed, endRaw, isMarked);
+        }
+
+        @Override
+        public void mark() {
+            super.mark();
+            markRow(getId(), true);
+        }
+
+        @Override
+        public void unmark() {
+            super.unmark();
+            markRow(getId(), false);
+        }
+    }
+}
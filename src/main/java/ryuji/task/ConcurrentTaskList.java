@@ -0,0 +1,229 @@
+package ryuji.task;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * A {@link TaskList} that can be read from any number of threads while another thread changes it.
+ * <p>The tasks are held in a {@link SnapshotTaskRows}, so reading the list as it is, such as to show it, to
+ * save it or to look up a task, works on an immutable snapshot without taking any lock and never sees a change
+ * half made. A task in a published snapshot is never changed either: marking or unmarking a task puts a changed
+ * copy of it in the next snapshot. Adding, deleting, marking and unmarking tasks take the write lock of a
+ * {@link ReentrantReadWriteLock}, so there is only ever one writer at a time, which changes the indexes and
+ * publishes a new snapshot.</p>
+ * <p>Searches that use an index take the read lock instead, which any number of readers share, since an index
+ * is a set of plain maps that must not be read while a writer changes it. Readers that arrive while a writer
+ * is waiting queue behind it, so a steady stream of searches cannot hold changes off for good. An index is
+ * built the first time it is needed, so the first search of each kind takes the write lock to build it and
+ * later ones only read it.</p>
+ */
+public class ConcurrentTaskList extends TaskList {
+
+    /**
+     * The indexes that are built on first use.
+     */
+    private enum Index {
+        TRIGRAM, FUZZY, DATE, EVENT, FILTER
+    }
+
+    /** The tasks, published as a new snapshot on every change. */
+    private final SnapshotTaskRows rows;
+
+    /** The lock that lets one writer or many index readers in at a time. */
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** Whether each index has been built, only read or written while holding the lock. */
+    private final boolean[] isBuilt = new boolean[Index.values().length];
+
+    /**
+     * Constructs an empty {@code ConcurrentTaskList}.
+     */
+    public ConcurrentTaskList() {
+        this(new SnapshotTaskRows(), 0);
+    }
+
+    /**
+     * Constructs a {@code ConcurrentTaskList} with the given tasks, never handing out an ID up to the given one.
+     *
+     * <p>The tasks are expected to be in ID order, as storage loads them.</p>
+     *
+     * @param tasks      the tasks to initialize the task list with
+     * @param lastUsedId the highest ID already given to a task, in the list or not, or 0
+     */
+    public ConcurrentTaskList(List<Task> tasks, int lastUsedId) {
+        this(new SnapshotTaskRows(tasks), lastUsedId);
+    }
+
+    private ConcurrentTaskList(SnapshotTaskRows rows, int lastUsedId) {
+        super(rows, lastUsedId);
+        this.rows = rows;
+    }
+
+    /**
+     * Returns the tasks as they are now, as a list that later changes do not affect.
+     *
+     * @return an immutable snapshot of the tasks
+     */
+    @Override
+    public List<Task> asList() {
+        return rows.snapshot();
+    }
+
+    /**
+     * Finds the position of the task with the given ID, searching one snapshot so that a task deleted in the
+     * middle of the search cannot throw it off.
+     */
+    @Override
+    public int findPosition(int id) {
+        return findPosition(rows.snapshot(), id);
+    }
+
+    @Override
+    public int countUpTo(int id) {
+        return countUpTo(rows.snapshot(), id);
+    }
+
+    @Override
+    public String addToList(Task item) {
+        return write(() -> super.addToList(item));
+    }
+
+    @Override
+    public List<Task> addAllToList(List<Task> items) {
+        return write(() -> super.addAllToList(items));
+    }
+
+    @Override
+    public String deleteFromList(int index) {
+        return write(() -> super.deleteFromList(index));
+    }
+
+    @Override
+    public String mark(int index) {
+        return write(() -> super.mark(index));
+    }
+
+    @Override
+    public String unmark(int index) {
+        return write(() -> super.unmark(index));
+    }
+
+    /**
+     * Publishes a snapshot in which the task at an index is replaced by a copy with the new status, leaving the
+     * task in earlier snapshots as it was.
+     */
+    @Override
+    Task setStatus(int index, boolean isDone) {
+        Task copy = rows.get(index).withStatus(isDone);
+        rows.set(index, copy);
+        return copy;
+    }
+
+    @Override
+    public TaskList find(String searchTerm) {
+        Index index = searchTerm.length() >= TrigramIndex.GRAM_LENGTH ? Index.TRIGRAM : null;
+        return read(index, () -> super.find(searchTerm));
+    }
+
+    @Override
+    public TaskList findFuzzy(String searchTerm) {
+        return read(Index.FUZZY, () -> super.findFuzzy(searchTerm));
+    }
+
+    @Override
+    public TaskList findDueBefore(LocalDate date) {
+        return read(Index.DATE, () -> super.findDueBefore(date));
+    }
+
+    @Override
+    public TaskList findDueBetween(LocalDate from, LocalDate to) {
+        return read(Index.DATE, () -> super.findDueBetween(from, to));
+    }
+
+    @Override
+    public TaskList findUnreadDates() {
+        return read(Index.DATE, () -> super.findUnreadDates());
+    }
+
+    @Override
+    public TaskList findEventsDuring(LocalDate from, LocalDate to) {
+        return read(Index.EVENT, () -> super.findEventsDuring(from, to));
+    }
+
+    /**
+     * Finds the other events that take place on any of the days of a given event.
+     * <p>This takes the write lock, since whether it builds the interval tree of events depends on the task,
+     * and it is only used right after a task is added.</p>
+     */
+    @Override
+    public List<Task> findClashes(Task task) {
+        return write(() -> super.findClashes(task));
+    }
+
+    @Override
+    public TaskList findEventsWithUnreadDates() {
+        return read(Index.EVENT, () -> super.findEventsWithUnreadDates());
+    }
+
+    @Override
+    public TaskList filter(TaskFilter filter) {
+        return read(Index.FILTER, () -> super.filter(filter));
+    }
+
+    @Override
+    public TaskList filter(TaskList found, TaskFilter filter) {
+        return read(Index.FILTER, () -> super.filter(found, filter));
+    }
+
+    @Override
+    public String describeSearchIndex() {
+        return read(null, () -> super.describeSearchIndex());
+    }
+
+    @Override
+    public String describeFilterIndex() {
+        return read(null, () -> super.describeFilterIndex());
+    }
+
+    /**
+     * Runs a change to the list while holding the write lock.
+     *
+     * @param change the change to make
+     * @param <T>    the type of the result of the change
+     * @return the result of the change
+     */
+    private <T> T write(Supplier<T> change) {
+        lock.writeLock().lock();
+        try {
+            return change.get();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Runs a search while holding the read lock, or the write lock if the index it needs is not built yet.
+     *
+     * @param index  the index the search builds on first use, or null if it builds none
+     * @param search the search to run
+     * @param <T>    the type of the result of the search
+     * @return the result of the search
+     */
+    private <T> T read(Index index, Supplier<T> search) {
+        lock.readLock().lock();
+        try {
+            if (index == null || isBuilt[index.ordinal()]) {
+                return search.get();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return write(() -> {
+            T result = search.get();
+            isBuilt[index.ordinal()] = true;
+            return result;
+        });
+    }
+}
@@ -0,0 +1,138 @@
+package ryuji.task;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * An index of deadlines and events sorted by the date they are due.
+ * <p>A deadline is due on its {@code /by} date and an event on its {@code /from} date. Tasks are kept in a
+ * {@link TreeMap} from each date to the IDs of the tasks due on it, so the tasks due in a range of dates are
+ * found by locating the first date of the range in O(log d) for d distinct dates and then reading only the IDs
+ * in the range. Tasks are kept by ID rather than by reference, since a {@link CompactTaskRows} list hands out a
+ * new object for a task each time it is asked.</p>
+ * <p>Deadlines and events whose date could not be read as a date cannot be placed, so they are kept apart, to
+ * be reported on their own. To-dos have no date and are not indexed.</p>
+ */
+final class DateIndex {
+
+    /** The IDs of the tasks due on each date. */
+    private final NavigableMap<LocalDate, PostingList> tasksByDate = new TreeMap<>();
+
+    /** The IDs of the deadlines and events whose date could not be read. */
+    private final PostingList unreadDates = new PostingList();
+
+    /**
+     * Constructs a {@code DateIndex} of the given tasks.
+     *
+     * @param tasks the tasks to index
+     */
+    DateIndex(Iterable<Task> tasks) {
+        for (Task task : tasks) {
+            add(task);
+        }
+    }
+
+    /**
+     * Adds a task under the date it is due, or to the tasks whose date could not be read.
+     *
+     * @param task the task to add
+     */
+    void add(Task task) {
+        LocalDate date = dueDateOf(task);
+        if (date != null) {
+            tasksByDate.computeIfAbsent(date, key -> new PostingList()).add(task.getId());
+        } else if (task instanceof Deadline || task instanceof Event) {
+            unreadDates.add(task.getId());
+        }
+    }
+
+    /**
+     * Removes a task from under the date it is due.
+     *
+     * @param task the task to remove
+     */
+    void remove(Task task) {
+        LocalDate date = dueDateOf(task);
+        if (date == null) {
+            unreadDates.remove(task.getId());
+            return;
+        }
+        PostingList sameDate = tasksByDate.get(date);
+        if (sameDate != null) {
+            sameDate.remove(task.getId());
+            if (sameDate.size() == 0) {
+                tasksByDate.remove(date);
+            }
+        }
+    }
+
+    /**
+     * Finds the tasks due before a date, earliest first.
+     *
+     * @param date the date the tasks must be due before
+     * @return the IDs of the tasks due strictly before the date, in date order and then in ID order
+     */
+    int[] findBefore(LocalDate date) {
+        return flatten(tasksByDate.headMap(date, false).values());
+    }
+
+    /**
+     * Finds the tasks due between two dates, earliest first.
+     *
+     * @param from the first date of the range
+     * @param to   the last date of the range, not before {@code from}
+     * @return the IDs of the tasks due on or after {@code from} and on or before {@code to}, in date order
+     */
+    int[] findBetween(LocalDate from, LocalDate to) {
+        return flatten(tasksByDate.subMap(from, true, to, true).values());
+    }
+
+    /**
+     * Returns the deadlines and events whose date could not be read, so they may be due on any date.
+     *
+     * @return the IDs of the tasks without a readable date, in increasing order
+     */
+    int[] getUnreadDates() {
+        return flatten(List.of(unreadDates));
+    }
+
+    /**
+     * Returns the date a task is due: the {@code /by} date of a deadline or the {@code /from} date of an event.
+     *
+     * @param task the task to look at
+     * @return the date, or null if the task is a to-do or its date could not be read
+     */
+    private static LocalDate dueDateOf(Task task) {
+        if (task instanceof Deadline) {
+            return ((Deadline) task).getParsedDate();
+        }
+        if (task instanceof Event) {
+            return ((Event) task).getStartParsed();
+        }
+        return null;
+    }
+
+    /**
+     * Joins the IDs of consecutive dates into one array.
+     *
+     * @param lists the IDs of each date, in date order
+     * @return every ID of the lists, in order
+     */
+    private static int[] flatten(Collection<PostingList> lists) {
+        int total = 0;
+        for (PostingList sameDate : lists) {
+            total += sameDate.size();
+        }
+        int[] ids = new int[total];
+        int next = 0;
+        for (PostingList sameDate : lists) {
+            for (int i = 0; i < sameDate.size(); i++) {
+                ids[next++] = sameDate.get(i);
+            }
+        }
+        return ids;
+    }
+}
@@ -3,7 +3,9 @@ package ryuji.task;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Utility class for handling various date and time formats.
@@ -15,33 +17,39 @@ public class DateTimeHandler {
 
     /** Input formatter patterns to parse date and optional time (time is optional). */
     private static final List<String> patterns = List.of(
-            "yyyy-MM-dd",
-            "yyyy/MM/dd"
+            "uuuu-MM-dd",
+            "uuuu/MM/dd"
     );
 
     /** Output formatter to display the date in a user-friendly format. */
     private static final DateTimeFormatter outputFormatter =
             DateTimeFormatter.ofPattern("MMM d yyyy");
 
+    /** Formatters for every input pattern, followed by the output format so saved dates can be read back. */
+    private static final List<DateTimeFormatter> inputFormatters = Stream.concat(patterns.stream()
+            .map(pattern -> DateTimeFormatter.ofPattern(pattern).withResolverStyle(ResolverStyle.STRICT)),
+            Stream.of(outputFormatter)).toList();
+
     /**
      * Parses a given date-time string into a {@link LocalDate} object.
      * <p>This method attempts to detect the format of the provided string using predefined patterns.
      * If a valid format is detected, the string is parsed into a {@link LocalDate} object. If no valid
      * format is found, the method returns null.</p>
-     * <p>Currently supported formats include "yyyy-MM-dd" and "yyyy/MM/dd".</p>
+     * <p>Currently supported formats include "yyyy-MM-dd" and "yyyy/MM/dd", as well as the "MMM d yyyy" form
+     * dates are shown and saved in, so that a saved date is read back as a date rather than as raw text.</p>
      *
      * @param dateString the date-time string to parse
      * @return the parsed {@link LocalDate} object, or null if no valid format was found
      */
     public static LocalDate getDate(String dateString) {
-        LocalDate formattedDate;
-        try {
-            formattedDate = LocalDate.parse(dateString);
-        } catch (DateTimeParseException e) {
-            formattedDate = null;
+        for (DateTimeFormatter formatter : inputFormatters) {
+            try {
+                return LocalDate.parse(dateString, formatter);
+            } catch (DateTimeParseException e) {
+                // try the next format
+            }
         }
-        System.out.println(formattedDate);  // Debug output, can be removed for production.
-        return formattedDate;
+        return null;
     }
 
     /**
@@ -36,7 +36,7 @@ public class Deadline extends Task {
             rawDateTime = null;
         } else {
             parsedDate = null;
-            rawDateTime = dateString;
+            rawDateTime = LabelPool.pool(dateString);
         }
     }
 
@@ -59,10 +59,43 @@ public class Deadline extends Task {
             rawDateTime = null;
         } else {
             parsedDate = null;
-            rawDateTime = dateString;
+            rawDateTime = LabelPool.pool(dateString);
         }
     }
 
+    /**
+     * Constructs a Deadline task from values that have already been parsed, such as those kept in a snapshot.
+     * <p>Exactly one of {@code parsedDate} and {@code rawDateTime} is expected to be set.</p>
+     *
+     * @param label       the task label, as returned by {@link #getLabel()}
+     * @param parsedDate  the parsed due date, or null if it could not be parsed
+     * @param rawDateTime the raw due date string, or null if the date was parsed
+     * @param isMarked    true if the task is marked as done, false otherwise
+     */
+    public Deadline(String label, LocalDate parsedDate, String rawDateTime, boolean isMarked) {
+        super(label, isMarked);
+        this.parsedDate = parsedDate;
+        this.rawDateTime = LabelPool.pool(rawDateTime);
+    }
+
+    /**
+     * Returns the parsed due date of this deadline.
+     *
+     * @return the parsed due date, or null if the date could not be parsed
+     */
+    public LocalDate getParsedDate() {
+        return parsedDate;
+    }
+
+    /**
+     * Returns the due date exactly as the user typed it, kept when it could not be parsed.
+     *
+     * @return the raw due date string, or null if the date was parsed
+     */
+    public String getRawDateTime() {
+        return rawDateTime;
+    }
+
     /**
      * Checks if this deadline task has a valid date/time.
      * <p>The task is considered valid if it has either a parsed date or a non-empty raw date string.</p>
@@ -79,6 +112,11 @@ public class Deadline extends Task {
         return areBothTimesPresent;
     }
 
+    @Override
+    Task copyWithStatus(boolean isMarked) {
+        return new Deadline(label, parsedDate, rawDateTime, isMarked);
+    }
+
     /**
      * Returns a CSV row string representing this task.
      * <p>The format for the CSV representation is: "D | status | label | date/time".</p>
@@ -87,20 +125,9 @@ public class Deadline extends Task {
      * @return a CSV-formatted string representing this deadline task
      */
     @Override
-    public String toCsvRow() {
-        String status = getStatusIcon();
+    String renderCsvRow() {
         String labelPart = this.label.split("/by", 2)[0].trim();
-        String dateStr;
-
-        boolean isDateTimePresent = parsedDate != null;
-
-        if (isDateTimePresent)  {
-            dateStr = DateTimeHandler.formatDetectedDate(parsedDate);
-        } else {
-            dateStr = rawDateTime;
-        }
-
-        return String.format("D," + status + "," + labelPart + " /by " + dateStr);
+        return "D," + getStatusIcon() + "," + labelPart + " /by " + describeDate();
     }
 
     /**
@@ -111,12 +138,16 @@ public class Deadline extends Task {
      * @return a formatted string including the task status, description, and the deadline date/time
      */
     @Override
-    public String toString() {
-        if (parsedDate != null) {
-            return "[D]" + super.toString() + " (by: "
-                    + DateTimeHandler.formatDetectedDate(parsedDate) + ")";
-        } else {
-            return "[D]" + super.toString() + " (by: " + rawDateTime + ")";
-        }
+    String renderDisplay() {
+        return "[D]" + describeStatusAndLabel() + " (by: " + describeDate() + ")";
+    }
+
+    /**
+     * Returns the due date as it is shown and saved: formatted if it was parsed, or exactly as it was typed.
+     *
+     * @return the due date
+     */
+    private String describeDate() {
+        return parsedDate != null ? DateTimeHandler.formatDetectedDate(parsedDate) : rawDateTime;
     }
 }
@@ -39,14 +39,14 @@ public class Event extends Task {
         String unparsedEndDate = toSplit[1].trim();
 
         LocalDate detectedStartDateTime = DateTimeHandler.getDate(unparsedStartDate);
-        LocalDate detectedEndDateTime = DateTimeHandler.getDate(unparsedStartDate);
+        LocalDate detectedEndDateTime = DateTimeHandler.getDate(unparsedEndDate);
 
         if (detectedStartDateTime != null) {
             startParsed = detectedStartDateTime;
             startRaw = null;
         } else {
             startParsed = null;
-            startRaw = unparsedStartDate;
+            startRaw = LabelPool.pool(unparsedStartDate);
         }
 
         if (detectedEndDateTime != null) {
@@ -54,7 +54,7 @@ public class Event extends Task {
             endRaw = null;
         } else {
             endParsed = null;
-            endRaw = unparsedEndDate;
+            endRaw = LabelPool.pool(unparsedEndDate);
         }
     }
 
@@ -76,14 +76,14 @@ public class Event extends Task {
         String unparsedEndDate = toSplit[1].trim();
 
         LocalDate detectedStartDateTime = DateTimeHandler.getDate(unparsedStartDate);
-        LocalDate detectedEndDateTime = DateTimeHandler.getDate(unparsedStartDate);
+        LocalDate detectedEndDateTime = DateTimeHandler.getDate(unparsedEndDate);
 
         if (detectedStartDateTime != null) {
             startParsed = detectedStartDateTime;
             startRaw = null;
         } else {
             startParsed = null;
-            startRaw = unparsedStartDate;
+            startRaw = LabelPool.pool(unparsedStartDate);
         }
 
         if (detectedEndDateTime != null) {
@@ -91,10 +91,66 @@ public class Event extends Task {
             endRaw = null;
         } else {
             endParsed = null;
-            endRaw = unparsedEndDate;
+            endRaw = LabelPool.pool(unparsedEndDate);
         }
     }
 
+    /**
+     * Constructs an Event task from values that have already been parsed, such as those kept in a snapshot.
+     * <p>For both the start and the end, exactly one of the parsed and raw values is expected to be set.</p>
+     *
+     * @param label       the task label, as returned by {@link #getLabel()}
+     * @param startParsed the parsed start date, or null if it could not be parsed
+     * @param startRaw    the raw start date string, or null if the date was parsed
+     * @param endParsed   the parsed end date, or null if it could not be parsed
+     * @param endRaw      the raw end date string, or null if the date was parsed
+     * @param isMarked    true if task is marked done, false otherwise
+     */
+    public Event(String label, LocalDate startParsed, String startRaw, LocalDate endParsed, String endRaw,
+            boolean isMarked) {
+        super(label, isMarked);
+        this.startParsed = startParsed;
+        this.startRaw = LabelPool.pool(startRaw);
+        this.endParsed = endParsed;
+        this.endRaw = LabelPool.pool(endRaw);
+    }
+
+    /**
+     * Returns the parsed start date of this event.
+     *
+     * @return the parsed start date, or null if the date could not be parsed
+     */
+    public LocalDate getStartParsed() {
+        return startParsed;
+    }
+
+    /**
+     * Returns the start date exactly as the user typed it, kept when it could not be parsed.
+     *
+     * @return the raw start date string, or null if the date was parsed
+     */
+    public String getStartRaw() {
+        return startRaw;
+    }
+
+    /**
+     * Returns the parsed end date of this event.
+     *
+     * @return the parsed end date, or null if the date could not be parsed
+     */
+    public LocalDate getEndParsed() {
+        return endParsed;
+    }
+
+    /**
+     * Returns the end date exactly as the user typed it, kept when it could not be parsed.
+     *
+     * @return the raw end date string, or null if the date was parsed
+     */
+    public String getEndRaw() {
+        return endRaw;
+    }
+
     /**
      * Checks if the event has valid start and end date/time.
      * <p>This method checks if both the start and end times have been correctly parsed or provided as raw strings.
@@ -119,6 +175,11 @@ public class Event extends Task {
         return isDateTimePresent;
     }
 
+    @Override
+    Task copyWithStatus(boolean isMarked) {
+        return new Event(label, startParsed, startRaw, endParsed, endRaw, isMarked);
+    }
+
     /**
      * Returns a user-friendly string representation of the event.
      * <p>The task string will include the event's status, description, start date/time, and end date/time.</p>
@@ -126,22 +187,9 @@ public class Event extends Task {
      * @return string formatted as "[E]<task info> (from: start to: end)"
      */
     @Override
-    public String toString() {
-        String startStr;
-        if (startParsed != null) {
-            startStr = DateTimeHandler.formatDetectedDate(startParsed);
-        } else {
-            startStr = startRaw;
-        }
-
-        String endStr;
-        if (endParsed != null) {
-            endStr = DateTimeHandler.formatDetectedDate(endParsed);
-        } else {
-            endStr = endRaw;
-        }
-
-        return "[E]" + super.toString() + " (from: " + startStr + " to: " + endStr + ")";
+    String renderDisplay() {
+        return "[E]" + describeStatusAndLabel() + " (from: " + describeDate(startParsed, startRaw)
+                + " to: " + describeDate(endParsed, endRaw) + ")";
     }
 
     /**
@@ -151,23 +199,20 @@ public class Event extends Task {
      * @return CSV formatted string of this event task
      */
     @Override
-    public String toCsvRow() {
-        String status = getStatusIcon();
-
-        String startStr;
-        if (startParsed != null) {
-            startStr = DateTimeHandler.formatDetectedDate(startParsed);
-        } else {
-            startStr = startRaw;
-        }
-
-        String endStr;
-        if (endParsed != null) {
-            endStr = DateTimeHandler.formatDetectedDate(endParsed);
-        } else {
-            endStr = endRaw;
-        }
+    String renderCsvRow() {
+        return "E," + getStatusIcon() + "," + label + " /from " + describeDate(startParsed, startRaw)
+                + " /to " + describeDate(endParsed, endRaw);
+    }
 
-        return String.format("E," + status + "," + label + " /from " + startStr + " /to " + endStr);
+    /**
+     * Returns the start or end of the event as it is shown and saved: formatted if it was parsed, or exactly as it
+     * was typed.
+     *
+     * @param parsed the parsed date, or null if it could not be parsed
+     * @param raw    the date as it was typed, used if it could not be parsed
+     * @return the date
+     */
+    private static String describeDate(LocalDate parsed, String raw) {
+        return parsed != null ? DateTimeHandler.formatDetectedDate(parsed) : raw;
     }
 }
@@ -0,0 +1,318 @@
+package ryuji.task;
+
+import java.time.LocalDate;
+import java.util.stream.IntStream;
+
+/**
+ * An interval tree of events, which finds the events that overlap a range of dates.
+ * <p>Events are kept in a balanced binary search tree (an AVL tree) ordered by start date and then by ID, and
+ * every node also records the latest end date in its subtree. A search skips any subtree whose latest end date
+ * is before the range, and everything right of a node that starts after the range, so it follows the paths
+ * that lead to overlapping events and leaves the rest of the tree alone instead of checking every event.
+ * Adding or removing an event rebalances the tree and updates the latest end dates along one path, in
+ * O(log n) for n events.</p>
+ * <p>An event covers every day from its {@code /from} date to its {@code /to} date, including both; if the
+ * dates were given the wrong way round, the event covers the days between them all the same. Events with a
+ * date that could not be read as a date are kept apart, to be reported on their own.</p>
+ * <p>Like {@link DateIndex}, the tree holds the IDs of events rather than the events themselves.</p>
+ */
+final class EventIndex {
+
+    /** The root of the tree, or null if no event with readable dates is indexed. */
+    private Node root;
+
+    /** The IDs of the events whose start or end date could not be read. */
+    private final PostingList unreadDates = new PostingList();
+
+    /**
+     * An event in the tree, with its dates as day numbers.
+     */
+    private static final class Node {
+
+        /** The ID of the event. */
+        private final int id;
+
+        /** The first day the event covers, as an epoch day. */
+        private final long start;
+
+        /** The last day the event covers, as an epoch day. */
+        private final long end;
+
+        /** The latest {@link #end} in the subtree rooted at this node. */
+        private long maxEnd;
+
+        /** The height of the subtree rooted at this node, 1 for a leaf. */
+        private int height = 1;
+
+        private Node left;
+        private Node right;
+
+        private Node(int id, long start, long end) {
+            this.id = id;
+            this.start = start;
+            this.end = end;
+            this.maxEnd = end;
+        }
+    }
+
+    /**
+     * Constructs an {@code EventIndex} of the events among the given tasks.
+     *
+     * @param tasks the tasks to index; tasks other than events are left out
+     */
+    EventIndex(Iterable<Task> tasks) {
+        for (Task task : tasks) {
+            add(task);
+        }
+    }
+
+    /**
+     * Adds an event to the tree, or to the events whose dates could not be read.
+     *
+     * @param task the task to add; tasks other than events are ignored
+     */
+    void add(Task task) {
+        if (!(task instanceof Event)) {
+            return;
+        }
+        Event event = (Event) task;
+        if (!hasReadableDates(event)) {
+            unreadDates.add(event.getId());
+            return;
+        }
+        long start = event.getStartParsed().toEpochDay();
+        long end = event.getEndParsed().toEpochDay();
+        root = insert(root, new Node(event.getId(), Math.min(start, end), Math.max(start, end)));
+    }
+
+    /**
+     * Removes an event from the tree.
+     *
+     * @param task the task to remove; tasks other than events are ignored
+     */
+    void remove(Task task) {
+        if (!(task instanceof Event)) {
+            return;
+        }
+        Event event = (Event) task;
+        if (!hasReadableDates(event)) {
+            unreadDates.remove(event.getId());
+            return;
+        }
+        long start = Math.min(event.getStartParsed().toEpochDay(), event.getEndParsed().toEpochDay());
+        root = delete(root, start, event.getId());
+    }
+
+    /**
+     * Finds the events that cover at least one day of a range of dates, ordered by start date.
+     *
+     * @param from the first date of the range
+     * @param to   the last date of the range, not before {@code from}
+     * @return the IDs of the overlapping events, earliest start first
+     */
+    int[] findOverlapping(LocalDate from, LocalDate to) {
+        IntStream.Builder found = IntStream.builder();
+        collect(root, from.toEpochDay(), to.toEpochDay(), found);
+        return found.build().toArray();
+    }
+
+    /**
+     * Returns the events whose start or end date could not be read, so they may overlap any range.
+     *
+     * @return the IDs of the events without readable dates, in increasing order
+     */
+    int[] getUnreadDates() {
+        int[] ids = new int[unreadDates.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = unreadDates.get(i);
+        }
+        return ids;
+    }
+
+    /**
+     * Checks whether both dates of an event were read as dates, so that it can be placed in the tree.
+     *
+     * @param event the event to check
+     * @return {@code true} if the start and end dates were both parsed
+     */
+    static boolean hasReadableDates(Event event) {
+        return event.getStartParsed() != null && event.getEndParsed() != null;
+    }
+
+    /**
+     * Adds the IDs of the events of a subtree that overlap a range to a builder, in order of start date.
+     *
+     * @param node  the root of the subtree
+     * @param from  the first day of the range, as an epoch day
+     * @param to    the last day of the range, as an epoch day
+     * @param found the builder to add the IDs to
+     */
+    private static void collect(Node node, long from, long to, IntStream.Builder found) {
+        if (node == null || node.maxEnd < from) {
+            return;
+        }
+        collect(node.left, from, to, found);
+        if (node.start > to) {
+            // every event to the right starts later still
+            return;
+        }
+        if (node.end >= from) {
+            found.add(node.id);
+        }
+        collect(node.right, from, to, found);
+    }
+
+    /**
+     * Inserts a node into a subtree and rebalances it.
+     *
+     * @param node  the root of the subtree, or null if it is empty
+     * @param added the node to insert
+     * @return the new root of the subtree
+     */
+    private static Node insert(Node node, Node added) {
+        if (node == null) {
+            return added;
+        }
+        if (compare(added.start, added.id, node) < 0) {
+            node.left = insert(node.left, added);
+        } else {
+            node.right = insert(node.right, added);
+        }
+        return rebalance(node);
+    }
+
+    /**
+     * Deletes the node of an event from a subtree and rebalances it.
+     *
+     * @param node  the root of the subtree
+     * @param start the first day the event covers, as an epoch day
+     * @param id    the ID of the event
+     * @return the new root of the subtree
+     */
+    private static Node delete(Node node, long start, int id) {
+        if (node == null) {
+            return null;
+        }
+        int comparison = compare(start, id, node);
+        if (comparison < 0) {
+            node.left = delete(node.left, start, id);
+        } else if (comparison > 0) {
+            node.right = delete(node.right, start, id);
+        } else if (node.left == null) {
+            return node.right;
+        } else if (node.right == null) {
+            return node.left;
+        } else {
+            Node successor = node.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            successor.right = deleteFirst(node.right);
+            successor.left = node.left;
+            return rebalance(successor);
+        }
+        return rebalance(node);
+    }
+
+    /**
+     * Deletes the node with the earliest start from a subtree and rebalances it.
+     *
+     * @param node the root of the subtree
+     * @return the new root of the subtree
+     */
+    private static Node deleteFirst(Node node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        node.left = deleteFirst(node.left);
+        return rebalance(node);
+    }
+
+    /**
+     * Compares the position of an event in the tree with the event of a node.
+     *
+     * @param start the first day the event covers, as an epoch day
+     * @param id    the ID of the event
+     * @param node  the node to compare with
+     * @return a negative number, zero or a positive number if the event comes before, at or after the node
+     */
+    private static int compare(long start, int id, Node node) {
+        int byStart = Long.compare(start, node.start);
+        return byStart != 0 ? byStart : Integer.compare(id, node.id);
+    }
+
+    /**
+     * Restores the balance of a node whose subtrees differ in height by at most two, and updates its height
+     * and latest end date.
+     *
+     * @param node the node to rebalance
+     * @return the new root of the subtree
+     */
+    private static Node rebalance(Node node) {
+        update(node);
+        int balance = heightOf(node.left) - heightOf(node.right);
+        if (balance > 1) {
+            if (heightOf(node.left.left) < heightOf(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (balance < -1) {
+            if (heightOf(node.right.right) < heightOf(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    /**
+     * Rotates a node down to the right, lifting its left child into its place.
+     *
+     * @param node the node to rotate
+     * @return the new root of the subtree
+     */
+    private static Node rotateRight(Node node) {
+        Node lifted = node.left;
+        node.left = lifted.right;
+        lifted.right = node;
+        update(node);
+        update(lifted);
+        return lifted;
+    }
+
+    /**
+     * Rotates a node down to the left, lifting its right child into its place.
+     *
+     * @param node the node to rotate
+     * @return the new root of the subtree
+     */
+    private static Node rotateLeft(Node node) {
+        Node lifted = node.right;
+        node.right = lifted.left;
+        lifted.left = node;
+        update(node);
+        update(lifted);
+        return lifted;
+    }
+
+    /**
+     * Recomputes the height and latest end date of a node from its children.
+     *
+     * @param node the node to update
+     */
+    private static void update(Node node) {
+        node.height = 1 + Math.max(heightOf(node.left), heightOf(node.right));
+        node.maxEnd = node.end;
+        if (node.left != null) {
+            node.maxEnd = Math.max(node.maxEnd, node.left.maxEnd);
+        }
+        if (node.right != null) {
+            node.maxEnd = Math.max(node.maxEnd, node.right.maxEnd);
+        }
+    }
+
+    private static int heightOf(Node node) {
+        return node == null ? 0 : node.height;
+    }
+}
@@ -0,0 +1,112 @@
+package ryuji.task;
+
+/**
+ * Bitmaps of the IDs of the tasks of each status and type, which answer a {@link TaskFilter}.
+ * <p>One {@link IdBitmap} holds every task, one the done tasks, and one each the to-dos, deadlines and events.
+ * "Open deadlines" are then the deadlines that are not done, and "done events" the events that are, found by
+ * combining two bitmaps instead of checking every task. A single task is checked against a filter by looking
+ * its ID up in at most two bitmaps, so filtering the results of a search takes time in proportion to the
+ * number of results.</p>
+ */
+final class FilterIndex {
+
+    /** The IDs of every task. */
+    private final IdBitmap all = new IdBitmap();
+
+    /** The IDs of the tasks marked as done. */
+    private final IdBitmap done = new IdBitmap();
+
+    /** The IDs of the tasks of each type, by {@link TaskFilter.Type#ordinal()}. */
+    private final IdBitmap[] byType = new IdBitmap[TaskFilter.Type.values().length];
+
+    /**
+     * Constructs a {@code FilterIndex} of the given tasks.
+     *
+     * @param tasks the tasks to index
+     */
+    FilterIndex(Iterable<Task> tasks) {
+        for (int i = 0; i < byType.length; i++) {
+            byType[i] = new IdBitmap();
+        }
+        for (Task task : tasks) {
+            add(task);
+        }
+    }
+
+    /**
+     * Adds a task under its status and type.
+     *
+     * @param task the task to add
+     */
+    void add(Task task) {
+        all.add(task.getId());
+        byType[TaskFilter.Type.of(task).ordinal()].add(task.getId());
+        setDone(task.getId(), task.isMarked());
+    }
+
+    /**
+     * Removes a task from under its status and type.
+     *
+     * @param task the task to remove
+     */
+    void remove(Task task) {
+        all.remove(task.getId());
+        done.remove(task.getId());
+        byType[TaskFilter.Type.of(task).ordinal()].remove(task.getId());
+    }
+
+    /**
+     * Records that a task has been marked or unmarked.
+     *
+     * @param id     the ID of the task
+     * @param isDone whether the task is now marked as done
+     */
+    void setDone(int id, boolean isDone) {
+        if (isDone) {
+            done.add(id);
+        } else {
+            done.remove(id);
+        }
+    }
+
+    /**
+     * Finds the tasks that pass a filter.
+     *
+     * @param filter the filter
+     * @return the IDs of the tasks that pass, in increasing order
+     */
+    int[] find(TaskFilter filter) {
+        IdBitmap ofType = filter.getType() == null ? all : byType[filter.getType().ordinal()];
+        if (filter.getStatus() == null) {
+            return ofType.toArray();
+        }
+        return filter.getStatus() == TaskFilter.Status.DONE ? ofType.and(done) : ofType.andNot(done);
+    }
+
+    /**
+     * Checks whether a task passes a filter, by looking its ID up in the bitmaps.
+     *
+     * @param id     the ID of the task
+     * @param filter the filter
+     * @return {@code true} if the task passes
+     */
+    boolean matches(int id, TaskFilter filter) {
+        if (filter.getType() != null && !byType[filter.getType().ordinal()].contains(id)) {
+            return false;
+        }
+        return filter.getStatus() == null || done.contains(id) == (filter.getStatus() == TaskFilter.Status.DONE);
+    }
+
+    /**
+     * Estimates the memory taken by the bitmaps, in bytes.
+     *
+     * @return the estimated size of the index
+     */
+    long estimateMemoryBytes() {
+        long bytes = all.estimateMemoryBytes() + done.estimateMemoryBytes();
+        for (IdBitmap ofType : byType) {
+            bytes += ofType.estimateMemoryBytes();
+        }
+        return bytes;
+    }
+}
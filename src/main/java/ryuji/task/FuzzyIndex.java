@@ -0,0 +1,340 @@
+package ryuji.task;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * An index of the words in task labels that finds the words within a few typos of a search term.
+ * <p>Labels are split into lower-cased words of letters and digits, and every distinct word is kept once,
+ * with the IDs of the tasks using it. The words are arranged in BK-trees, one for each word length: each
+ * child of a word hangs under its edit distance from that word, so by the triangle inequality a search only
+ * has to visit the children whose distance is within the allowed number of typos of the search term's own
+ * distance from the word. Since words whose lengths differ by more than the allowed number of typos can never
+ * be close enough, only the trees of nearby lengths are searched at all.</p>
+ * <p>Words with digits in them, such as "cs2103" or "item7", are not put in any tree and only match when spelt
+ * exactly: one digit off is usually a different thing rather than a typo, and many such words of the same
+ * length differ only in their digits, which would leave the trees too crowded to prune.</p>
+ * <p>Edit distance is the Levenshtein distance: the number of characters inserted, deleted or replaced.
+ * BK-trees cannot drop a word cheaply, so a word stays in the tree after its last task is deleted, with no
+ * IDs left, and is reused if the word comes back.</p>
+ */
+final class FuzzyIndex {
+
+    /** Search terms of up to this many characters allow one typo, and longer ones allow two. */
+    private static final int SHORT_WORD_LENGTH = 5;
+
+    /** Search terms shorter than this must be spelt exactly, as a typo would leave too little of the word. */
+    private static final int MIN_FUZZY_LENGTH = 3;
+
+    /** The tree node of every word seen, keyed by the word. */
+    private final Map<String, Node> words = new HashMap<>();
+
+    /** The root of the tree of words of each length, indexed by the length, with null for lengths not seen. */
+    private Node[] roots = new Node[16];
+
+    /**
+     * A word in a BK-tree together with the IDs of the tasks that use it.
+     */
+    private static final class Node {
+
+        /** The word. */
+        private final String word;
+
+        /** The IDs of the tasks whose label has the word. */
+        private final PostingList ids = new PostingList();
+
+        /** The children of the word, indexed by their edit distance from it, or null until it has any. */
+        private Node[] children;
+
+        private Node(String word) {
+            this.word = word;
+        }
+    }
+
+    /**
+     * Constructs a {@code FuzzyIndex} of the given tasks.
+     *
+     * @param tasks the tasks to index
+     */
+    FuzzyIndex(Iterable<Task> tasks) {
+        for (Task task : tasks) {
+            add(task);
+        }
+    }
+
+    /**
+     * Adds a task under every word of its label.
+     *
+     * @param task the task to add
+     */
+    void add(Task task) {
+        for (String word : splitWords(task.getLabel())) {
+            Node node = words.get(word);
+            if (node == null) {
+                node = new Node(word);
+                words.put(word, node);
+                if (!hasDigit(word)) {
+                    insert(node);
+                }
+            }
+            node.ids.add(task.getId());
+        }
+    }
+
+    /**
+     * Removes a task from under every word of its label.
+     *
+     * @param task the task to remove
+     */
+    void remove(Task task) {
+        for (String word : splitWords(task.getLabel())) {
+            Node node = words.get(word);
+            if (node != null) {
+                node.ids.remove(task.getId());
+            }
+        }
+    }
+
+    /**
+     * Finds the tasks that have a word close to every word of the search term.
+     * <p>Each word of the search term is allowed {@link #maxDistanceOf one or two typos}, depending on its
+     * length. A task's distance is the sum, over the words of the search term, of the distance to the closest
+     * word in its label.</p>
+     *
+     * @param searchTerm the words to search for
+     * @return the IDs of the matching tasks in increasing order, each packed into the upper half of a
+     *         {@code long} above its distance
+     */
+    long[] find(String searchTerm) {
+        long[] matches = null;
+        for (String word : splitWords(searchTerm)) {
+            long[] wordMatches = findWord(word);
+            matches = matches == null ? wordMatches : intersect(matches, wordMatches);
+            if (matches.length == 0) {
+                break;
+            }
+        }
+        return matches == null ? new long[0] : matches;
+    }
+
+    /**
+     * Returns the number of distinct words in the index, including words no task uses any more.
+     *
+     * @return the number of words
+     */
+    int getWordCount() {
+        return words.size();
+    }
+
+    /**
+     * Returns the number of typos a word of the search term may have.
+     *
+     * @param word a word of the search term
+     * @return the largest edit distance at which a word in a label still matches it, or 0 if it must be
+     *         spelt exactly
+     */
+    private static int maxDistanceOf(String word) {
+        if (word.length() < MIN_FUZZY_LENGTH || hasDigit(word)) {
+            return 0;
+        }
+        return word.length() <= SHORT_WORD_LENGTH ? 1 : 2;
+    }
+
+    /**
+     * Splits text into lower-cased words of letters and digits, the way labels are indexed.
+     *
+     * @param text the text to split
+     * @return the words, in order, possibly with repeats
+     */
+    private static List<String> splitWords(String text) {
+        String lowerCase = text.toLowerCase(Locale.ROOT);
+        List<String> words = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= lowerCase.length(); i++) {
+            boolean isWordChar = i < lowerCase.length() && Character.isLetterOrDigit(lowerCase.charAt(i));
+            if (isWordChar && start < 0) {
+                start = i;
+            } else if (!isWordChar && start >= 0) {
+                words.add(lowerCase.substring(start, i));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Checks whether a word has a digit in it, so that it is only matched when spelt exactly.
+     *
+     * @param word the word to check
+     * @return {@code true} if any character of the word is a digit
+     */
+    private static boolean hasDigit(String word) {
+        for (int i = 0; i < word.length(); i++) {
+            if (Character.isDigit(word.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds a new word to the tree of its length.
+     *
+     * @param node the node of the word
+     */
+    private void insert(Node node) {
+        int length = node.word.length();
+        if (length >= roots.length) {
+            roots = Arrays.copyOf(roots, Math.max(length + 1, roots.length * 2));
+        }
+        if (roots[length] == null) {
+            roots[length] = node;
+            return;
+        }
+        int[][] rows = new int[2][length + 1];
+        Node parent = roots[length];
+        while (true) {
+            int distance = distance(parent.word, node.word, rows);
+            if (parent.children == null) {
+                // words of the same length differ in at most that many characters
+                parent.children = new Node[length + 1];
+            }
+            Node child = parent.children[distance];
+            if (child == null) {
+                parent.children[distance] = node;
+                return;
+            }
+            parent = child;
+        }
+    }
+
+    /**
+     * Finds the tasks with a word close to one word of the search term.
+     *
+     * @param word a word of the search term
+     * @return the IDs of the matching tasks in increasing order, packed above their distance
+     */
+    private long[] findWord(String word) {
+        if (hasDigit(word)) {
+            Node node = words.get(word);
+            int size = node == null ? 0 : node.ids.size();
+            long[] matches = new long[size];
+            for (int i = 0; i < size; i++) {
+                matches[i] = (long) node.ids.get(i) << 32;
+            }
+            return matches;
+        }
+
+        int maxDistance = maxDistanceOf(word);
+        int minLength = Math.max(1, word.length() - maxDistance);
+        int maxLength = Math.min(roots.length - 1, word.length() + maxDistance);
+        int[][] rows = new int[2][Math.max(word.length(), maxLength) + 1];
+
+        long[] matches = new long[16];
+        int count = 0;
+        int closeWords = 0;
+        Deque<Node> pending = new ArrayDeque<>();
+        for (int length = minLength; length <= maxLength; length++) {
+            if (roots[length] != null) {
+                pending.push(roots[length]);
+            }
+        }
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            int distance = distance(word, node.word, rows);
+            if (distance <= maxDistance && node.ids.size() > 0) {
+                closeWords++;
+                PostingList ids = node.ids;
+                if (count + ids.size() > matches.length) {
+                    matches = Arrays.copyOf(matches, Math.max(count + ids.size(), matches.length * 2));
+                }
+                for (int i = 0; i < ids.size(); i++) {
+                    matches[count++] = ((long) ids.get(i) << 32) | distance;
+                }
+            }
+            if (node.children == null) {
+                continue;
+            }
+            int from = Math.max(0, distance - maxDistance);
+            int to = Math.min(node.children.length - 1, distance + maxDistance);
+            for (int i = from; i <= to; i++) {
+                if (node.children[i] != null) {
+                    pending.push(node.children[i]);
+                }
+            }
+        }
+
+        if (closeWords <= 1) {
+            return Arrays.copyOf(matches, count);
+        }
+        // a task may have several close words, so keep only its closest one, which sorts first
+        Arrays.sort(matches, 0, count);
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            if (kept == 0 || matches[kept - 1] >>> 32 != matches[i] >>> 32) {
+                matches[kept++] = matches[i];
+            }
+        }
+        return Arrays.copyOf(matches, kept);
+    }
+
+    /**
+     * Keeps the tasks found for both of two words of the search term, adding up their distances.
+     *
+     * @param first  the matches of the first word, in increasing order of ID
+     * @param second the matches of the second word, in increasing order of ID
+     * @return the tasks in both, in increasing order of ID, with the sum of their distances
+     */
+    private static long[] intersect(long[] first, long[] second) {
+        long[] both = new long[Math.min(first.length, second.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < second.length) {
+            long firstId = first[i] >>> 32;
+            long secondId = second[j] >>> 32;
+            if (firstId < secondId) {
+                i++;
+            } else if (firstId > secondId) {
+                j++;
+            } else {
+                both[count++] = first[i++] + (int) second[j++];
+            }
+        }
+        return Arrays.copyOf(both, count);
+    }
+
+    /**
+     * Computes the Levenshtein distance between two words, reusing the given rows to avoid allocating.
+     *
+     * @param source the first word
+     * @param target the second word
+     * @param rows   two rows at least one longer than {@code target}
+     * @return the number of characters inserted, deleted or replaced to turn one word into the other
+     */
+    private static int distance(String source, String target, int[][] rows) {
+        int[] previous = rows[0];
+        int[] current = rows[1];
+        for (int j = 0; j <= target.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= source.length(); i++) {
+            current[0] = i;
+            char sourceChar = source.charAt(i - 1);
+            for (int j = 1; j <= target.length(); j++) {
+                int replace = previous[j - 1] + (sourceChar == target.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(replace, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[target.length()];
+    }
+}
@@ -0,0 +1,307 @@
+package ryuji.task;
+
+import java.util.Arrays;
+
+/**
+ * A compressed set of task IDs, split into chunks in the manner of a Roaring bitmap.
+ * <p>IDs are grouped by their upper 16 bits into chunks of 65536 IDs, and each chunk is stored in the form
+ * that suits how full it is: a sorted array of the lower 16 bits while it holds at most 4096 IDs, two bytes per
+ * ID, or a plain bitmap of 8 KB once it holds more, one bit per possible ID. A sparse set, such as the few
+ * events in a list of to-dos, therefore takes little more than its IDs, and a dense one takes one bit per ID
+ * rather than a reference per task.</p>
+ * <p>Two sets are intersected chunk by chunk, only for the chunks both have: two bitmaps are combined a 64-bit
+ * word at a time, and an array is checked against the other chunk one ID at a time.</p>
+ */
+final class IdBitmap {
+
+    /** The most IDs a chunk holds as a sorted array before it is turned into a bitmap. */
+    private static final int MAX_ARRAY_SIZE = 4096;
+
+    /** The number of 64-bit words in the bitmap of a chunk. */
+    private static final int BITMAP_WORDS = 1024;
+
+    /** The upper 16 bits of the IDs of each chunk, in increasing order; the first {@link #chunkCount} are used. */
+    private int[] keys = new int[4];
+
+    /** The chunk for each key. */
+    private Chunk[] chunks = new Chunk[4];
+
+    /** The number of chunks in use. */
+    private int chunkCount;
+
+    /**
+     * The IDs of a set that share their upper 16 bits, kept as either a sorted array or a bitmap of their lower
+     * 16 bits.
+     */
+    private static final class Chunk {
+
+        /** The lower bits in increasing order, of which the first {@link #size} are used, or null in bitmap form. */
+        private char[] values;
+
+        /** One bit for each of the 65536 possible lower bits, or null in array form. */
+        private long[] bits;
+
+        /** The number of IDs in the chunk. */
+        private int size;
+
+        private Chunk() {
+            values = new char[4];
+        }
+
+        private boolean contains(char low) {
+            if (bits != null) {
+                return (bits[low >>> 6] & (1L << low)) != 0;
+            }
+            return Arrays.binarySearch(values, 0, size, low) >= 0;
+        }
+
+        private void add(char low) {
+            if (bits != null) {
+                long before = bits[low >>> 6];
+                bits[low >>> 6] = before | (1L << low);
+                if (before != bits[low >>> 6]) {
+                    size++;
+                }
+                return;
+            }
+            int slot = Arrays.binarySearch(values, 0, size, low);
+            if (slot >= 0) {
+                return;
+            }
+            slot = -slot - 1;
+            if (size == MAX_ARRAY_SIZE) {
+                toBitmap();
+                add(low);
+                return;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, Math.min(MAX_ARRAY_SIZE, size * 2));
+            }
+            System.arraycopy(values, slot, values, slot + 1, size - slot);
+            values[slot] = low;
+            size++;
+        }
+
+        private void remove(char low) {
+            if (bits != null) {
+                long before = bits[low >>> 6];
+                bits[low >>> 6] = before & ~(1L << low);
+                if (before != bits[low >>> 6]) {
+                    size--;
+                    // turned back only well below the limit, so IDs added and removed at the limit do not
+                    // turn the chunk back and forth
+                    if (size <= MAX_ARRAY_SIZE / 2) {
+                        toArray();
+                    }
+                }
+                return;
+            }
+            int slot = Arrays.binarySearch(values, 0, size, low);
+            if (slot >= 0) {
+                System.arraycopy(values, slot + 1, values, slot, size - slot - 1);
+                size--;
+            }
+        }
+
+        private void toBitmap() {
+            bits = new long[BITMAP_WORDS];
+            for (int i = 0; i < size; i++) {
+                bits[values[i] >>> 6] |= 1L << values[i];
+            }
+            values = null;
+        }
+
+        private void toArray() {
+            values = new char[Math.max(4, size)];
+            int next = 0;
+            for (int word = 0; word < BITMAP_WORDS; word++) {
+                for (long remaining = bits[word]; remaining != 0; remaining &= remaining - 1) {
+                    values[next++] = (char) ((word << 6) + Long.numberOfTrailingZeros(remaining));
+                }
+            }
+            bits = null;
+        }
+
+        /**
+         * Adds the IDs this chunk shares with another chunk, or does not share with it, to an array.
+         *
+         * @param other     the other chunk, or null if the other set has no chunk for these IDs
+         * @param isShared  {@code true} to add the IDs in both chunks, {@code false} to add those only in this one
+         * @param high      the upper 16 bits of the IDs, already shifted into place
+         * @param ids       the array to add the IDs to
+         * @param next      the index of {@code ids} to add the first ID at
+         * @return the index after the last ID added
+         */
+        private int collect(Chunk other, boolean isShared, int high, int[] ids, int next) {
+            if (bits != null && other != null && other.bits != null) {
+                for (int word = 0; word < BITMAP_WORDS; word++) {
+                    long remaining = isShared ? bits[word] & other.bits[word] : bits[word] & ~other.bits[word];
+                    for (; remaining != 0; remaining &= remaining - 1) {
+                        ids[next++] = high | (word << 6) + Long.numberOfTrailingZeros(remaining);
+                    }
+                }
+                return next;
+            }
+            if (bits != null) {
+                for (int word = 0; word < BITMAP_WORDS; word++) {
+                    for (long remaining = bits[word]; remaining != 0; remaining &= remaining - 1) {
+                        char low = (char) ((word << 6) + Long.numberOfTrailingZeros(remaining));
+                        if ((other != null && other.contains(low)) == isShared) {
+                            ids[next++] = high | low;
+                        }
+                    }
+                }
+                return next;
+            }
+            for (int i = 0; i < size; i++) {
+                if ((other != null && other.contains(values[i])) == isShared) {
+                    ids[next++] = high | values[i];
+                }
+            }
+            return next;
+        }
+
+        private long estimateMemoryBytes() {
+            return bits != null ? 16 + 8L * bits.length : 16 + 2L * values.length;
+        }
+    }
+
+    /**
+     * Adds an ID to the set, if it is not already in it.
+     *
+     * @param id the ID to add, greater than 0
+     */
+    void add(int id) {
+        int slot = findChunk(id >>> 16);
+        if (slot < 0) {
+            slot = -slot - 1;
+            if (chunkCount == keys.length) {
+                keys = Arrays.copyOf(keys, chunkCount * 2);
+                chunks = Arrays.copyOf(chunks, chunkCount * 2);
+            }
+            System.arraycopy(keys, slot, keys, slot + 1, chunkCount - slot);
+            System.arraycopy(chunks, slot, chunks, slot + 1, chunkCount - slot);
+            keys[slot] = id >>> 16;
+            chunks[slot] = new Chunk();
+            chunkCount++;
+        }
+        chunks[slot].add((char) id);
+    }
+
+    /**
+     * Removes an ID from the set, if it is in it.
+     *
+     * @param id the ID to remove
+     */
+    void remove(int id) {
+        int slot = findChunk(id >>> 16);
+        if (slot < 0) {
+            return;
+        }
+        Chunk chunk = chunks[slot];
+        chunk.remove((char) id);
+        if (chunk.size == 0) {
+            System.arraycopy(keys, slot + 1, keys, slot, chunkCount - slot - 1);
+            System.arraycopy(chunks, slot + 1, chunks, slot, chunkCount - slot - 1);
+            chunkCount--;
+            chunks[chunkCount] = null;
+        }
+    }
+
+    /**
+     * Checks whether an ID is in the set.
+     *
+     * @param id the ID to look for
+     * @return {@code true} if the ID is in the set
+     */
+    boolean contains(int id) {
+        int slot = findChunk(id >>> 16);
+        return slot >= 0 && chunks[slot].contains((char) id);
+    }
+
+    /**
+     * Returns the number of IDs in the set.
+     *
+     * @return the number of IDs
+     */
+    int size() {
+        int size = 0;
+        for (int i = 0; i < chunkCount; i++) {
+            size += chunks[i].size;
+        }
+        return size;
+    }
+
+    /**
+     * Returns the IDs in both this set and another, in increasing order.
+     *
+     * @param other the other set
+     * @return the IDs in both sets
+     */
+    int[] and(IdBitmap other) {
+        return combine(other, true);
+    }
+
+    /**
+     * Returns the IDs in this set that are not in another, in increasing order.
+     *
+     * @param other the other set
+     * @return the IDs only in this set
+     */
+    int[] andNot(IdBitmap other) {
+        return combine(other, false);
+    }
+
+    /**
+     * Returns the IDs in the set, in increasing order.
+     *
+     * @return every ID in the set
+     */
+    int[] toArray() {
+        return combine(new IdBitmap(), false);
+    }
+
+    /**
+     * Estimates the memory taken by the set, in bytes.
+     *
+     * @return the estimated size of the set
+     */
+    long estimateMemoryBytes() {
+        long bytes = 16 + 16 + 4L * keys.length + 16 + 4L * chunks.length;
+        for (int i = 0; i < chunkCount; i++) {
+            bytes += chunks[i].estimateMemoryBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Combines the set with another, chunk by chunk.
+     *
+     * @param other    the other set
+     * @param isShared {@code true} for the IDs in both sets, {@code false} for those only in this one
+     * @return the IDs of the combination, in increasing order
+     */
+    private int[] combine(IdBitmap other, boolean isShared) {
+        int[] ids = new int[size()];
+        int next = 0;
+        for (int i = 0; i < chunkCount; i++) {
+            int otherSlot = other.findChunk(keys[i]);
+            Chunk otherChunk = otherSlot >= 0 ? other.chunks[otherSlot] : null;
+            if (isShared && otherChunk == null) {
+                continue;
+            }
+            next = chunks[i].collect(otherChunk, isShared, keys[i] << 16, ids, next);
+        }
+        return Arrays.copyOf(ids, next);
+    }
+
+    /**
+     * Finds the slot of the chunk for the given upper bits.
+     *
+     * @param key the upper 16 bits of an ID
+     * @return the slot of the chunk, or {@code -(insertion point) - 1} if there is none
+     */
+    private int findChunk(int key) {
+        return Arrays.binarySearch(keys, 0, chunkCount, key);
+    }
+}
@@ -0,0 +1,46 @@
+package ryuji.task;
+
+/**
+ * A pool that lets tasks with the same label, or the same date written as text, share one {@code String}.
+ * <p>Task lists repeat themselves: a weekly "submit weekly report" to-do or a deadline "/by Sunday 6pm" is
+ * read from its own line of the task file each time, so every copy would otherwise keep its own string.
+ * {@link #pool(String)} hands back the string the pool already holds when it holds an equal one, so the
+ * copy read from the file can be dropped.</p>
+ * <p>The pool is a fixed array of slots picked by hash, and a string that lands in a taken slot replaces the
+ * one there. Its memory therefore stays the same however many distinct labels pass through it, and labels
+ * that appear once cost nothing after they are pushed out, at the price of sometimes missing a repeat whose
+ * slot was taken in between. Slots are read and written without locking, since tasks are parsed on several
+ * threads at once: a thread may miss a string another thread has just pooled, which only costs a copy,
+ * and strings are immutable, so a thread never sees a half-written one.</p>
+ */
+final class LabelPool {
+
+    /** The number of slots, a power of two so that a slot can be picked with a mask. */
+    private static final int SLOT_COUNT = 1 << 14;
+
+    /** The pooled strings, each in the slot picked by its hash, or null. */
+    private static final String[] slots = new String[SLOT_COUNT];
+
+    private LabelPool() {
+    }
+
+    /**
+     * Returns the pooled string equal to the given one, pooling the given one if there is none.
+     *
+     * @param text the label or date text, or null
+     * @return a string equal to {@code text}, shared with other tasks where possible, or null if it is null
+     */
+    static String pool(String text) {
+        if (text == null) {
+            return null;
+        }
+        int hash = text.hashCode();
+        int slot = (hash ^ (hash >>> 16)) & (SLOT_COUNT - 1);
+        String pooled = slots[slot];
+        if (text.equals(pooled)) {
+            return pooled;
+        }
+        slots[slot] = text;
+        return text;
+    }
+}
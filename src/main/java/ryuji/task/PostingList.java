@@ -0,0 +1,121 @@
+package ryuji.task;
+
+import java.util.Arrays;
+
+/**
+ * The IDs of the tasks filed under one key of an index, in increasing order.
+ * <p>IDs are kept in a plain {@code int} array rather than a collection of boxed integers, so that a list
+ * takes four bytes per task, and lists that are walked side by side can skip ahead with
+ * {@link #gallop(int, int)}.</p>
+ */
+final class PostingList {
+
+    /** The IDs, of which the first {@link #size} are used. */
+    private int[] ids = new int[2];
+
+    /** The number of IDs in the list. */
+    private int size;
+
+    /**
+     * Adds an ID, unless it is already in the list.
+     *
+     * @param id the ID to add
+     */
+    void add(int id) {
+        if (size > 0 && ids[size - 1] >= id) {
+            int slot = Arrays.binarySearch(ids, 0, size, id);
+            if (slot >= 0) {
+                return;
+            }
+            insert(-slot - 1, id);
+            return;
+        }
+        insert(size, id);
+    }
+
+    /**
+     * Removes an ID, if it is in the list.
+     *
+     * @param id the ID to remove
+     */
+    void remove(int id) {
+        int slot = Arrays.binarySearch(ids, 0, size, id);
+        if (slot >= 0) {
+            System.arraycopy(ids, slot + 1, ids, slot, size - slot - 1);
+            size--;
+        }
+    }
+
+    /**
+     * Returns the number of IDs in the list.
+     *
+     * @return the number of IDs
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the ID at an index of the list.
+     *
+     * @param index the index of the ID, less than {@link #size()}
+     * @return the ID
+     */
+    int get(int index) {
+        return ids[index];
+    }
+
+    /**
+     * Estimates the memory reserved for the IDs, including unused slots at the end of the array.
+     *
+     * @return the approximate size of the IDs in bytes
+     */
+    long estimateMemoryBytes() {
+        return 4L * ids.length;
+    }
+
+    /**
+     * Finds the first ID at or after a given index that is at least the given ID.
+     * <p>The search takes steps of doubling size from the starting index before searching the last step
+     * in halves, so walking a long list alongside a short one skips most of it.</p>
+     *
+     * @param from the index to start searching at
+     * @param id   the ID to search for
+     * @return the index of the first ID that is at least {@code id}, or {@link #size()} if there is none
+     */
+    int gallop(int from, int id) {
+        int low = from;
+        int high = from;
+        int step = 1;
+        while (high < size && ids[high] < id) {
+            low = high + 1;
+            high = from + step;
+            step <<= 1;
+        }
+        high = Math.min(high, size);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (ids[mid] < id) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Inserts an ID at the given index, growing the array if it is full.
+     *
+     * @param index the index to insert at
+     * @param id    the ID to insert
+     */
+    private void insert(int index, int id) {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+        }
+        System.arraycopy(ids, index, ids, index + 1, size - index);
+        ids[index] = id;
+        size++;
+    }
+}
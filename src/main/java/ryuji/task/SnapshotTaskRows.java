@@ -0,0 +1,310 @@
+package ryuji.task;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+
+/**
+ * A list of tasks that can be read from any number of threads while one thread changes it, without locking.
+ * <p>The tasks are held in a {@link Snapshot}, an immutable list made of chunks of at most a few hundred tasks.
+ * A change never touches a published snapshot: it copies the one chunk it changes, and the short array of
+ * chunks, into a new snapshot and then publishes that through a volatile field. A reader that takes
+ * {@link #snapshot()} keeps a list that never changes under it, however long it spends walking it, and the
+ * cost of a change grows with the number of chunks rather than the number of tasks, unlike a
+ * {@code CopyOnWriteArrayList}, which copies every task on every change.</p>
+ * <p>Changes are made one at a time; {@link #get} and {@link #size} each read the latest snapshot, so a
+ * reader that needs several of them to agree should take a snapshot first. Iterating always walks the
+ * snapshot that was latest when the iteration started.</p>
+ */
+public final class SnapshotTaskRows extends AbstractList<Task> implements RandomAccess {
+
+    /** The number of tasks a chunk is filled to when tasks are added at the end. */
+    private static final int CHUNK_SIZE = 256;
+
+    /** The latest snapshot, replaced by every change. */
+    private volatile Snapshot current;
+
+    /**
+     * An immutable list of tasks held in chunks.
+     * <p>The chunk holding a position is found by a binary search of the running totals of the chunk sizes.
+     * Every method that would change it throws {@code UnsupportedOperationException}.</p>
+     */
+    private static final class Snapshot extends AbstractList<Task> implements RandomAccess {
+
+        private static final Snapshot EMPTY = new Snapshot(new Task[0][], new int[0]);
+
+        /** The chunks of tasks, in list order. None of them is empty. */
+        private final Task[][] chunks;
+
+        /** The number of tasks in each chunk and all chunks before it. */
+        private final int[] ends;
+
+        private Snapshot(Task[][] chunks, int[] ends) {
+            this.chunks = chunks;
+            this.ends = ends;
+        }
+
+        /**
+         * Finds the chunk holding a position.
+         *
+         * @param index the 0-based position, which must be in the list
+         * @return the index of the chunk
+         */
+        private int chunkOf(int index) {
+            int low = 0;
+            int high = ends.length - 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (ends[mid] <= index) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private int startOf(int chunk) {
+            return chunk == 0 ? 0 : ends[chunk - 1];
+        }
+
+        @Override
+        public Task get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+            }
+            int chunk = chunkOf(index);
+            return chunks[chunk][index - startOf(chunk)];
+        }
+
+        @Override
+        public int size() {
+            return ends.length == 0 ? 0 : ends[ends.length - 1];
+        }
+
+        /**
+         * Returns a copy of this snapshot with one chunk replaced by any number of chunks, dropping any that
+         * are empty.
+         *
+         * @param chunk       the index of the chunk to replace
+         * @param replacement the chunks to put in its place
+         * @return the new snapshot
+         */
+        private Snapshot replaceChunk(int chunk, Task[]... replacement) {
+            int kept = 0;
+            for (Task[] part : replacement) {
+                if (part.length > 0) {
+                    kept++;
+                }
+            }
+            int count = chunks.length - 1 + kept;
+            Task[][] newChunks = new Task[count][];
+            System.arraycopy(chunks, 0, newChunks, 0, chunk);
+            int next = chunk;
+            for (Task[] part : replacement) {
+                if (part.length > 0) {
+                    newChunks[next++] = part;
+                }
+            }
+            System.arraycopy(chunks, chunk + 1, newChunks, next, chunks.length - chunk - 1);
+            return withChunks(newChunks);
+        }
+
+        /**
+         * Builds a snapshot of the given chunks, working out the running totals of their sizes.
+         *
+         * @param chunks the chunks, none of them empty
+         * @return the snapshot
+         */
+        private static Snapshot withChunks(Task[][] chunks) {
+            int[] ends = new int[chunks.length];
+            int total = 0;
+            for (int i = 0; i < chunks.length; i++) {
+                total += chunks[i].length;
+                ends[i] = total;
+            }
+            return new Snapshot(chunks, ends);
+        }
+    }
+
+    /**
+     * Constructs an empty {@code SnapshotTaskRows}.
+     */
+    public SnapshotTaskRows() {
+        current = Snapshot.EMPTY;
+    }
+
+    /**
+     * Constructs a {@code SnapshotTaskRows} holding the given tasks, in order.
+     *
+     * @param tasks the tasks to hold
+     */
+    public SnapshotTaskRows(Collection<? extends Task> tasks) {
+        current = Snapshot.EMPTY;
+        addAll(tasks);
+    }
+
+    /**
+     * Returns the tasks as they are now, as a list that later changes do not affect.
+     *
+     * @return an immutable list of the tasks
+     */
+    public List<Task> snapshot() {
+        return current;
+    }
+
+    @Override
+    public Task get(int index) {
+        return current.get(index);
+    }
+
+    @Override
+    public int size() {
+        return current.size();
+    }
+
+    @Override
+    public synchronized Task set(int index, Task task) {
+        Snapshot snapshot = current;
+        Task previous = snapshot.get(index);
+        int chunk = snapshot.chunkOf(index);
+        Task[] copy = snapshot.chunks[chunk].clone();
+        copy[index - snapshot.startOf(chunk)] = task;
+        current = snapshot.replaceChunk(chunk, copy);
+        return previous;
+    }
+
+    /**
+     * Adds a task at a position.
+     * <p>A task added at the end goes into the last chunk until it is full and then starts a new one. A task
+     * added anywhere else goes into the chunk holding that position, which is split in two once it holds
+     * twice as many tasks as a full chunk.</p>
+     */
+    @Override
+    public synchronized void add(int index, Task task) {
+        Snapshot snapshot = current;
+        if (index < 0 || index > snapshot.size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + snapshot.size());
+        }
+        if (index == snapshot.size()) {
+            int last = snapshot.chunks.length - 1;
+            if (last < 0 || snapshot.chunks[last].length >= CHUNK_SIZE) {
+                Task[][] chunks = Arrays.copyOf(snapshot.chunks, last + 2);
+                chunks[last + 1] = new Task[] {task};
+                current = Snapshot.withChunks(chunks);
+            } else {
+                Task[] grown = Arrays.copyOf(snapshot.chunks[last], snapshot.chunks[last].length + 1);
+                grown[grown.length - 1] = task;
+                current = snapshot.replaceChunk(last, grown);
+            }
+            modCount++;
+            return;
+        }
+        int chunk = snapshot.chunkOf(index);
+        Task[] old = snapshot.chunks[chunk];
+        int offset = index - snapshot.startOf(chunk);
+        Task[] grown = new Task[old.length + 1];
+        System.arraycopy(old, 0, grown, 0, offset);
+        grown[offset] = task;
+        System.arraycopy(old, offset, grown, offset + 1, old.length - offset);
+        if (grown.length > 2 * CHUNK_SIZE) {
+            int half = grown.length / 2;
+            current = snapshot.replaceChunk(chunk, Arrays.copyOfRange(grown, 0, half),
+                    Arrays.copyOfRange(grown, half, grown.length));
+        } else {
+            current = snapshot.replaceChunk(chunk, grown);
+        }
+        modCount++;
+    }
+
+    /**
+     * Adds tasks at the end, publishing them all in one new snapshot.
+     * <p>The last chunk is topped up to a full chunk and the rest of the tasks go into new full chunks.</p>
+     */
+    @Override
+    public synchronized boolean addAll(Collection<? extends Task> tasks) {
+        if (tasks.isEmpty()) {
+            return false;
+        }
+        Task[] added = tasks.toArray(new Task[0]);
+        Snapshot snapshot = current;
+        int last = snapshot.chunks.length - 1;
+        int lastLength = last < 0 ? CHUNK_SIZE : snapshot.chunks[last].length;
+        int topUp = Math.min(added.length, CHUNK_SIZE - Math.min(lastLength, CHUNK_SIZE));
+        int newChunks = (added.length - topUp + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        Task[][] chunks = Arrays.copyOf(snapshot.chunks, snapshot.chunks.length + newChunks);
+        if (topUp > 0) {
+            Task[] grown = Arrays.copyOf(chunks[last], lastLength + topUp);
+            System.arraycopy(added, 0, grown, lastLength, topUp);
+            chunks[last] = grown;
+        }
+        for (int i = 0; i < newChunks; i++) {
+            int from = topUp + i * CHUNK_SIZE;
+            chunks[snapshot.chunks.length + i] = Arrays.copyOfRange(added, from,
+                    Math.min(from + CHUNK_SIZE, added.length));
+        }
+        current = Snapshot.withChunks(chunks);
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Removes the task at a position.
+     * <p>A chunk left with fewer than a quarter of a full chunk is merged with the chunk after it if the two
+     * fit in one, so that deletes do not leave the list in many tiny chunks.</p>
+     */
+    @Override
+    public synchronized Task remove(int index) {
+        Snapshot snapshot = current;
+        Task removed = snapshot.get(index);
+        int chunk = snapshot.chunkOf(index);
+        Task[] old = snapshot.chunks[chunk];
+        int offset = index - snapshot.startOf(chunk);
+        Task[] shrunk = new Task[old.length - 1];
+        System.arraycopy(old, 0, shrunk, 0, offset);
+        System.arraycopy(old, offset + 1, shrunk, offset, shrunk.length - offset);
+        boolean hasNext = chunk + 1 < snapshot.chunks.length;
+        if (shrunk.length < CHUNK_SIZE / 4 && hasNext
+                && shrunk.length + snapshot.chunks[chunk + 1].length <= CHUNK_SIZE) {
+            Task[] next = snapshot.chunks[chunk + 1];
+            Task[] merged = Arrays.copyOf(shrunk, shrunk.length + next.length);
+            System.arraycopy(next, 0, merged, shrunk.length, next.length);
+            current = snapshot.replaceChunk(chunk, merged).replaceChunk(chunk + 1);
+        } else {
+            current = snapshot.replaceChunk(chunk, shrunk);
+        }
+        modCount++;
+        return removed;
+    }
+
+    @Override
+    public synchronized void clear() {
+        current = Snapshot.EMPTY;
+        modCount++;
+    }
+
+    @Override
+    public Iterator<Task> iterator() {
+        return current.iterator();
+    }
+
+    @Override
+    public ListIterator<Task> listIterator(int index) {
+        return current.listIterator(index);
+    }
+
+    @Override
+    public Spliterator<Task> spliterator() {
+        return current.spliterator();
+    }
+
+    @Override
+    public List<Task> subList(int fromIndex, int toIndex) {
+        return current.subList(fromIndex, toIndex);
+    }
+}
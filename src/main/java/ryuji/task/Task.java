@@ -20,16 +20,33 @@ public abstract class Task {
 
     /**
      * The textual description or label of the task.
+     * <p>Labels go through a {@link LabelPool}, so tasks with the same label usually share one string.</p>
      */
     protected String label;
 
+    /**
+     * The stable ID of the task, or 0 if it has not been given one yet.
+     * <p>IDs are handed out in increasing order as tasks are added and never change afterwards, so unlike
+     * positions they stay the same when tasks before them are deleted.</p>
+     */
+    private int id;
+
+    /**
+     * What {@link #toString()} returns, kept from the first time it is rendered so that showing the task again
+     * does not format its dates again, or null until then and after the task is marked or unmarked.
+     */
+    private String display;
+
+    /** What {@link #toCsvRow()} returns, kept in the same way as {@link #display} for saving the task again. */
+    private String csvRow;
+
     /**
      * Constructs a {@code Task} with the given label.
      *
      * @param label the task's label or description
      */
     Task(String label) {
-        this.label = label;
+        this.label = LabelPool.pool(label);
     }
 
     /**
@@ -39,7 +56,7 @@ public abstract class Task {
      * @param status the completion status (true if completed, false otherwise)
      */
     Task(String label, boolean status) {
-        this.label = label;
+        this.label = LabelPool.pool(label);
         this.isMarked = status;
     }
 
@@ -56,6 +73,8 @@ public abstract class Task {
      */
     public void mark() {
         isMarked = true;
+        display = null;
+        csvRow = null;
     }
 
     /**
@@ -63,6 +82,70 @@ public abstract class Task {
      */
     public void unmark() {
         isMarked = false;
+        display = null;
+        csvRow = null;
+    }
+
+    /**
+     * Returns a copy of the task with the given status, keeping its ID, for lists that must never change a task
+     * once other threads may be reading it.
+     * <p>Nothing the copy holds is shared with this task except immutable values, so marking one does not mark
+     * the other.</p>
+     *
+     * @param isMarked whether the copy is marked as completed
+     * @return the copy
+     */
+    public final Task withStatus(boolean isMarked) {
+        Task copy = copyWithStatus(isMarked);
+        if (id > 0) {
+            copy.setId(id);
+        }
+        return copy;
+    }
+
+    /**
+     * Builds a task of the same kind with the same label and dates, and the given status.
+     *
+     * @param isMarked whether the copy is marked as completed
+     * @return the copy, without an ID
+     */
+    abstract Task copyWithStatus(boolean isMarked);
+
+    /**
+     * Returns the label of the task, exactly as it was given.
+     *
+     * @return the task's label or description
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Returns the stable ID of the task.
+     *
+     * @return the task's ID, or 0 if it has not been given one yet
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Gives the task its stable ID. This is done once, when the task is first added or loaded.
+     *
+     * @param id the task's ID, greater than 0
+     */
+    public void setId(int id) {
+        assert id > 0 : "Task IDs must be greater than 0";
+        this.id = id;
+    }
+
+    /**
+     * Returns whether the task is marked as completed.
+     *
+     * @return {@code true} if the task is completed; {@code false} otherwise
+     */
+    public boolean isMarked() {
+        return isMarked;
     }
 
     /**
@@ -86,12 +169,28 @@ public abstract class Task {
     }
 
     /**
-     * Converts the task to a CSV-compatible string array for persistent storage.
+     * Converts the task to a CSV-compatible string for persistent storage.
+     * <p>The row is rendered by {@link #renderCsvRow()} the first time it is asked for and kept until the task is
+     * marked or unmarked, so rewriting the whole file reuses the rows of every task that has not changed.</p>
+     *
+     * @return a string representing the task's fields, formatted for CSV storage
+     */
+    public final String toCsvRow() {
+        String rendered = csvRow;
+        if (rendered == null) {
+            rendered = renderCsvRow();
+            csvRow = rendered;
+        }
+        return rendered;
+    }
+
+    /**
+     * Renders the task as a CSV row, as in "T,X,read book".
      * <p>This method must be implemented by subclasses to include task-specific fields (e.g., dates, description).</p>
      *
-     * @return a string array representing the task's fields, formatted for CSV storage
+     * @return a string representing the task's fields, formatted for CSV storage
      */
-    public abstract String toCsvRow();
+    abstract String renderCsvRow();
 
     /**
      * Creates a {@code Task} object from a CSV row.
@@ -123,13 +222,36 @@ public abstract class Task {
     }
 
     /**
-     * Returns a string representation of the task, including its status icon and label.
-     * <p>This method generates a simple string like: "[X] Task description" where X represents the completion status.</p>
+     * Returns a string representation of the task, as shown in the task list.
+     * <p>The string is rendered by {@link #renderDisplay()} the first time it is asked for and kept until the task
+     * is marked or unmarked, so listing the tasks again reuses the strings of every task that has not changed.</p>
      *
-     * @return the formatted string representing the task, including its status icon and label
+     * @return the formatted string representing the task
      */
     @Override
-    public String toString() {
+    public final String toString() {
+        String rendered = display;
+        if (rendered == null) {
+            rendered = renderDisplay();
+            display = rendered;
+        }
+        return rendered;
+    }
+
+    /**
+     * Renders the task as it is shown in the task list, as in "[T][X] read book".
+     *
+     * @return the formatted string representing the task
+     */
+    abstract String renderDisplay();
+
+    /**
+     * Returns the status icon and label of the task, which every kind of task shows after its type.
+     * <p>This generates a simple string like: "[X] Task description" where X represents the completion status.</p>
+     *
+     * @return the status icon and label of the task
+     */
+    String describeStatusAndLabel() {
         return "[" + getStatusIcon() + "] " + label;
     }
 }
@@ -0,0 +1,94 @@
+package ryuji.task;
+
+/**
+ * A filter on the status and type of tasks, such as "open deadlines" or "done events".
+ * <p>Either part may be left out, so a filter can also pick every done task, or every event whether done or
+ * not. A {@link TaskList} answers filters from bitmaps of the IDs of each status and type rather than by
+ * looking at every task; {@link #matches(Task)} checks a single task, for tasks that are not in a list.</p>
+ */
+public final class TaskFilter {
+
+    /**
+     * Whether a task has been completed.
+     */
+    public enum Status {
+        /** Not yet marked as done. */
+        OPEN,
+
+        /** Marked as done. */
+        DONE
+    }
+
+    /**
+     * The kind of a task.
+     */
+    public enum Type {
+        /** A {@link ToDo}. */
+        TODO,
+
+        /** A {@link Deadline}. */
+        DEADLINE,
+
+        /** An {@link Event}. */
+        EVENT;
+
+        /**
+         * Returns the type of a task.
+         *
+         * @param task the task
+         * @return the type of the task
+         */
+        static Type of(Task task) {
+            if (task instanceof Deadline) {
+                return DEADLINE;
+            }
+            return task instanceof Event ? EVENT : TODO;
+        }
+    }
+
+    /** The status tasks must have, or null if any status will do. */
+    private final Status status;
+
+    /** The type tasks must have, or null if any type will do. */
+    private final Type type;
+
+    /**
+     * Constructs a {@code TaskFilter} that picks the tasks with a status and a type.
+     *
+     * @param status the status tasks must have, or null for any status
+     * @param type   the type tasks must have, or null for any type
+     */
+    public TaskFilter(Status status, Type type) {
+        this.status = status;
+        this.type = type;
+    }
+
+    /**
+     * Returns the status tasks must have.
+     *
+     * @return the status, or null if any status will do
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Returns the type tasks must have.
+     *
+     * @return the type, or null if any type will do
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Checks whether a task has the status and type of the filter.
+     *
+     * @param task the task to check
+     * @return {@code true} if the task passes the filter
+     */
+    public boolean matches(Task task) {
+        boolean hasStatus = status == null || task.isMarked() == (status == Status.DONE);
+        return hasStatus && (type == null || Type.of(task) == type);
+    }
+}
@@ -1,6 +1,10 @@
 package ryuji.task;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 
@@ -19,37 +23,237 @@ import java.util.List;
  */
 public class TaskList {
 
+    /** The number of characters of rendered tasks {@link #writeTo} gathers before handing them to the writer. */
+    private static final int WRITE_CHUNK_CHARS = 8192;
+
     /**
      * The internal list that stores tasks.
      */
     private List<Task> tasks;
 
+    /**
+     * The ID the next added task will be given.
+     * <p>Tasks are kept in ID order, so on loading this is one more than the ID of the last task, or of the last
+     * ID storage reports as used if that is higher, so that the ID of a deleted newest task is not handed out
+     * again after a restart.</p>
+     */
+    private int nextId;
+
+    /**
+     * The index from label trigrams to task IDs that answers {@link #find}, or null until the first search.
+     * <p>It is built on the first search rather than when the list is loaded, so startup, and lazily loaded
+     * lists in particular, do not pay for it until it is needed. From then on it is kept up to date as tasks
+     * are added and deleted.</p>
+     */
+    private TrigramIndex trigramIndex;
+
+    /** The index of label words that answers {@link #findFuzzy}, or null until the first fuzzy search. */
+    private FuzzyIndex fuzzyIndex;
+
+    /** The index of due dates that answers {@link #findDueBefore} and {@link #findDueBetween}, or null until used. */
+    private DateIndex dateIndex;
+
+    /** The interval tree of events that answers {@link #findEventsDuring} and {@link #findClashes}, or null. */
+    private EventIndex eventIndex;
+
+    /** The bitmaps of each status and type that answer {@link #filter}, or null until the first filter. */
+    private FilterIndex filterIndex;
+
     /**
      * Constructs an empty {@code TaskList}.
      * <p>This constructor initializes the task list as an empty list.</p>
      */
     public TaskList() {
         this.tasks = new ArrayList<>();
+        this.nextId = 1;
     }
 
     /**
      * Constructs a {@code TaskList} with the specified list of tasks.
      *
+     * <p>The tasks are expected to be in ID order, as storage loads them.</p>
+     *
      * @param tasks the list of tasks to initialize the task list with
      */
     public TaskList(List<Task> tasks) {
+        this(tasks, 0);
+    }
+
+    /**
+     * Constructs a {@code TaskList} with the specified list of tasks, never handing out an ID up to the
+     * given one, such as the ID of a task that has been deleted or archived out of the list.
+     *
+     * <p>The tasks are expected to be in ID order, as storage loads them.</p>
+     *
+     * @param tasks      the list of tasks to initialize the task list with
+     * @param lastUsedId the highest ID already given to a task, in the list or not, or 0
+     */
+    public TaskList(List<Task> tasks, int lastUsedId) {
         this.tasks = tasks;
+        int lastId = tasks.isEmpty() ? 0 : idAt(tasks.size() - 1);
+        this.nextId = Math.max(lastId, lastUsedId) + 1;
     }
 
     public Task getTask(int position) {
         return tasks.get(position - 1);
     }
 
+    /**
+     * Returns the number of tasks in the list.
+     *
+     * @return the number of tasks
+     */
+    public int size() {
+        return tasks.size();
+    }
+
+    /**
+     * Finds the position of the task with the given ID.
+     * <p>Tasks are kept in ID order, so this is a binary search rather than a scan of the whole list.</p>
+     *
+     * @param id the ID of the task to find
+     * @return the 1-based position of the task, or 0 if no task has that ID
+     */
+    public int findPosition(int id) {
+        return findPosition(tasks, id);
+    }
+
+    /**
+     * Finds the position of the task with the given ID in a list of tasks in ID order.
+     *
+     * @param tasks the tasks to search, in ID order
+     * @param id    the ID of the task to find
+     * @return the 1-based position of the task, or 0 if no task has that ID
+     */
+    static int findPosition(List<Task> tasks, int id) {
+        int low = 0;
+        int high = tasks.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midId = idAt(tasks, mid);
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return mid + 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Counts the tasks whose ID is at most the given ID, which is also the 0-based index of the first task after
+     * it, so that a list can be shown from just after a task that the user last saw.
+     *
+     * @param id the ID to count up to, which need not be in the list
+     * @return the number of tasks with at most that ID
+     */
+    public int countUpTo(int id) {
+        return countUpTo(tasks, id);
+    }
+
+    /**
+     * Counts the tasks whose ID is at most the given ID in a list of tasks in ID order.
+     *
+     * @param tasks the tasks to search, in ID order
+     * @param id    the ID to count up to
+     * @return the number of tasks with at most that ID
+     */
+    static int countUpTo(List<Task> tasks, int id) {
+        int low = 0;
+        int high = tasks.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (idAt(tasks, mid) <= id) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Finds the index of the first task, at or after a given index, whose ID is at least the given ID.
+     * <p>The search takes steps of doubling size before searching the last step in halves, so looking up
+     * IDs in increasing order walks the list once, skipping the stretches between them.</p>
+     *
+     * @param from the 0-based index to start searching at
+     * @param id   the ID to search for
+     * @return the 0-based index of the first task with at least that ID, or the size of the list if there is none
+     */
+    private int seekId(int from, int id) {
+        int low = from;
+        int high = from;
+        int step = 1;
+        while (high < tasks.size() && idAt(high) < id) {
+            low = high + 1;
+            high = from + step;
+            step <<= 1;
+        }
+        high = Math.min(high, tasks.size());
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (idAt(mid) < id) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the ID of the task at an index, reading it straight from a {@link CompactTaskRows} list without
+     * building the task, so that searches by ID do not build a task for every step.
+     *
+     * @param index the 0-based index of the task
+     * @return the ID of the task
+     */
+    private int idAt(int index) {
+        return idAt(tasks, index);
+    }
+
+    private static int idAt(List<Task> tasks, int index) {
+        if (tasks instanceof CompactTaskRows) {
+            return ((CompactTaskRows) tasks).idAt(index);
+        }
+        return tasks.get(index).getId();
+    }
+
+    /**
+     * Looks up the tasks with the given IDs, skipping any ID no longer in the list.
+     *
+     * @param ids the IDs of the tasks, in any order
+     * @return the tasks, in the order of their IDs
+     */
+    private List<Task> tasksWithIds(int[] ids) {
+        List<Task> found = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            int position = findPosition(id);
+            if (position > 0) {
+                found.add(tasks.get(position - 1));
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Returns a read-only view of every task in the list, in list order.
+     * <p>This is used by storage to save the whole list at once.</p>
+     *
+     * @return an unmodifiable view of the tasks
+     */
+    public List<Task> asList() {
+        return Collections.unmodifiableList(tasks);
+    }
+
     /**
      * Adds a valid task to the list. If the task is invalid, it will not be added
      * and an error message will be returned.
      * <p>This method checks if the task is valid by calling its {@code checkValid()}
-     * method. If valid, the task is added to the list and a success message is returned;
+     * method. If valid, the task is given the next ID, added to the list and a success message is returned;
      * otherwise, an error message is returned.</p>
      *
      * @param item the task to add
@@ -57,13 +261,88 @@ public class TaskList {
      */
     public String addToList(Task item) {
         if (item.checkValid()) {
+            if (item.getId() == 0) {
+                item.setId(nextId);
+            }
+            nextId = Math.max(nextId, item.getId() + 1);
             tasks.add(item);
+            addToIndexes(item);
             return "I have added the following task from your task list master: " + item;
         } else {
             return "I am unable to add that task to your list master for it is in the wrong format";
         }
     }
 
+    /**
+     * Adds several tasks to the end of the list at once, leaving out any that are not valid.
+     * <p>Each valid task is given the next ID, as with {@link #addToList}. Tasks that are not valid are not
+     * added and keep ID 0, so callers can tell which ones were left out.</p>
+     *
+     * @param items the tasks to add, in order
+     * @return the tasks that were added, in order
+     */
+    public List<Task> addAllToList(List<Task> items) {
+        List<Task> added = new ArrayList<>(items.size());
+        for (Task item : items) {
+            if (item.checkValid()) {
+                if (item.getId() == 0) {
+                    item.setId(nextId);
+                }
+                nextId = Math.max(nextId, item.getId() + 1);
+                added.add(item);
+                addToIndexes(item);
+            }
+        }
+        tasks.addAll(added);
+        return added;
+    }
+
+    /**
+     * Adds a newly added task to every index that has been built.
+     *
+     * @param item the task added to the list
+     */
+    private void addToIndexes(Task item) {
+        if (trigramIndex != null) {
+            trigramIndex.add(item);
+        }
+        if (fuzzyIndex != null) {
+            fuzzyIndex.add(item);
+        }
+        if (dateIndex != null) {
+            dateIndex.add(item);
+        }
+        if (eventIndex != null) {
+            eventIndex.add(item);
+        }
+        if (filterIndex != null) {
+            filterIndex.add(item);
+        }
+    }
+
+    /**
+     * Removes a deleted task from every index that has been built.
+     *
+     * @param removed the task deleted from the list
+     */
+    private void removeFromIndexes(Task removed) {
+        if (trigramIndex != null) {
+            trigramIndex.remove(removed);
+        }
+        if (fuzzyIndex != null) {
+            fuzzyIndex.remove(removed);
+        }
+        if (dateIndex != null) {
+            dateIndex.remove(removed);
+        }
+        if (eventIndex != null) {
+            eventIndex.remove(removed);
+        }
+        if (filterIndex != null) {
+            filterIndex.remove(removed);
+        }
+    }
+
     /**
      * Deletes a task at the specified 1-based index.
      * <p>If the index is out of bounds, an error message is returned. If valid,
@@ -77,6 +356,7 @@ public class TaskList {
             return "Master I can't find that item in your list";
         }
         Task removed = tasks.remove(index - 1);
+        removeFromIndexes(removed);
         return "I have removed the following task from your task list master: " + removed;
     }
 
@@ -92,8 +372,11 @@ public class TaskList {
         if (index < 1 || index > tasks.size()) {
             return "Master I can't find that item in your list";
         }
-        tasks.get(index - 1).mark();
-        return "I have marked the following task as completed master: " + tasks.get(index - 1);
+        Task task = setStatus(index - 1, true);
+        if (filterIndex != null) {
+            filterIndex.setDone(task.getId(), true);
+        }
+        return "I have marked the following task as completed master: " + task;
     }
 
     /**
@@ -108,22 +391,61 @@ public class TaskList {
         if (index < 1 || index > tasks.size()) {
             return "Master I can't find that item in your list";
         }
-        tasks.get(index - 1).unmark();
-        return "I have unmarked the following task from your list master: " + tasks.get(index - 1);
+        Task task = setStatus(index - 1, false);
+        if (filterIndex != null) {
+            filterIndex.setDone(task.getId(), false);
+        }
+        return "I have unmarked the following task from your list master: " + task;
+    }
+
+    /**
+     * Marks or unmarks the task at an index, changing the task in place.
+     * <p>{@link ConcurrentTaskList} puts a changed copy in its place instead, so that a task never changes once
+     * a reader may be holding it.</p>
+     *
+     * @param index  the 0-based index of the task
+     * @param isDone whether the task is to be marked as done
+     * @return the task as it now is in the list
+     */
+    Task setStatus(int index, boolean isDone) {
+        Task task = tasks.get(index);
+        if (isDone) {
+            task.mark();
+        } else {
+            task.unmark();
+        }
+        return task;
     }
 
     /**
      * Finds and returns a new {@code TaskList} containing tasks whose labels match the
      * given search term.
-     * <p>This method iterates through all tasks in the list and adds those whose labels
-     * contain the given search term to a new list. A new {@code TaskList} object is
-     * returned containing the matching tasks.</p>
+     * <p>A task matches if its label contains the search term anywhere, even inside a word. Search terms of
+     * three or more characters are looked up in a {@link TrigramIndex}, and only the tasks it returns as
+     * candidates are checked; shorter search terms are checked against every label.</p>
      *
      * @param searchTerm the keyword to search for in task descriptions or labels
      * @return a {@code TaskList} of matching tasks
      */
     public TaskList find(String searchTerm) {
         ArrayList<Task> validTasks = new ArrayList<>();
+        if (searchTerm.length() >= TrigramIndex.GRAM_LENGTH) {
+            if (trigramIndex == null) {
+                trigramIndex = new TrigramIndex(tasks);
+            }
+            int index = 0;
+            for (int id : trigramIndex.findCandidates(searchTerm)) {
+                index = seekId(index, id);
+                if (index < tasks.size() && idAt(index) == id) {
+                    Task candidate = tasks.get(index);
+                    if (candidate.checkLabel(searchTerm)) {
+                        validTasks.add(candidate);
+                    }
+                }
+            }
+            return new TaskList(validTasks);
+        }
+
         for (Task task : tasks) {
             if (task.checkLabel(searchTerm)) {
                 validTasks.add(task);
@@ -132,10 +454,254 @@ public class TaskList {
         return new TaskList(validTasks);
     }
 
+    /**
+     * Finds the tasks whose labels have words close to the words of the search term, allowing for typos.
+     * <p>Words are compared without regard to case. Each word of the search term may be off by one
+     * character if it has up to five characters, or by two if it is longer, where a character may be
+     * inserted, deleted or replaced; words of one or two characters must match exactly. Every word of the
+     * search term must be close to some word of a matching label. Words are looked up in a
+     * {@link FuzzyIndex}, so labels far from the search term are never compared with it.</p>
+     * <p>Unlike {@link #find}, the tasks are ranked rather than kept in list order: those with the fewest
+     * typos in total come first, and tasks with the same number keep their list order.</p>
+     *
+     * @param searchTerm the words to search for
+     * @return a {@code TaskList} of matching tasks, closest first
+     */
+    public TaskList findFuzzy(String searchTerm) {
+        if (fuzzyIndex == null) {
+            fuzzyIndex = new FuzzyIndex(tasks);
+        }
+        long[] matches = fuzzyIndex.find(searchTerm);
+        List<Task> found = new ArrayList<>(matches.length);
+        int[] distances = new int[matches.length];
+        int index = 0;
+        for (long match : matches) {
+            int id = (int) (match >>> 32);
+            index = seekId(index, id);
+            if (index < tasks.size() && idAt(index) == id) {
+                distances[found.size()] = (int) match;
+                found.add(tasks.get(index));
+            }
+        }
+
+        // a counting sort by distance keeps tasks with the same distance in list order
+        int maxDistance = 0;
+        for (int i = 0; i < found.size(); i++) {
+            maxDistance = Math.max(maxDistance, distances[i]);
+        }
+        int[] starts = new int[maxDistance + 2];
+        for (int i = 0; i < found.size(); i++) {
+            starts[distances[i] + 1]++;
+        }
+        for (int distance = 1; distance < starts.length; distance++) {
+            starts[distance] += starts[distance - 1];
+        }
+        Task[] ranked = new Task[found.size()];
+        for (int i = 0; i < found.size(); i++) {
+            ranked[starts[distances[i]]++] = found.get(i);
+        }
+        return new TaskList(new ArrayList<>(List.of(ranked)));
+    }
+
+    /**
+     * Finds the deadlines due and events starting before a date, earliest first.
+     * <p>Dates are looked up in a {@link DateIndex}, built the first time dates are searched, so only the
+     * tasks in the range are looked at. Tasks whose date could not be read are left out; see
+     * {@link #findUnreadDates()}.</p>
+     *
+     * @param date the date the tasks must be due before
+     * @return a {@code TaskList} of the tasks due strictly before the date, in date order
+     */
+    public TaskList findDueBefore(LocalDate date) {
+        return new TaskList(tasksWithIds(getDateIndex().findBefore(date)));
+    }
+
+    /**
+     * Finds the deadlines due and events starting between two dates, including both, earliest first.
+     * <p>Like {@link #findDueBefore}, tasks whose date could not be read are left out.</p>
+     *
+     * @param from the first date of the range
+     * @param to   the last date of the range
+     * @return a {@code TaskList} of the tasks due in the range, in date order
+     * @throws IllegalArgumentException if {@code to} is before {@code from}
+     */
+    public TaskList findDueBetween(LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("the second date is before the first one");
+        }
+        return new TaskList(tasksWithIds(getDateIndex().findBetween(from, to)));
+    }
+
+    /**
+     * Finds the deadlines and events whose date was not given as a date, such as "tomorrow" or "Sunday 6pm",
+     * so they cannot be placed in a range of dates.
+     *
+     * @return a {@code TaskList} of the tasks without a readable date, in list order
+     */
+    public TaskList findUnreadDates() {
+        return new TaskList(tasksWithIds(getDateIndex().getUnreadDates()));
+    }
+
+    /**
+     * Returns the index of due dates, building it from the whole list the first time it is needed.
+     *
+     * @return the index of due dates
+     */
+    private DateIndex getDateIndex() {
+        if (dateIndex == null) {
+            dateIndex = new DateIndex(tasks);
+        }
+        return dateIndex;
+    }
+
+    /**
+     * Finds the events that take place on at least one day between two dates, including both, ordered by
+     * start date.
+     * <p>Events are looked up in an {@link EventIndex}, built the first time events are searched. Events whose
+     * dates could not be read are left out; see {@link #findEventsWithUnreadDates()}.</p>
+     *
+     * @param from the first date of the range
+     * @param to   the last date of the range
+     * @return a {@code TaskList} of the events during the range, earliest start first
+     * @throws IllegalArgumentException if {@code to} is before {@code from}
+     */
+    public TaskList findEventsDuring(LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("the second date is before the first one");
+        }
+        return new TaskList(tasksWithIds(getEventIndex().findOverlapping(from, to)));
+    }
+
+    /**
+     * Finds the other events that take place on any of the days of a given event.
+     *
+     * @param task the task to check, usually one just added
+     * @return the other events sharing a day with it, earliest start first, or an empty list if the task is not
+     *         an event or its dates could not be read
+     */
+    public List<Task> findClashes(Task task) {
+        if (!(task instanceof Event) || !EventIndex.hasReadableDates((Event) task)) {
+            return List.of();
+        }
+        Event event = (Event) task;
+        LocalDate start = event.getStartParsed();
+        LocalDate end = event.getEndParsed();
+        int[] overlapping = end.isBefore(start)
+                ? getEventIndex().findOverlapping(end, start)
+                : getEventIndex().findOverlapping(start, end);
+        List<Task> clashes = tasksWithIds(overlapping);
+        clashes.removeIf(clash -> clash.getId() == task.getId());
+        return clashes;
+    }
+
+    /**
+     * Finds the events whose start or end was not given as a date, so they cannot be placed on any day.
+     *
+     * @return a {@code TaskList} of the events without readable dates, in list order
+     */
+    public TaskList findEventsWithUnreadDates() {
+        return new TaskList(tasksWithIds(getEventIndex().getUnreadDates()));
+    }
+
+    /**
+     * Returns the interval tree of events, building it from the whole list the first time it is needed.
+     *
+     * @return the interval tree of events
+     */
+    private EventIndex getEventIndex() {
+        if (eventIndex == null) {
+            eventIndex = new EventIndex(tasks);
+        }
+        return eventIndex;
+    }
+
+    /**
+     * Finds the tasks with the status and type of a filter, such as the open deadlines, in list order.
+     * <p>The tasks are found by combining bitmaps of the IDs of each status and type in a {@link FilterIndex},
+     * built the first time a filter is used, instead of checking every task.</p>
+     *
+     * @param filter the status and type the tasks must have
+     * @return a {@code TaskList} of the tasks that pass the filter
+     */
+    public TaskList filter(TaskFilter filter) {
+        int[] ids = getFilterIndex().find(filter);
+        List<Task> found = new ArrayList<>(ids.length);
+        int index = 0;
+        for (int id : ids) {
+            index = seekId(index, id);
+            if (index < tasks.size() && idAt(index) == id) {
+                found.add(tasks.get(index));
+            }
+        }
+        return new TaskList(found);
+    }
+
+    /**
+     * Keeps the tasks found in this list, such as by {@link #find}, that have the status and type of a filter.
+     * <p>Each task is looked up by ID in the bitmaps of its status and type, so this takes time in proportion
+     * to the number of tasks found rather than the length of the list.</p>
+     *
+     * @param found  tasks found in this list, in any order
+     * @param filter the status and type the tasks must have
+     * @return a {@code TaskList} of the found tasks that pass the filter, in the order they were found
+     */
+    public TaskList filter(TaskList found, TaskFilter filter) {
+        FilterIndex index = getFilterIndex();
+        List<Task> kept = new ArrayList<>();
+        for (Task task : found.tasks) {
+            if (index.matches(task.getId(), filter)) {
+                kept.add(task);
+            }
+        }
+        return new TaskList(kept);
+    }
+
+    /**
+     * Returns the bitmaps of each status and type, building them from the whole list the first time they are
+     * needed.
+     *
+     * @return the bitmaps of each status and type
+     */
+    private FilterIndex getFilterIndex() {
+        if (filterIndex == null) {
+            filterIndex = new FilterIndex(tasks);
+        }
+        return filterIndex;
+    }
+
+    /**
+     * Describes the memory taken by the search index, so that its cost can be weighed against how much
+     * quicker it makes searches.
+     *
+     * <p>The index behind {@link #findFuzzy} is only counted in words, if it has been built.</p>
+     *
+     * @return the number of trigrams and approximate size of the index, or a note that it has not been built
+     */
+    public String describeSearchIndex() {
+        String fuzzyWords = fuzzyIndex == null ? "" : ", and " + fuzzyIndex.getWordCount() + " words for find~";
+        if (trigramIndex == null) {
+            return "not built yet, it is built on the first search of 3 or more characters" + fuzzyWords;
+        }
+        return trigramIndex.getTrigramCount() + " trigrams, about "
+                + (trigramIndex.estimateMemoryBytes() + 1023) / 1024 + " KB" + fuzzyWords;
+    }
+
+    /**
+     * Describes the memory taken by the bitmaps behind {@link #filter}.
+     *
+     * @return the approximate size of the bitmaps, or a note that they have not been built
+     */
+    public String describeFilterIndex() {
+        if (filterIndex == null) {
+            return "not built yet, it is built the first time you list tasks by status or type";
+        }
+        return "about " + (filterIndex.estimateMemoryBytes() + 1023) / 1024 + " KB";
+    }
+
     /**
      * Returns a string representation of all tasks in the list.
      * <p>Tasks are numbered starting from 1, and each task is formatted using its
-     * {@code toString()} method. The list is prefixed with a header indicating the
+     * {@code toString()} method and followed by its ID. The list is prefixed with a header indicating the
      * user's task list.</p>
      *
      * @return a formatted string listing all tasks
@@ -143,9 +709,66 @@ public class TaskList {
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder("Here are the tasks you requested master\n");
-        for (int i = 0; i < tasks.size(); i++) {
-            sb.append(i + 1).append(". ").append(tasks.get(i)).append("\n");
+        int position = 0;
+        for (Task task : tasks) {
+            appendRow(sb, ++position, task);
         }
         return sb.toString();
     }
+
+    /**
+     * Writes a stretch of the list to a writer, numbered by position and followed by their IDs as in
+     * {@link #toString()}, but without the header.
+     *
+     * @param out   the writer to write the tasks to
+     * @param from  the 0-based index of the first task to write
+     * @param count the largest number of tasks to write
+     * @throws IOException if the writer fails
+     * @see #writeTo(Writer, int, int, TaskList)
+     */
+    public void writeTo(Writer out, int from, int count) throws IOException {
+        writeTo(out, from, count, this);
+    }
+
+    /**
+     * Writes a stretch of the list to a writer, each task numbered by its position in another list and followed
+     * by its ID, but without the header.
+     * <p>This lets a list found by a search or a filter be shown with the positions its tasks have in the full
+     * list, which are the ones other commands take. A task that is not in the other list is numbered 0.</p>
+     * <p>Tasks are rendered into a buffer that is handed to the writer whenever it fills up, so however many
+     * tasks are written, only a few kilobytes of rendered text are held at a time.</p>
+     *
+     * @param out        the writer to write the tasks to
+     * @param from       the 0-based index of the first task to write
+     * @param count      the largest number of tasks to write
+     * @param numberedBy the list whose positions the tasks are numbered by, which may be this list
+     * @throws IOException if the writer fails
+     */
+    public void writeTo(Writer out, int from, int count, TaskList numberedBy) throws IOException {
+        List<Task> shown = asList();
+        List<Task> numbering = numberedBy == this ? null : numberedBy.asList();
+        int to = (int) Math.min(shown.size(), (long) from + count);
+        StringBuilder chunk = new StringBuilder(WRITE_CHUNK_CHARS + 256);
+        int position = from;
+        for (Task task : shown.subList(Math.min(from, to), to)) {
+            position++;
+            appendRow(chunk, numbering == null ? position : findPosition(numbering, task.getId()), task);
+            if (chunk.length() >= WRITE_CHUNK_CHARS) {
+                out.append(chunk);
+                chunk.setLength(0);
+            }
+        }
+        out.append(chunk);
+    }
+
+    /**
+     * Appends one task of a list, with its position and ID, as a line.
+     *
+     * @param sb       the text to append to
+     * @param position the 1-based position of the task
+     * @param task     the task
+     */
+    private static void appendRow(StringBuilder sb, int position, Task task) {
+        sb.append(position).append(". ").append(task).append(" (#").append(task.getId()).append(")\n");
+    }
 }
@@ -40,6 +40,11 @@ public class ToDo extends Task {
         return this.label.split(" ").length >= 1;
     }
 
+    @Override
+    Task copyWithStatus(boolean isMarked) {
+        return new ToDo(label, isMarked);
+    }
+
     /**
      * Converts this {@code ToDo} task to a CSV-compatible string format.
      * <p>The CSV format is as follows: "T,[status icon],label". The status icon is
@@ -48,7 +53,7 @@ public class ToDo extends Task {
      * @return a CSV string representing the task
      */
     @Override
-    public String toCsvRow() {
+    String renderCsvRow() {
         return "T," + getStatusIcon() + "," + this.label;
     }
 
@@ -60,7 +65,7 @@ public class ToDo extends Task {
      * @return the formatted string representation of the task
      */
     @Override
-    public String toString() {
-        return "[T]" + super.toString();
+    String renderDisplay() {
+        return "[T]" + describeStatusAndLabel();
     }
 }
@@ -0,0 +1,148 @@
+package ryuji.task;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An index from every three-character sequence (trigram) in task labels to the IDs of the tasks that contain
+ * it.
+ * <p>Any label that contains a search term of three or more characters also contains every trigram of the
+ * term, so the tasks found in the posting lists of all those trigrams are the only candidates worth checking.
+ * Posting lists are intersected starting from the shortest, and only the candidates left over are checked
+ * with {@link Task#checkLabel}, so a search gives exactly the same tasks as checking every label while
+ * looking at far fewer of them.</p>
+ * <p>Trigrams are taken from labels as they are, without changing case, to match {@link Task#checkLabel}.
+ * Posting lists hold task IDs in increasing order in plain {@code int} arrays, which keeps the index small
+ * enough to report its size with {@link #estimateMemoryBytes()}.</p>
+ */
+final class TrigramIndex {
+
+    /** The length of the sequences the index is made of; shorter search terms cannot be looked up. */
+    static final int GRAM_LENGTH = 3;
+
+    /** Approximate bytes taken by each trigram besides its IDs: the map entry, its boxed key and the list. */
+    private static final int BYTES_PER_TRIGRAM = 96;
+
+    /** The posting list of every trigram, keyed by its three characters packed into a {@code long}. */
+    private final Map<Long, PostingList> postings = new HashMap<>();
+
+    /**
+     * Constructs a {@code TrigramIndex} of the given tasks.
+     *
+     * @param tasks the tasks to index
+     */
+    TrigramIndex(List<Task> tasks) {
+        for (Task task : tasks) {
+            add(task);
+        }
+    }
+
+    /**
+     * Adds a task to the posting list of every trigram in its label.
+     *
+     * @param task the task to add
+     */
+    void add(Task task) {
+        String label = task.getLabel();
+        for (int i = 0; i + GRAM_LENGTH <= label.length(); i++) {
+            postings.computeIfAbsent(pack(label, i), key -> new PostingList()).add(task.getId());
+        }
+    }
+
+    /**
+     * Removes a task from the posting list of every trigram in its label.
+     *
+     * @param task the task to remove
+     */
+    void remove(Task task) {
+        String label = task.getLabel();
+        for (int i = 0; i + GRAM_LENGTH <= label.length(); i++) {
+            Long key = pack(label, i);
+            PostingList posting = postings.get(key);
+            if (posting == null) {
+                continue;
+            }
+            posting.remove(task.getId());
+            if (posting.size() == 0) {
+                postings.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Finds the IDs of the tasks whose label contains every trigram of the search term.
+     * <p>These are the only tasks that can contain the term, but not all of them do, since the trigrams may
+     * appear apart or in another order; the caller checks each one.</p>
+     *
+     * @param searchTerm the term to search for, at least {@link #GRAM_LENGTH} characters long
+     * @return the IDs of the candidate tasks, in increasing order
+     */
+    int[] findCandidates(String searchTerm) {
+        List<PostingList> lists = new ArrayList<>();
+        for (int i = 0; i + GRAM_LENGTH <= searchTerm.length(); i++) {
+            PostingList posting = postings.get(pack(searchTerm, i));
+            if (posting == null) {
+                return new int[0];
+            }
+            if (!lists.contains(posting)) {
+                lists.add(posting);
+            }
+        }
+        lists.sort((first, second) -> Integer.compare(first.size(), second.size()));
+
+        PostingList shortest = lists.get(0);
+        int[] candidates = new int[shortest.size()];
+        int count = 0;
+        int[] cursors = new int[lists.size()];
+        for (int j = 0; j < shortest.size(); j++) {
+            int id = shortest.get(j);
+            boolean isInAll = true;
+            for (int i = 1; i < lists.size() && isInAll; i++) {
+                PostingList posting = lists.get(i);
+                cursors[i] = posting.gallop(cursors[i], id);
+                isInAll = cursors[i] < posting.size() && posting.get(cursors[i]) == id;
+            }
+            if (isInAll) {
+                candidates[count++] = id;
+            }
+        }
+        return Arrays.copyOf(candidates, count);
+    }
+
+    /**
+     * Returns the number of distinct trigrams in the index.
+     *
+     * @return the number of posting lists
+     */
+    int getTrigramCount() {
+        return postings.size();
+    }
+
+    /**
+     * Estimates the memory taken by the index, counting the space reserved in every posting list and a
+     * fixed amount for each trigram's map entry.
+     *
+     * @return the approximate size of the index in bytes
+     */
+    long estimateMemoryBytes() {
+        long bytes = 0;
+        for (PostingList posting : postings.values()) {
+            bytes += BYTES_PER_TRIGRAM + posting.estimateMemoryBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Packs the three characters starting at an index into a single key.
+     *
+     * @param text  the text to take the characters from
+     * @param index the index of the first character
+     * @return the characters packed into a {@code long}
+     */
+    private static Long pack(String text, int index) {
+        return ((long) text.charAt(index) << 32) | ((long) text.charAt(index + 1) << 16) | text.charAt(index + 2);
+    }
+}
@@ -1,5 +1,6 @@
 package ryuji.ui;
 
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
 import javafx.scene.control.ScrollPane;
@@ -58,6 +59,9 @@ public class MainWindow extends AnchorPane {
      */
     public void setRyuji(Ryuji ryuji) {
         this.ryuji = ryuji;
+        // Changes are saved in the background, so failures are reported later, on the FX thread
+        ryuji.setFollowUpListener(message -> Platform.runLater(() ->
+                dialogContainer.getChildren().add(DialogBox.getRyujiDialog(message, ryujiImage))));
     }
 
     /**
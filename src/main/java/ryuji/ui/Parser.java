@@ -3,30 +3,45 @@ package ryuji.ui;
 import ryuji.command.AddCommand;
 import ryuji.command.Command;
 import ryuji.command.DeleteCommand;
+import ryuji.command.DueCommand;
 import ryuji.command.ExitCommand;
 import ryuji.command.FindCommand;
 import ryuji.command.HelpCommand;
+import ryuji.command.ImportCommand;
 import ryuji.command.ListCommand;
 import ryuji.command.MarkCommand;
+import ryuji.command.ScheduleCommand;
+import ryuji.command.StatsCommand;
 import ryuji.command.UnmarkCommand;
+import ryuji.task.DateTimeHandler;
 import ryuji.task.Deadline;
 import ryuji.task.Event;
+import ryuji.task.TaskFilter;
 import ryuji.task.ToDo;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 
 /**
  * The {@code Parser} class is responsible for interpreting user input
  * and converting it into executable {@link Command} objects.
  * <p>It supports various commands such as "list", "todo", "deadline", "event",
- * "mark", "unmark", "delete", "find", "help" and "bye". Each command is parsed
- * and converted into the corresponding {@code Command} object, which can then be executed
- * by the application.</p>
+ * "mark", "unmark", "delete", "find", "find~", "due", "on", "during", "import", "stats", "help"
+ * and "bye". Each command is parsed and converted into the corresponding {@code Command} object,
+ * which can then be executed by the application.</p>
  */
 public class Parser {
 
     private final Set<String> commands = Set.of("list", "bye", "mark", "unmark", "todo",
-            "find", "help", "deadline", "event", "delete");
+            "find", "find~", "due", "on", "during", "help", "deadline", "event", "delete", "import", "stats");
+
+    /** Option of "list", "find" and "find~" that includes tasks archived out of the list. */
+    private static final String HISTORY_OPTION = "--history";
+
+    /** Prefix of the options of "list", "find" and "find~", such as {@code --history} and {@code --open}. */
+    private static final String OPTION_PREFIX = "--";
 
     /**
      * Parses the raw user input and returns the corresponding {@link Command} object.
@@ -41,25 +56,27 @@ public class Parser {
      * @throws IllegalStateException     if the command keyword is unexpected or unrecognized
      * @throws IndexOutOfBoundsException if there are issues parsing command arguments
      * @throws NumberFormatException     if the position or task details are malformed
+     * @throws IllegalArgumentException  if the dates of a "due", "on" or "during" command cannot be read, or a
+     *                                   "list", "find" or "find~" command has a filter that is not understood
      */
     public Command parse(String input) {
         Command command;
         String commandString = parseCommand(input.toLowerCase());  // Extract the command keyword
         switch (commandString) {
         case "list":
-            command = new ListCommand(commandString);
+            command = parseListCommand(commandString, input);
             break;
         case "bye":
             command = new ExitCommand(commandString);
             break;
         case "mark":
-            command = new MarkCommand(commandString, parsePosition(input));
+            command = new MarkCommand(commandString, parsePosition(input), isTaskId(input));
             break;
         case "unmark":
-            command = new UnmarkCommand(commandString, parsePosition(input));
+            command = new UnmarkCommand(commandString, parsePosition(input), isTaskId(input));
             break;
         case "delete":
-            command = new DeleteCommand(commandString, parsePosition(input));
+            command = new DeleteCommand(commandString, parsePosition(input), isTaskId(input));
             break;
         case "todo":
             command = new AddCommand(commandString, new ToDo(parseTask(input)));
@@ -71,7 +88,27 @@ public class Parser {
             command = new AddCommand(commandString, new Event(parseTask(input)));
             break;
         case "find":
-            command = new FindCommand(commandString, parseTask(input));
+            command = new FindCommand(commandString, parseSearchTerm(input), isHistoryQuery(input), false,
+                    parseFindFilter(input));
+            break;
+        case "find~":
+            command = new FindCommand(commandString, parseSearchTerm(input), isHistoryQuery(input), true,
+                    parseFindFilter(input));
+            break;
+        case "due":
+            command = parseDueCommand(commandString, parseTask(input));
+            break;
+        case "on":
+            command = new ScheduleCommand(commandString, parseDate(parseTask(input)));
+            break;
+        case "during":
+            command = parseDuringCommand(commandString, parseTask(input));
+            break;
+        case "import":
+            command = new ImportCommand(commandString, parseTask(input));
+            break;
+        case "stats":
+            command = new StatsCommand(commandString);
             break;
         case "help":
             command = new HelpCommand(commandString);
@@ -121,9 +158,239 @@ public class Parser {
         return inputSplit[1];
     }
 
+    /**
+     * Parses a "list" command, whose words after the command keyword pick the tasks by status and type, as in
+     * "list open deadline", and may include the {@code --history} option.
+     * <p>The words may also pick a stretch of the list: "page 3" for the third page, "--limit 50" for at most
+     * 50 tasks, or the tasks on a page, and "--after 1200" for the tasks after the task with ID 1200. Like the
+     * status and type, these can be written with or without the leading dashes.</p>
+     *
+     * @param commandString the command keyword
+     * @param input         the full input string
+     * @return the {@code ListCommand}
+     * @throws IllegalArgumentException if a word is not a status or type, two statuses or types are given,
+     *                                  a page, limit or ID is not a number, or both a page and a task to start
+     *                                  after are given
+     */
+    private Command parseListCommand(String commandString, String input) {
+        String[] inputSplit = input.trim().split("\\s+");
+        boolean includesHistory = false;
+        int page = 0;
+        int afterId = 0;
+        int limit = 0;
+        boolean hasAfter = false;
+        List<String> filterWords = new ArrayList<>();
+        for (int i = 1; i < inputSplit.length; i++) {
+            String word = inputSplit[i].toLowerCase();
+            String name = word.startsWith(OPTION_PREFIX) ? word.substring(OPTION_PREFIX.length()) : word;
+            if (word.equals(HISTORY_OPTION)) {
+                includesHistory = true;
+            } else if (name.equals("page")) {
+                page = parseListNumber(inputSplit, ++i, name, 1);
+            } else if (name.equals("limit")) {
+                limit = parseListNumber(inputSplit, ++i, name, 1);
+            } else if (name.equals("after")) {
+                afterId = parseListNumber(inputSplit, ++i, name, 0);
+                hasAfter = true;
+            } else {
+                filterWords.add(name);
+            }
+        }
+        if (page > 0 && hasAfter) {
+            throw new IllegalArgumentException("pick either a page or a task to show the tasks after, not both");
+        }
+        return new ListCommand(commandString, includesHistory, parseFilter(filterWords), page, afterId, limit);
+    }
+
+    /**
+     * Reads the number after a word of a "list" command, such as the 3 of "page 3". A leading "#" is skipped,
+     * so task IDs can be written as they are shown in the list.
+     *
+     * @param words the words of the command
+     * @param index the index of the word holding the number
+     * @param name  the word the number belongs to, without dashes
+     * @param min   the smallest number allowed
+     * @return the number
+     * @throws IllegalArgumentException if there is no number there, or it is smaller than allowed
+     */
+    private int parseListNumber(String[] words, int index, String name, int min) {
+        String word = index < words.length ? words[index] : "";
+        if (word.matches("#?\\d{1,9}")) {
+            int number = Integer.parseInt(word.startsWith("#") ? word.substring(1) : word);
+            if (number >= min) {
+                return number;
+            }
+        }
+        throw new IllegalArgumentException(name + " needs a whole number of at least " + min + " after it");
+    }
+
+    /**
+     * Extracts the options given before the search term of a "find" or "find~" command, such as
+     * {@code --history} in "find --history book".
+     *
+     * @param input the full input string
+     * @return the options in lower case, including their leading dashes, in the order they were given
+     */
+    private List<String> parseOptions(String input) {
+        String[] inputSplit = input.trim().split("\\s+");
+        List<String> options = new ArrayList<>();
+        for (int i = 1; i < inputSplit.length && inputSplit[i].startsWith(OPTION_PREFIX); i++) {
+            options.add(inputSplit[i].toLowerCase());
+        }
+        return options;
+    }
+
+    /**
+     * Checks whether a "find" or "find~" command asks for archived tasks as well, as in "find --history book".
+     *
+     * @param input the full input string
+     * @return {@code true} if the input has the {@code --history} option
+     */
+    private boolean isHistoryQuery(String input) {
+        return parseOptions(input).contains(HISTORY_OPTION);
+    }
+
+    /**
+     * Parses the options of a "find" or "find~" command that pick the matches by status and type, as in
+     * "find --open --deadline book".
+     *
+     * @param input the full input string
+     * @return the filter, or null if no status or type is given
+     * @throws IllegalArgumentException if an option is not understood, or two statuses or types are given
+     */
+    private TaskFilter parseFindFilter(String input) {
+        List<String> filterWords = new ArrayList<>();
+        for (String option : parseOptions(input)) {
+            if (!option.equals(HISTORY_OPTION)) {
+                filterWords.add(option.substring(OPTION_PREFIX.length()));
+            }
+        }
+        return parseFilter(filterWords);
+    }
+
+    /**
+     * Reads the status and type of a filter from words such as "open", "done", "todo", "deadline" and
+     * "event". Plurals, such as "deadlines", are read the same way.
+     *
+     * @param words the words, in lower case and without leading dashes
+     * @return the filter, or null if there are no words
+     * @throws IllegalArgumentException if a word is not a status or type, or two statuses or types are given
+     */
+    private TaskFilter parseFilter(List<String> words) {
+        if (words.isEmpty()) {
+            return null;
+        }
+        TaskFilter.Status status = null;
+        TaskFilter.Type type = null;
+        for (String word : words) {
+            String name = word.endsWith("s") ? word.substring(0, word.length() - 1) : word;
+            TaskFilter.Status wordStatus = null;
+            TaskFilter.Type wordType = null;
+            switch (name) {
+            case "open":
+                wordStatus = TaskFilter.Status.OPEN;
+                break;
+            case "done":
+                wordStatus = TaskFilter.Status.DONE;
+                break;
+            case "todo":
+                wordType = TaskFilter.Type.TODO;
+                break;
+            case "deadline":
+                wordType = TaskFilter.Type.DEADLINE;
+                break;
+            case "event":
+                wordType = TaskFilter.Type.EVENT;
+                break;
+            default:
+                throw new IllegalArgumentException("I can only pick tasks that are open or done, and todos, "
+                        + "deadlines or events, not " + word);
+            }
+            if ((wordStatus != null && status != null) || (wordType != null && type != null)) {
+                throw new IllegalArgumentException("pick at most one of open and done, and one of todo, "
+                        + "deadline and event");
+            }
+            status = wordStatus != null ? wordStatus : status;
+            type = wordType != null ? wordType : type;
+        }
+        return new TaskFilter(status, type);
+    }
+
+    /**
+     * Extracts the search term of a "find" or "find~" command, leaving out the options given before it.
+     *
+     * @param input the full input string
+     * @return the search term
+     * @throws ArrayIndexOutOfBoundsException if no search term is provided
+     */
+    private String parseSearchTerm(String input) {
+        String searchTerm = parseTask(input);
+        if (!parseOptions(input).isEmpty()) {
+            searchTerm = searchTerm.replaceFirst("^\\s*(" + OPTION_PREFIX + "\\S+\\s*)+", "").trim();
+            if (searchTerm.isEmpty()) {
+                throw new ArrayIndexOutOfBoundsException("No search term given");
+            }
+        }
+        return searchTerm;
+    }
+
+    /**
+     * Parses the range of dates of a "due" command, written as "before 2025-12-01" or
+     * "between 2025-12-01 and 2025-12-31".
+     *
+     * @param commandString the command keyword
+     * @param range         the range of dates, after the command keyword
+     * @return the {@code DueCommand} for the range
+     * @throws IllegalArgumentException if the range is not written in either form or a date cannot be read
+     */
+    private Command parseDueCommand(String commandString, String range) {
+        String[] words = range.trim().split("\\s+", 2);
+        String kind = words[0].toLowerCase();
+        if (kind.equals("before") && words.length == 2) {
+            return new DueCommand(commandString, parseDate(words[1]));
+        }
+        String[] dates = words.length == 2 ? words[1].split("(?i)\\s+and\\s+", 2) : new String[0];
+        if (kind.equals("between") && dates.length == 2) {
+            return new DueCommand(commandString, parseDate(dates[0]), parseDate(dates[1]));
+        }
+        throw new IllegalArgumentException("type due before 2025-12-01 or due between 2025-12-01 and 2025-12-31");
+    }
+
+    /**
+     * Parses the range of dates of a "during" command, written as "2025-10-01 2025-10-31", optionally with
+     * "and" between the dates.
+     *
+     * @param commandString the command keyword
+     * @param range         the range of dates, after the command keyword
+     * @return the {@code ScheduleCommand} for the range
+     * @throws IllegalArgumentException if the range does not have two dates or a date cannot be read
+     */
+    private Command parseDuringCommand(String commandString, String range) {
+        String[] dates = range.trim().split("\\s+(?i:and\\s+)?", 2);
+        if (dates.length != 2) {
+            throw new IllegalArgumentException("type during 2025-10-01 2025-10-31");
+        }
+        return new ScheduleCommand(commandString, parseDate(dates[0]), parseDate(dates[1]));
+    }
+
+    /**
+     * Reads a date given in a command, in any of the forms a deadline's date can be written in.
+     *
+     * @param date the date as typed
+     * @return the date
+     * @throws IllegalArgumentException if the date cannot be read
+     */
+    private LocalDate parseDate(String date) {
+        LocalDate parsed = DateTimeHandler.getDate(date.trim());
+        if (parsed == null) {
+            throw new IllegalArgumentException("I cannot read " + date.trim() + " as a date, write it like 2025-12-01");
+        }
+        return parsed;
+    }
+
     /**
      * Extracts the position (typically task number) from the user input.
-     * Used in commands like "mark", "unmark", and "delete".
+     * Used in commands like "mark", "unmark", and "delete". A leading "#" is skipped, so this also reads task IDs.
      *
      * @param input the full input string
      * @return the task position as an integer
@@ -132,6 +399,19 @@ public class Parser {
      */
     private int parsePosition(String input) {
         String[] inputSplit = input.split(" ", 2);
-        return Integer.parseInt(inputSplit[1]);
+        String position = inputSplit[1].trim();
+        return Integer.parseInt(position.startsWith("#") ? position.substring(1) : position);
+    }
+
+    /**
+     * Checks whether the task in a "mark", "unmark" or "delete" command is given by its ID, written
+     * with a leading "#" (e.g. "delete #12"), rather than by its position in the list.
+     *
+     * @param input the full input string
+     * @return {@code true} if the task is given by its ID
+     */
+    private boolean isTaskId(String input) {
+        String[] inputSplit = input.split(" ", 2);
+        return inputSplit.length > 1 && inputSplit[1].trim().startsWith("#");
     }
 }
\ No newline at end of file
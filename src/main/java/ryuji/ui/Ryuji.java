@@ -1,9 +1,29 @@
 package ryuji.ui;
 
 import ryuji.command.Command;
+import ryuji.storage.BinaryStorage;
+import ryuji.storage.CompactionPolicy;
+import ryuji.storage.DurabilityPolicy;
+import ryuji.storage.ExternalChange;
+import ryuji.storage.InMemoryStorage;
+import ryuji.storage.JournalStorage;
+import ryuji.storage.SegmentedStorage;
 import ryuji.storage.Storage;
+import ryuji.storage.StorageBackend;
+import ryuji.task.CompactTaskRows;
+import ryuji.task.ConcurrentTaskList;
+import ryuji.task.IndexedTaskRows;
+import ryuji.task.Task;
 import ryuji.task.TaskList;
 
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
 /**
  * The {@code Ryuji} class serves as the main entry point for the Ryuji chatbot application.
  * <p>This class is responsible for initializing the user interface, task list, storage, and parser.
@@ -12,12 +32,45 @@ import ryuji.task.TaskList;
  * It interacts with the task list to modify tasks, and it communicates with the user through the user interface.</p>
  */
 public class Ryuji {
+
+    /** System property used to choose how tasks are stored, e.g. {@code -Dryuji.storage=journal}. */
+    private static final String STORAGE_MODE_PROPERTY = "ryuji.storage";
+
+    /**
+     * System property used to choose when saved changes are forced to disk: {@code always}, {@code buffered},
+     * or a number of milliseconds between syncs, e.g. {@code -Dryuji.durability=100}.
+     */
+    private static final String DURABILITY_PROPERTY = "ryuji.durability";
+
+    /**
+     * System property used to choose how the task list is held in memory, e.g. {@code -Dryuji.taskList=lazy}
+     * to only parse tasks when they are first used, {@code compact} to keep them in primitive columns, or
+     * {@code tree} to keep them in a balanced tree that deletes from any position in O(log n), or
+     * {@code concurrent} to let other threads read them without locking while commands change them.
+     */
+    private static final String TASK_LIST_PROPERTY = "ryuji.taskList";
+
+    /**
+     * System property used to choose when the journal is compacted in journal mode, e.g.
+     * {@code -Dryuji.compaction=records=5000,ratio=0.5,idle=30000}, or {@code off}.
+     */
+    private static final String COMPACTION_PROPERTY = "ryuji.compaction";
+
+    /**
+     * System property used to pick up tasks that other programs add to the task file while Ryuji is running,
+     * e.g. {@code -Dryuji.watch=true}.
+     */
+    private static final String WATCH_PROPERTY = "ryuji.watch";
+
     private Parser parser = new Parser();
-    private Storage storage;
+    private StorageBackend storage;
     private TaskList tasks;
     private Ui ui = new Ui();
     private String response;
 
+    /** Changes other programs made to the task file, waiting to be applied before the next command. */
+    private final Queue<ExternalChange> externalChanges = new ConcurrentLinkedQueue<>();
+
     /**
      * Constructs a {@code Ryuji} instance with the specified file path for storage.
      * <p>This constructor initializes the storage using the provided file path.
@@ -28,12 +81,26 @@ public class Ryuji {
      * @param filePath the file path to the storage file where tasks are saved
      */
     public Ryuji(String filePath) {
-        this.storage = new Storage(filePath);
+        this(createStorage(filePath));
+    }
+
+    /**
+     * Constructs a {@code Ryuji} instance that keeps its tasks in the given storage backend.
+     * <p>This lets benchmarks and tests run commands against any backend, such as an {@link InMemoryStorage}
+     * that does no disk I/O at all. If loading the tasks fails, an empty task list is used instead.</p>
+     *
+     * @param storage the storage backend that keeps the tasks
+     */
+    public Ryuji(StorageBackend storage) {
+        this.storage = storage;
         try {
-            this.tasks = new TaskList(this.storage.readFile());
+            this.tasks = createTaskList(loadTasks(), storage.getLastUsedId());
         } catch (Exception e) {
             this.ui.showFailuretoLoadTaskListError();
-            this.tasks = new TaskList();
+            this.tasks = createTaskList(new ArrayList<>(), 0);
+        }
+        if (Boolean.getBoolean(WATCH_PROPERTY)) {
+            watchStorage();
         }
     }
 
@@ -43,12 +110,173 @@ public class Ryuji {
      * If loading fails, it initializes an empty task list and notifies the user.</p>
      */
     public Ryuji() {
-        this.storage = new Storage("tasks.csv");
+        this("tasks.csv");
+    }
+
+    /**
+     * Creates the storage for the given file according to the {@code ryuji.storage} system property.
+     * <p>Supported modes are {@code csv} (the default), which rewrites the file on every change,
+     * {@code journal}, which appends every change to a journal and replays it on startup, and
+     * {@code binary}, which keeps fixed-width records in a memory-mapped file, and {@code segmented}, which
+     * moves completed tasks out of the file into compressed monthly segments. {@code memory} keeps nothing at
+     * all, so that the cost of commands can be measured without any disk I/O. In journal mode, the journal
+     * is compacted in the background according to the {@code ryuji.compaction} system property.</p>
+     *
+     * @param filePath the file path to the storage file where tasks are saved
+     * @return the storage backend to use for this session
+     */
+    private static StorageBackend createStorage(String filePath) {
+        String mode = System.getProperty(STORAGE_MODE_PROPERTY, "csv");
+        Storage storage;
+        switch (mode) {
+        case "memory":
+            return new InMemoryStorage();
+        case "journal":
+            JournalStorage journalStorage = new JournalStorage(filePath);
+            String compaction = System.getProperty(COMPACTION_PROPERTY);
+            journalStorage.setCompactionPolicy(compaction == null
+                    ? CompactionPolicy.DEFAULT
+                    : CompactionPolicy.parse(compaction));
+            storage = journalStorage;
+            break;
+        case "binary":
+            storage = new BinaryStorage(filePath);
+            break;
+        case "segmented":
+            storage = new SegmentedStorage(filePath);
+            break;
+        default:
+            storage = new Storage(filePath);
+        }
+
+        String durability = System.getProperty(DURABILITY_PROPERTY, "buffered");
+        switch (durability) {
+        case "always":
+            storage.setDurability(DurabilityPolicy.SYNC_EVERY_WRITE, 0);
+            break;
+        case "buffered":
+            storage.setDurability(DurabilityPolicy.OS_BUFFERED, 0);
+            break;
+        default:
+            storage.setDurability(DurabilityPolicy.SYNC_INTERVAL, Long.parseLong(durability));
+        }
+        return storage;
+    }
+
+    /**
+     * Loads the saved tasks according to the {@code ryuji.taskList} system property.
+     * <p>With {@code lazy}, only the position of every task in the file is read at startup and each task
+     * is parsed the first time it is used. With {@code compact}, every task is parsed straight away and then
+     * packed into a {@link CompactTaskRows}, which takes far less memory per task than one object each. With
+     * {@code tree}, the parsed tasks are put in an {@link IndexedTaskRows}, so that deleting from a long list
+     * does not move every later task. With {@code concurrent}, the parsed tasks are handed to a
+     * {@link ConcurrentTaskList}. Otherwise every task is parsed straight away and kept as it is.</p>
+     *
+     * @return the tasks loaded from storage
+     */
+    private List<Task> loadTasks() {
+        String mode = System.getProperty(TASK_LIST_PROPERTY, "eager");
+        if (mode.equals("lazy")) {
+            return storage.readFileLazily();
+        }
+        return holdTasks(storage.readFile());
+    }
+
+    /**
+     * Creates the task list for loaded tasks, a {@link ConcurrentTaskList} if the {@code ryuji.taskList} system
+     * property is {@code concurrent}.
+     *
+     * @param tasks      the loaded tasks, in ID order
+     * @param lastUsedId the highest ID already given to a task, in the list or not, or 0
+     * @return the task list
+     */
+    private static TaskList createTaskList(List<Task> tasks, int lastUsedId) {
+        if (System.getProperty(TASK_LIST_PROPERTY, "eager").equals("concurrent")) {
+            return new ConcurrentTaskList(tasks, lastUsedId);
+        }
+        return new TaskList(tasks, lastUsedId);
+    }
+
+    /**
+     * Holds parsed tasks in the form chosen by the {@code ryuji.taskList} system property.
+     *
+     * @param tasks the parsed tasks, in ID order
+     * @return the tasks packed into a {@link CompactTaskRows} or {@link IndexedTaskRows}, or the tasks themselves
+     */
+    private static List<Task> holdTasks(List<Task> tasks) {
+        switch (System.getProperty(TASK_LIST_PROPERTY, "eager")) {
+        case "compact":
+            return new CompactTaskRows(tasks);
+        case "tree":
+            return new IndexedTaskRows(tasks);
+        default:
+            return tasks;
+        }
+    }
+
+    /**
+     * Starts watching the task file for tasks that other programs add to it.
+     * <p>Changes arrive on a background thread and are queued, then applied to the task list before the
+     * next command runs, so the list is only ever changed on the thread that runs commands. The user is told
+     * about each change with a follow-up message as soon as it arrives.</p>
+     */
+    private void watchStorage() {
         try {
-            this.tasks = new TaskList(this.storage.readFile());
-        } catch (Exception e) {
-            this.ui.showFailuretoLoadTaskListError();
-            this.tasks = new TaskList();
+            if (!storage.watchForExternalChanges(this::queueExternalChange)) {
+                ui.showFollowUp("Sorry master but I can only watch your task file for changes "
+                        + "in csv or segmented storage");
+            }
+        } catch (IOException e) {
+            ui.showFollowUp("Sorry master but I cannot watch your task file for changes: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Queues a change that another program made to the task file and tells the user about it.
+     *
+     * @param change the change made by another program
+     */
+    private void queueExternalChange(ExternalChange change) {
+        if (change.getError() != null) {
+            ui.showFollowUp("I had trouble reading the changes made to your task file master: "
+                    + change.getError());
+            return;
+        }
+        externalChanges.add(change);
+        if (change.isReload()) {
+            ui.showFollowUp("Your task file was changed by another program master, so I have read it again and "
+                    + "your list now has " + change.getTasks().size() + " tasks");
+            return;
+        }
+        if (!change.getTasks().isEmpty()) {
+            ui.showFollowUp("I have added " + change.getTasks().size()
+                    + " tasks that another program put in your task file master");
+        }
+        if (change.getUnreadableRows() > 0) {
+            ui.showFollowUp("I could not read " + change.getUnreadableRows()
+                    + " rows that another program put in your task file master");
+        }
+    }
+
+    /**
+     * Applies the changes other programs made to the task file to the task list, in the order they arrived.
+     * <p>Appended tasks already in the list are skipped; a file that was read again in full replaces the
+     * list.</p>
+     */
+    private void applyExternalChanges() {
+        ExternalChange change;
+        while ((change = externalChanges.poll()) != null) {
+            if (change.isReload()) {
+                tasks = createTaskList(holdTasks(change.getTasks()), storage.getLastUsedId());
+                continue;
+            }
+            List<Task> newTasks = new ArrayList<>();
+            for (Task task : change.getTasks()) {
+                if (tasks.findPosition(task.getId()) == 0) {
+                    newTasks.add(task);
+                }
+            }
+            tasks.addAllToList(newTasks);
         }
     }
 
@@ -58,20 +286,28 @@ public class Ryuji {
      * and execute user commands until the exit command is received.
      * It handles error messages, displays feedback to the user,
      * and ensures that the user can interact with the chatbot until they choose to exit.</p>
+     * <p>Lists of tasks are written to the console as they are rendered, ahead of the rest of the reply, so
+     * listing a long task list never holds all of it as one piece of text.</p>
      */
     public void run() {
+        PrintWriter console = new PrintWriter(System.out);
+        ui.setConsole(console);
+        console.println(Ui.showWelcome());
         boolean isExit = false;
-        while (!isExit) {
+        while (!isExit && ui.hasCommand()) {
             try {
                 String fullCommand = ui.readCommand();
-                ui.showLine(); // show the divider line ("_______")
+                console.println(ui.showLine()); // show the divider line ("_______")
                 Command c = parser.parse(fullCommand);
+                applyExternalChanges();
                 response = c.execute(tasks, ui, storage);
+                console.println(response);
                 isExit = c.isExit();
             } catch (Exception e) {
-                ui.showError(e.getMessage());
+                console.println(ui.showError(e.getMessage()));
             } finally {
-                ui.showLine();
+                console.println(ui.showLine());
+                console.flush();
             }
         }
     }
@@ -88,12 +324,24 @@ public class Ryuji {
     public String getResponse(String input) {
         try {
             Command c = parser.parse(input);
+            applyExternalChanges();
             return response = c.execute(tasks, ui, storage);
         } catch (Exception e) {
             return response = ui.showError(e.getMessage());
         }
     }
 
+    /**
+     * Sets where messages that arrive after a response has been given are shown, such as a change that
+     * could not be saved in the background.
+     * <p>The listener may be called from a background thread.</p>
+     *
+     * @param followUpListener the receiver of follow-up messages
+     */
+    public void setFollowUpListener(Consumer<String> followUpListener) {
+        ui.setFollowUpListener(followUpListener);
+    }
+
     public String getFilePathForCurrentStorage() {
         return storage.getFilePath();
     }
@@ -1,7 +1,14 @@
 package ryuji.ui;
 
+import ryuji.task.Task;
 import ryuji.task.TaskList;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.List;
 import java.util.Scanner;
+import java.util.function.Consumer;
 
 /**
  * The {@code Ui} class handles all interactions with the user.
@@ -34,11 +41,34 @@ public class Ui {
      */
     private static final String FAREWELL = "Bye. Hope to see you again soon!\n";
 
+    /**
+     * The number of clashing events listed when an event is added, beyond which only a count is given.
+     */
+    private static final int MAX_SHOWN_CLASHES = 5;
+
+    /**
+     * The number of tasks a reply lists at most when it is returned as one piece of text, as the GUI shows it,
+     * rather than written to a console as the tasks are rendered.
+     */
+    private static final int MAX_SHOWN_TASKS = 1000;
+
     /**
      * Scanner used to read user input from the standard input stream (console).
      */
     private Scanner scanner = new Scanner(System.in);
 
+    /**
+     * Receives messages that arrive after a command has already replied, such as a change that could not be
+     * saved in the background. On the console they are printed straight away.
+     */
+    private Consumer<String> followUpListener = System.out::println;
+
+    /**
+     * The console that lists of tasks are written to as they are rendered, or null if replies are only returned
+     * as text, as they are to the GUI.
+     */
+    private Writer console;
+
     /**
      * Displays the welcome message and logo when the application starts.
      *
@@ -73,7 +103,115 @@ public class Ui {
      * @return a string representation of the task list
      */
     public String displayTaskList(TaskList tasks) {
-        return tasks.toString();
+        return displayTaskList(tasks, 0, tasks.size());
+    }
+
+    /**
+     * Displays a stretch of a list of tasks, numbered by their positions in the list.
+     *
+     * @param tasks the list the tasks are in
+     * @param from  the 0-based index of the first task to display
+     * @param count the largest number of tasks to display
+     * @return the tasks as text, or an empty string if they were written to the console
+     * @see #displayTaskList(TaskList, int, int, TaskList)
+     */
+    public String displayTaskList(TaskList tasks, int from, int count) {
+        return displayTaskList(tasks, from, count, tasks);
+    }
+
+    /**
+     * Displays a stretch of a list of tasks, numbered by their positions in another list, such as the full list
+     * a filtered list was taken from.
+     * <p>If a console has been set, the tasks are written to it a chunk at a time as they are rendered and
+     * nothing is returned, so listing any number of tasks takes the same memory. Otherwise at most
+     * {@value #MAX_SHOWN_TASKS} tasks are returned, followed by how many were left out.</p>
+     *
+     * @param tasks      the list the tasks are in
+     * @param from       the 0-based index of the first task to display
+     * @param count      the largest number of tasks to display
+     * @param numberedBy the list whose positions the tasks are numbered by, which may be {@code tasks} itself
+     * @return the tasks as text, or an empty string if they were written to the console
+     */
+    public String displayTaskList(TaskList tasks, int from, int count, TaskList numberedBy) {
+        int size = tasks.size();
+        int to = (int) Math.min(size, (long) from + count);
+        String header;
+        if (from >= size && from > 0) {
+            header = "There are no more tasks to show master\n";
+        } else if (from == 0 && to == size) {
+            header = "Here are the tasks you requested master\n";
+        } else {
+            header = "Here are tasks " + (from + 1) + " to " + to + " of the " + size + " you requested master\n";
+        }
+        int shown = Math.max(0, to - from);
+        Writer out = console != null ? console : new StringWriter();
+        if (console == null) {
+            shown = Math.min(shown, MAX_SHOWN_TASKS);
+        }
+        try {
+            out.write(header);
+            tasks.writeTo(out, from, shown, numberedBy);
+            if (shown < to - from) {
+                out.write("and " + (to - from - shown) + " more from #" + tasks.getTask(from + shown + 1).getId()
+                        + " on, which are too many to show at once master\n");
+            }
+            out.flush();
+        } catch (IOException e) {
+            return "I could not write your tasks to the console master: " + e.getMessage();
+        }
+        return console != null ? "" : out.toString();
+    }
+
+    /**
+     * Displays tasks that have been archived out of the task list.
+     * <p>Archived tasks have no position in the list, so each is shown with its ID only.</p>
+     *
+     * @param archived the archived tasks to display
+     * @return a string listing the archived tasks, or a note that there are none
+     */
+    public String displayArchivedTasks(List<Task> archived) {
+        if (archived.isEmpty()) {
+            return "There are no stored away tasks to show master\n";
+        }
+        StringBuilder sb = new StringBuilder("Here are the tasks I have stored away master\n");
+        for (Task task : archived) {
+            sb.append("- ").append(task).append(" (#").append(task.getId()).append(")\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Displays the deadlines and events whose date could not be read, apart from those found in a range of
+     * dates, since they could be due on any date.
+     *
+     * @param tasks the tasks without a readable date
+     * @return a string listing the tasks with their IDs
+     */
+    public String displayTasksWithUnreadDates(List<Task> tasks) {
+        StringBuilder sb = new StringBuilder("I could not read the dates of these tasks master, so check them too\n");
+        for (Task task : tasks) {
+            sb.append("- ").append(task).append(" (#").append(task.getId()).append(")\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Displays the events that share a day with an event that was just added.
+     * <p>Only the first few are listed, so adding an event to a busy week does not flood the chat.</p>
+     *
+     * @param clashes the clashing events, earliest start first
+     * @return a warning listing the clashing events with their IDs
+     */
+    public String displayClashes(List<Task> clashes) {
+        StringBuilder sb = new StringBuilder("Heads up master, this clashes with\n");
+        for (int i = 0; i < Math.min(clashes.size(), MAX_SHOWN_CLASHES); i++) {
+            Task clash = clashes.get(i);
+            sb.append("- ").append(clash).append(" (#").append(clash.getId()).append(")\n");
+        }
+        if (clashes.size() > MAX_SHOWN_CLASHES) {
+            sb.append("and ").append(clashes.size() - MAX_SHOWN_CLASHES).append(" more\n");
+        }
+        return sb.toString();
     }
 
     /**
@@ -85,6 +223,16 @@ public class Ui {
         return scanner.nextLine();
     }
 
+    /**
+     * Checks whether there is another line of user input to read, which there is not once the console's input
+     * has been closed.
+     *
+     * @return {@code true} if {@link #readCommand()} has a line to return
+     */
+    public boolean hasCommand() {
+        return scanner.hasNextLine();
+    }
+
     /**
      * Displays an error message to the user.
      *
@@ -95,6 +243,36 @@ public class Ui {
         return new RyujiException(exception).getMessage();
     }
 
+    /**
+     * Sets where messages that arrive after a command has already replied are shown.
+     * <p>The listener may be called from a background thread, so a GUI must hand the message over to its own
+     * thread before showing it.</p>
+     *
+     * @param followUpListener the receiver of follow-up messages
+     */
+    public void setFollowUpListener(Consumer<String> followUpListener) {
+        this.followUpListener = followUpListener;
+    }
+
+    /**
+     * Sets the console that lists of tasks are written to as they are rendered, instead of being returned as
+     * one piece of text.
+     *
+     * @param console the console to write to, or null to return every reply as text
+     */
+    public void setConsole(Writer console) {
+        this.console = console;
+    }
+
+    /**
+     * Shows a message after the reply to the user's command has already been given.
+     *
+     * @param message the message to show
+     */
+    public void showFollowUp(String message) {
+        followUpListener.accept(message);
+    }
+
     /**
      * Displays an error message when the task list fails to load from file.
      * An empty list will be initialized in this case.
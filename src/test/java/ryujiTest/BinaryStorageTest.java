@@ -0,0 +1,94 @@
+package ryujiTest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+import static ryujiTest.TestTasks.describe;
+
+import ryuji.command.AddCommand;
+import ryuji.command.DeleteCommand;
+import ryuji.command.MarkCommand;
+import ryuji.storage.BinaryStorage;
+import ryuji.task.Deadline;
+import ryuji.task.Event;
+import ryuji.task.Task;
+import ryuji.task.TaskList;
+import ryuji.task.ToDo;
+import ryuji.ui.Ui;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class BinaryStorageTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void deletingTheFirstMiddleAndLastRecordsShouldSurviveARestart() throws IOException {
+        String file = dir.resolve("tasks.csv").toString();
+        BinaryStorage storage = new BinaryStorage(file);
+        TaskList tasks = new TaskList(storage.readFile());
+        Ui ui = new Ui();
+        new AddCommand("todo", new ToDo("read book")).execute(tasks, ui, storage);
+        new AddCommand("deadline", new Deadline("pay rent /by 2025-12-01")).execute(tasks, ui, storage);
+        new AddCommand("event", new Event("JMOF /from 2025-11-20 /to 2025-11-22")).execute(tasks, ui, storage);
+        new AddCommand("todo", new ToDo("fill in notebook, twice")).execute(tasks, ui, storage);
+        new AddCommand("todo", new ToDo("return book")).execute(tasks, ui, storage);
+        new MarkCommand("mark", 4).execute(tasks, ui, storage);
+        new DeleteCommand("delete", 5).execute(tasks, ui, storage);
+        new DeleteCommand("delete", 1).execute(tasks, ui, storage);
+        new DeleteCommand("delete", 2).execute(tasks, ui, storage);
+        new MarkCommand("mark", 1).execute(tasks, ui, storage);
+        storage.flush();
+
+        List<Task> reloaded = new BinaryStorage(file).readFile();
+        assertEquals(2, reloaded.size());
+        assertEquals(2, reloaded.get(0).getId());
+        assertEquals(4, reloaded.get(1).getId());
+        assertEquals(describe(tasks.asList()), describe(reloaded));
+
+        BinaryStorage restarted = new BinaryStorage(file);
+        tasks = new TaskList(restarted.readFile(), restarted.getLastUsedId());
+        new AddCommand("todo", new ToDo("buy bread")).execute(tasks, ui, restarted);
+        new DeleteCommand("delete", 2).execute(tasks, ui, restarted);
+        restarted.flush();
+        reloaded = new BinaryStorage(file).readFile();
+        assertEquals(6, reloaded.get(1).getId());
+        assertEquals(describe(tasks.asList()), describe(reloaded));
+    }
+
+    @Test
+    void recordsWithoutIdsShouldBeNumberedOnceAndKeepTheirIdsAfterARestart() throws IOException {
+        String file = dir.resolve("tasks.csv").toString();
+        String[] labels = {"read book", "return book", "call mum"};
+        ByteBuffer records = ByteBuffer.allocate(16 + 16 * labels.length);
+        records.putInt(0x52594A42).putInt(1).putInt(labels.length).putInt(0);
+        ByteArrayOutputStream heap = new ByteArrayOutputStream();
+        for (int i = 0; i < labels.length; i++) {
+            byte[] label = labels[i].getBytes(StandardCharsets.UTF_8);
+            records.put((byte) 'T').put((byte) (i == 1 ? 1 : 0)).putShort((short) 0);
+            records.putInt(label.length).putLong(heap.size());
+            heap.write(label);
+        }
+        Files.write(Path.of(file + ".records"), records.array());
+        Files.write(Path.of(file + ".labels"), heap.toByteArray());
+
+        BinaryStorage storage = new BinaryStorage(file);
+        TaskList tasks = new TaskList(storage.readFile());
+        assertEquals("#1 [T][ ] read book\n#2 [T][X] return book\n#3 [T][ ] call mum\n", describe(tasks.asList()));
+        Ui ui = new Ui();
+        new DeleteCommand("delete", 1).execute(tasks, ui, storage);
+        new MarkCommand("mark", 2).execute(tasks, ui, storage);
+        storage.flush();
+
+        ByteBuffer header = ByteBuffer.wrap(Files.readAllBytes(Path.of(file + ".records")));
+        assertEquals(2, header.getInt(4));
+        assertEquals("#2 [T][X] return book\n#3 [T][X] call mum\n", describe(new BinaryStorage(file).readFile()));
+    }
+}
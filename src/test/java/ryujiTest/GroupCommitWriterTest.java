@@ -0,0 +1,38 @@
+package ryujiTest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import ryuji.storage.DurabilityPolicy;
+import ryuji.storage.GroupCommitWriter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class GroupCommitWriterTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void linesThatFailToBeWrittenShouldBeKeptAndReportedUntilARetrySucceeds() throws IOException {
+        Path file = dir.resolve("tasks.csv");
+        Files.createDirectory(file);
+        GroupCommitWriter writer = new GroupCommitWriter(file, DurabilityPolicy.OS_BUFFERED, 0);
+        writer.append("1,T, ,read book");
+
+        assertThrows(IOException.class, () -> writer.drain());
+        assertThrows(IOException.class, () -> writer.append("2,T, ,return book"));
+        assertThrows(IOException.class, () -> writer.flush());
+
+        Files.delete(file);
+        writer.flush();
+        assertEquals(List.of("1,T, ,read book", "2,T, ,return book"), Files.readAllLines(file));
+        writer.append("3,T, ,call mum");
+        writer.close();
+        assertEquals(3, Files.readAllLines(file).size());
+    }
+}
@@ -0,0 +1,111 @@
+package ryujiTest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+import static ryujiTest.TestTasks.describe;
+
+import ryuji.command.AddCommand;
+import ryuji.command.DeleteCommand;
+import ryuji.command.ExitCommand;
+import ryuji.command.MarkCommand;
+import ryuji.storage.JournalStorage;
+import ryuji.task.TaskList;
+import ryuji.task.ToDo;
+import ryuji.ui.Ui;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class JournalStorageTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void changesShouldBeReplayedFromTheJournalAfterARestart() throws IOException {
+        String file = dir.resolve("tasks.csv").toString();
+        JournalStorage storage = new JournalStorage(file);
+        TaskList tasks = new TaskList(storage.readFile());
+        Ui ui = new Ui();
+        new AddCommand("todo", new ToDo("read book")).execute(tasks, ui, storage);
+        new AddCommand("todo", new ToDo("return book")).execute(tasks, ui, storage);
+        new AddCommand("todo", new ToDo("fill in notebook, twice")).execute(tasks, ui, storage);
+        new MarkCommand("mark", 2).execute(tasks, ui, storage);
+        new DeleteCommand("delete", 1).execute(tasks, ui, storage);
+        storage.flush();
+
+        assertEquals(0, Files.size(Path.of(file)));
+        assertEquals("#2 [T][X] return book\n#3 [T][ ] fill in notebook, twice\n",
+                describe(new JournalStorage(file).readFile()));
+
+        JournalStorage restarted = new JournalStorage(file);
+        tasks = new TaskList(restarted.readFile());
+        new AddCommand("todo", new ToDo("buy bread")).execute(tasks, ui, restarted);
+        new DeleteCommand("delete", 1).execute(tasks, ui, restarted);
+        restarted.flush();
+        assertEquals("#3 [T][ ] fill in notebook, twice\n#4 [T][ ] buy bread\n",
+                describe(new JournalStorage(file).readFile()));
+    }
+
+    @Test
+    void changesAfterACompactionOrCheckpointShouldBeReplayedExactlyOnce() throws IOException {
+        String file = dir.resolve("tasks.csv").toString();
+        JournalStorage storage = new JournalStorage(file);
+        TaskList tasks = new TaskList(storage.readFile());
+        Ui ui = new Ui();
+        for (int i = 1; i <= 4; i++) {
+            new AddCommand("todo", new ToDo("task " + i)).execute(tasks, ui, storage);
+        }
+        new MarkCommand("mark", 1).execute(tasks, ui, storage);
+        storage.flush();
+        storage.compact();
+
+        assertTrue(Files.exists(Path.of(file + ".snapshot")));
+        assertFalse(Files.exists(Path.of(file + ".journal.0")));
+        new DeleteCommand("delete", 2).execute(tasks, ui, storage);
+        new AddCommand("todo", new ToDo("task 5")).execute(tasks, ui, storage);
+        storage.flush();
+        JournalStorage restarted = new JournalStorage(file);
+        tasks = new TaskList(restarted.readFile());
+        assertEquals("#1 [T][X] task 1\n#3 [T][ ] task 3\n#4 [T][ ] task 4\n#5 [T][ ] task 5\n",
+                describe(tasks.asList()));
+
+        new ExitCommand("bye").execute(tasks, ui, restarted);
+        new DeleteCommand("delete", 1).execute(tasks, ui, restarted);
+        new MarkCommand("mark", 3).execute(tasks, ui, restarted);
+        restarted.flush();
+        assertEquals("#3 [T][ ] task 3\n#4 [T][ ] task 4\n#5 [T][X] task 5\n",
+                describe(new JournalStorage(file).readFile()));
+
+        restarted.compact();
+        assertFalse(Files.exists(Path.of(file + ".journal.1")));
+        assertEquals(describe(tasks.asList()), describe(new JournalStorage(file).readFile()));
+    }
+
+    @Test
+    void idsOfDeletedTasksShouldNotBeHandedOutAgainAfterACheckpointOrCompaction() throws IOException {
+        String file = dir.resolve("tasks.csv").toString();
+        JournalStorage storage = new JournalStorage(file);
+        TaskList tasks = new TaskList(storage.readFile(), storage.getLastUsedId());
+        Ui ui = new Ui();
+        new AddCommand("todo", new ToDo("read book")).execute(tasks, ui, storage);
+        new AddCommand("todo", new ToDo("return book")).execute(tasks, ui, storage);
+        new DeleteCommand("delete", 2).execute(tasks, ui, storage);
+        new ExitCommand("bye").execute(tasks, ui, storage);
+
+        JournalStorage restarted = new JournalStorage(file);
+        tasks = new TaskList(restarted.readFile(), restarted.getLastUsedId());
+        new AddCommand("todo", new ToDo("call mum")).execute(tasks, ui, restarted);
+        new DeleteCommand("delete", 2).execute(tasks, ui, restarted);
+        restarted.flush();
+        restarted.compact();
+
+        JournalStorage again = new JournalStorage(file);
+        tasks = new TaskList(again.readFile(), again.getLastUsedId());
+        new AddCommand("todo", new ToDo("buy bread")).execute(tasks, ui, again);
+        again.flush();
+        assertEquals("#1 [T][ ] read book\n#4 [T][ ] buy bread\n", describe(new JournalStorage(file).readFile()));
+    }
+}
@@ -0,0 +1,35 @@
+package ryujiTest;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import ryuji.command.ListCommand;
+import ryuji.storage.InMemoryStorage;
+import ryuji.task.TaskFilter;
+import ryuji.task.TaskList;
+import ryuji.task.ToDo;
+import ryuji.ui.Ui;
+
+public class ListCommandTest {
+
+    @Test
+    void filteredPageShouldNumberTasksByTheirPositionsInTheFullList() {
+        TaskList tasks = new TaskList();
+        for (int i = 1; i <= 8; i++) {
+            tasks.addToList(new ToDo("task " + i));
+        }
+        tasks.mark(1);
+        tasks.mark(3);
+        tasks.mark(4);
+        tasks.deleteFromList(2);
+        TaskFilter open = new TaskFilter(TaskFilter.Status.OPEN, null);
+
+        String page = new ListCommand("list", false, open, 2, 0, 2).execute(tasks, new Ui(), new InMemoryStorage());
+        assertEquals("Here are tasks 3 to 4 of the 4 you requested master\n"
+                + "6. [T][ ] task 7 (#7)\n7. [T][ ] task 8 (#8)\n", page);
+
+        String after = new ListCommand("list", false, open, 0, 5, 1).execute(tasks, new Ui(), new InMemoryStorage());
+        assertEquals("Here are tasks 2 to 2 of the 4 you requested master\n"
+                + "5. [T][ ] task 6 (#6)\n", after);
+    }
+}
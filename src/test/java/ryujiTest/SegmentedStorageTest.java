@@ -0,0 +1,52 @@
+package ryujiTest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+import static ryujiTest.TestTasks.describe;
+
+import ryuji.command.AddCommand;
+import ryuji.command.ExitCommand;
+import ryuji.command.MarkCommand;
+import ryuji.storage.SegmentedStorage;
+import ryuji.task.TaskList;
+import ryuji.task.ToDo;
+import ryuji.ui.Ui;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+public class SegmentedStorageTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void completedTasksShouldBeArchivedOnExitAndReadBackAsHistory() throws IOException {
+        String file = dir.resolve("tasks.csv").toString();
+        SegmentedStorage storage = new SegmentedStorage(file);
+        TaskList tasks = new TaskList(storage.readFile(), storage.getLastUsedId());
+        Ui ui = new Ui();
+        for (int i = 1; i <= 5; i++) {
+            new AddCommand("todo", new ToDo("task " + i)).execute(tasks, ui, storage);
+        }
+        new MarkCommand("mark", 2).execute(tasks, ui, storage);
+        new MarkCommand("mark", 5).execute(tasks, ui, storage);
+        new ExitCommand("bye").execute(tasks, ui, storage);
+
+        SegmentedStorage restarted = new SegmentedStorage(file);
+        assertEquals("#1 [T][ ] task 1\n#3 [T][ ] task 3\n#4 [T][ ] task 4\n", describe(restarted.readFile()));
+        assertEquals("#2 [T][X] task 2\n#5 [T][X] task 5\n", describe(restarted.readHistory()));
+        assertEquals(5, restarted.getLastUsedId());
+
+        tasks = new TaskList(restarted.readFile(), restarted.getLastUsedId());
+        new AddCommand("todo", new ToDo("task 6")).execute(tasks, ui, restarted);
+        new MarkCommand("mark", 1).execute(tasks, ui, restarted);
+        new ExitCommand("bye").execute(tasks, ui, restarted);
+
+        SegmentedStorage again = new SegmentedStorage(file);
+        assertEquals("#3 [T][ ] task 3\n#4 [T][ ] task 4\n#6 [T][ ] task 6\n", describe(again.readFile()));
+        assertEquals("#1 [T][X] task 1\n#2 [T][X] task 2\n#5 [T][X] task 5\n", describe(again.readHistory()));
+        assertEquals(6, again.getLastUsedId());
+    }
+}
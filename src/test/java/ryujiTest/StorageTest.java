@@ -0,0 +1,184 @@
+package ryujiTest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+import static ryujiTest.TestTasks.describe;
+
+import ryuji.command.AddCommand;
+import ryuji.command.DeleteCommand;
+import ryuji.command.ExitCommand;
+import ryuji.command.MarkCommand;
+import ryuji.command.UnmarkCommand;
+import ryuji.storage.DurabilityPolicy;
+import ryuji.storage.ExternalChange;
+import ryuji.storage.Storage;
+import ryuji.task.TaskList;
+import ryuji.task.ToDo;
+import ryuji.ui.Ui;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+public class StorageTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void rowsAppendedInTheBackgroundShouldAllBeSavedOnExitUnderEveryPolicy() {
+        Ui ui = new Ui();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 1; i <= 300; i++) {
+            expected.append('#').append(i).append(" [T][ ] task ").append(i).append(", in a batch\n");
+        }
+        for (DurabilityPolicy policy : DurabilityPolicy.values()) {
+            String file = dir.resolve(policy + ".csv").toString();
+            Storage storage = new Storage(file);
+            storage.setDurability(policy, 20);
+            TaskList tasks = new TaskList(storage.readFile());
+            for (int i = 1; i <= 300; i++) {
+                new AddCommand("todo", new ToDo("task " + i + ", in a batch")).execute(tasks, ui, storage);
+            }
+            new ExitCommand("bye").execute(tasks, ui, storage);
+
+            assertEquals(expected.toString(), describe(new Storage(file).readFile()));
+        }
+    }
+
+    @Test
+    void rowsChangedInPlaceShouldBeReloadedThroughTheSavedIndex() throws IOException {
+        Path file = dir.resolve("tasks.csv");
+        Files.write(file, List.of("T, ,read book", "T,X,return book", "T, ,fill in notebook, twice",
+                "T, ,buy bread", "T, ,call mum"));
+        Storage storage = new Storage(file.toString());
+        TaskList tasks = new TaskList(storage.readFile());
+        Ui ui = new Ui();
+        new MarkCommand("mark", 3).execute(tasks, ui, storage);
+        new DeleteCommand("delete", 2).execute(tasks, ui, storage);
+        new ExitCommand("bye").execute(tasks, ui, storage);
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(5, lines.size());
+        assertEquals("1,T, ,read book", lines.get(0));
+        assertTrue(lines.get(1).startsWith("-"));
+        assertEquals("3,T,X,fill in notebook, twice", lines.get(2));
+        assertTrue(Files.exists(Path.of(file + ".idx")));
+
+        Storage restarted = new Storage(file.toString());
+        tasks = new TaskList(restarted.readFile());
+        assertEquals("#1 [T][ ] read book\n#3 [T][X] fill in notebook, twice\n#4 [T][ ] buy bread\n"
+                + "#5 [T][ ] call mum\n", describe(tasks.asList()));
+        new DeleteCommand("delete", 4).execute(tasks, ui, restarted);
+        new UnmarkCommand("unmark", 2).execute(tasks, ui, restarted);
+        new ExitCommand("bye").execute(tasks, ui, restarted);
+        assertEquals(5, Files.readAllLines(file).size());
+        assertEquals(describe(tasks.asList()), describe(new Storage(file.toString()).readFile()));
+
+        Files.write(file, List.of("6,T, ,water plants"), StandardOpenOption.APPEND);
+        Storage changedOutside = new Storage(file.toString());
+        tasks = new TaskList(changedOutside.readFile());
+        new MarkCommand("mark", 4).execute(tasks, ui, changedOutside);
+        new DeleteCommand("delete", 1).execute(tasks, ui, changedOutside);
+        new ExitCommand("bye").execute(tasks, ui, changedOutside);
+        assertEquals("#3 [T][ ] fill in notebook, twice\n#4 [T][ ] buy bread\n#6 [T][X] water plants\n",
+                describe(new Storage(file.toString()).readFile()));
+    }
+
+    @Test
+    void theIdOfADeletedNewestTaskShouldNotBeHandedOutAgainAfterARestart() {
+        String file = dir.resolve("tasks.csv").toString();
+        Storage storage = new Storage(file);
+        TaskList tasks = new TaskList(storage.readFile(), storage.getLastUsedId());
+        Ui ui = new Ui();
+        new AddCommand("todo", new ToDo("read book")).execute(tasks, ui, storage);
+        new AddCommand("todo", new ToDo("return book")).execute(tasks, ui, storage);
+        new AddCommand("todo", new ToDo("call mum")).execute(tasks, ui, storage);
+        new DeleteCommand("delete", 3).execute(tasks, ui, storage);
+        new ExitCommand("bye").execute(tasks, ui, storage);
+
+        Storage restarted = new Storage(file);
+        tasks = new TaskList(restarted.readFile(), restarted.getLastUsedId());
+        new AddCommand("todo", new ToDo("buy bread")).execute(tasks, ui, restarted);
+        new DeleteCommand("delete", 3).execute(tasks, ui, restarted);
+        new DeleteCommand("delete", 2).execute(tasks, ui, restarted);
+        new ExitCommand("bye").execute(tasks, ui, restarted);
+
+        Storage again = new Storage(file);
+        tasks = new TaskList(again.readFile(), again.getLastUsedId());
+        new AddCommand("todo", new ToDo("fill in notebook")).execute(tasks, ui, again);
+        new ExitCommand("bye").execute(tasks, ui, again);
+        assertEquals("#1 [T][ ] read book\n#5 [T][ ] fill in notebook\n", describe(new Storage(file).readFile()));
+    }
+
+    @Test
+    void rowsOtherProgramsAppendShouldBePickedUpOnceTheirLinesAreComplete() throws Exception {
+        Path file = dir.resolve("tasks.csv");
+        Files.write(file, List.of("1,T, ,read book"));
+        Storage storage = new Storage(file.toString());
+        TaskList tasks = new TaskList(storage.readFile());
+        BlockingQueue<ExternalChange> changes = new LinkedBlockingQueue<>();
+        assertTrue(storage.watchForExternalChanges(changes::add));
+        Ui ui = new Ui();
+
+        // every change made in place first catches up with the file, so flushing one settles what was seen
+        Files.writeString(file, "2,T, ,return bo", StandardOpenOption.APPEND);
+        new MarkCommand("mark", 1).execute(tasks, ui, storage);
+        storage.flush();
+        assertTrue(changes.isEmpty());
+
+        Files.writeString(file, "ok, twice\n", StandardOpenOption.APPEND);
+        new UnmarkCommand("unmark", 1).execute(tasks, ui, storage);
+        storage.flush();
+        ExternalChange change = changes.poll();
+        assertNotNull(change);
+        assertFalse(change.isReload());
+        assertEquals("#2 [T][ ] return book, twice\n", describe(change.getTasks()));
+        tasks.addAllToList(change.getTasks());
+
+        new AddCommand("todo", new ToDo("call mum")).execute(tasks, ui, storage);
+        new MarkCommand("mark", 2).execute(tasks, ui, storage);
+        new MarkCommand("mark", 1).execute(tasks, ui, storage);
+        new ExitCommand("bye").execute(tasks, ui, storage);
+        assertTrue(changes.isEmpty());
+        assertEquals("#1 [T][X] read book\n#2 [T][X] return book, twice\n#3 [T][ ] call mum\n",
+                describe(new Storage(file.toString()).readFile()));
+    }
+
+    @Test
+    void rowsOtherProgramsAppendWithoutIdsShouldBeGivenIdsNoTaskHasHad() throws Exception {
+        Path file = dir.resolve("tasks.csv");
+        Storage storage = new Storage(file.toString());
+        TaskList tasks = new TaskList(storage.readFile(), storage.getLastUsedId());
+        Ui ui = new Ui();
+        for (int i = 1; i <= 5; i++) {
+            new AddCommand("todo", new ToDo("task " + i)).execute(tasks, ui, storage);
+        }
+        for (int i = 1; i <= 3; i++) {
+            new DeleteCommand("delete", 1).execute(tasks, ui, storage);
+        }
+        new ExitCommand("bye").execute(tasks, ui, storage);
+
+        Storage restarted = new Storage(file.toString());
+        tasks = new TaskList(restarted.readFile(), restarted.getLastUsedId());
+        BlockingQueue<ExternalChange> changes = new LinkedBlockingQueue<>();
+        assertTrue(restarted.watchForExternalChanges(changes::add));
+        Files.writeString(file, "T, ,read book\nT, ,return book\n", StandardOpenOption.APPEND);
+        new MarkCommand("mark", 1).execute(tasks, ui, restarted);
+        restarted.flush();
+        ExternalChange change = changes.poll();
+        assertNotNull(change);
+        assertEquals("#6 [T][ ] read book\n#7 [T][ ] return book\n", describe(change.getTasks()));
+        tasks.addAllToList(change.getTasks());
+
+        new MarkCommand("mark", 4).execute(tasks, ui, restarted);
+        new ExitCommand("bye").execute(tasks, ui, restarted);
+        assertEquals("#4 [T][X] task 4\n#5 [T][ ] task 5\n#6 [T][ ] read book\n#7 [T][X] return book\n",
+                describe(new Storage(file.toString()).readFile()));
+    }
+}
@@ -0,0 +1,250 @@
+package ryujiTest;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import ryuji.task.CompactTaskRows;
+import ryuji.task.ConcurrentTaskList;
+import ryuji.task.DateTimeHandler;
+import ryuji.task.Deadline;
+import ryuji.task.Event;
+import ryuji.task.IndexedTaskRows;
+import ryuji.task.Task;
+import ryuji.task.TaskFilter;
+import ryuji.task.TaskList;
+import ryuji.task.ToDo;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.LocalDate;
+import java.util.List;
+
+public class TaskListTest {
+
+    @Test
+    void findShouldMatchSubstringsInsideWords() {
+        TaskList tasks = new TaskList();
+        tasks.addToList(new ToDo("return book"));
+        tasks.addToList(new ToDo("fill in notebook"));
+        tasks.addToList(new ToDo("read Book"));
+
+        assertEquals(2, tasks.find("book").size());
+        assertEquals(1, tasks.find("n book").size());
+        assertEquals("return book", tasks.find("n book").getTask(1).getLabel());
+        assertEquals(0, tasks.find("book return").size());
+        assertEquals(3, tasks.find("ok").size());
+    }
+
+    @Test
+    void findShouldFollowAddedAndDeletedTasks() {
+        TaskList tasks = new TaskList();
+        tasks.addToList(new ToDo("make coffee"));
+        assertEquals(1, tasks.find("coffee").size());
+
+        tasks.addToList(new ToDo("buy coffee beans"));
+        assertEquals(2, tasks.find("coffee").size());
+
+        tasks.deleteFromList(1);
+        assertEquals(1, tasks.find("coffee").size());
+        assertEquals("buy coffee beans", tasks.find("coffee").getTask(1).getLabel());
+    }
+
+    @Test
+    void findFuzzyShouldRankTasksByTypos() {
+        TaskList tasks = new TaskList();
+        tasks.addToList(new ToDo("make Coffee"));
+        tasks.addToList(new ToDo("buy coffe"));
+        tasks.addToList(new ToDo("call office"));
+
+        TaskList found = tasks.findFuzzy("coffe");
+        assertEquals(2, found.size());
+        assertEquals("buy coffe", found.getTask(1).getLabel());
+        assertEquals("make Coffee", found.getTask(2).getLabel());
+
+        assertEquals(1, tasks.findFuzzy("mak cofee").size());
+        assertEquals(0, tasks.findFuzzy("by").size());
+
+        tasks.deleteFromList(2);
+        assertEquals("make Coffee", tasks.findFuzzy("coffe").getTask(1).getLabel());
+    }
+
+    @Test
+    void findDueShouldUseDatesAndReportUnreadDatesApart() {
+        TaskList tasks = new TaskList();
+        tasks.addToList(new Deadline("pay rent /by 2025-12-01"));
+        tasks.addToList(new Event("JMOF /from 2025-11-20 /to 2025-11-22"));
+        tasks.addToList(new Deadline("call mum /by Sunday"));
+        tasks.addToList(new ToDo("make coffee"));
+
+        TaskList before = tasks.findDueBefore(LocalDate.of(2025, 12, 1));
+        assertEquals(1, before.size());
+        assertEquals("JMOF", before.getTask(1).getLabel().trim());
+
+        TaskList between = tasks.findDueBetween(LocalDate.of(2025, 11, 1), LocalDate.of(2025, 12, 1));
+        assertEquals(2, between.size());
+        assertEquals("JMOF", between.getTask(1).getLabel().trim());
+
+        String savedDate = DateTimeHandler.formatDetectedDate(LocalDate.of(2025, 11, 25));
+        tasks.addToList(new Deadline("submit report /by " + savedDate));
+        assertEquals(3, tasks.findDueBetween(LocalDate.of(2025, 11, 1), LocalDate.of(2025, 12, 1)).size());
+        assertEquals(1, tasks.findUnreadDates().size());
+
+        tasks.deleteFromList(1);
+        assertEquals(2, tasks.findDueBetween(LocalDate.of(2025, 11, 1), LocalDate.of(2025, 12, 1)).size());
+    }
+
+    @Test
+    void findEventsDuringShouldFindOverlapsAndClashes() {
+        TaskList tasks = new TaskList();
+        tasks.addToList(new Event("JMOF /from 2026-01-09 /to 2026-01-11"));
+        tasks.addToList(new Event("ski trip /from 2026-01-01 /to 2026-01-20"));
+        tasks.addToList(new Event("dinner /from 2026-01-12 /to 2026-01-12"));
+        tasks.addToList(new Event("party /from Friday /to Saturday"));
+
+        assertEquals(2, tasks.findEventsDuring(LocalDate.of(2026, 1, 11), LocalDate.of(2026, 1, 11)).size());
+        TaskList during = tasks.findEventsDuring(LocalDate.of(2026, 1, 10), LocalDate.of(2026, 1, 12));
+        assertEquals(3, during.size());
+        assertEquals("ski trip", during.getTask(1).getLabel().trim());
+        assertEquals(0, tasks.findEventsDuring(LocalDate.of(2026, 1, 21), LocalDate.of(2026, 2, 1)).size());
+        assertEquals(1, tasks.findEventsWithUnreadDates().size());
+
+        Event brunch = new Event("brunch /from 2026-01-12 /to 2026-01-12");
+        tasks.addToList(brunch);
+        assertEquals(2, tasks.findClashes(brunch).size());
+
+        tasks.deleteFromList(2);
+        assertEquals(1, tasks.findClashes(brunch).size());
+    }
+
+    @Test
+    void compactTaskRowsShouldKeepMarksAndDatesOfTasks() {
+        TaskList source = new TaskList();
+        source.addToList(new ToDo("return book"));
+        source.addToList(new Deadline("JMOF /by 2025-11-20"));
+        source.addToList(new Event("party /from Friday /to 2026-01-03"));
+        source.addToList(new ToDo("read Book"));
+        source.mark(4);
+        TaskList tasks = new TaskList(new CompactTaskRows(source.asList()));
+
+        assertEquals(source.toString(), tasks.toString());
+        tasks.mark(1);
+        tasks.deleteFromList(2);
+        assertTrue(tasks.getTask(1).isMarked());
+        assertFalse(tasks.getTask(2).isMarked());
+        assertTrue(tasks.getTask(3).isMarked());
+        assertEquals(4, tasks.getTask(3).getId());
+
+        tasks.addToList(new Deadline("submit report /by 2025-11-25"));
+        assertEquals(List.of(5), tasks.findDueBefore(LocalDate.of(2025, 12, 1)).asList().stream()
+                .map(task -> task.getId()).toList());
+        assertEquals(1, tasks.findEventsWithUnreadDates().size());
+        assertEquals(2, tasks.find("ook").size());
+    }
+
+    @Test
+    void indexedTaskRowsShouldKeepPositionsAfterDeletes() {
+        TaskList tasks = new TaskList(new IndexedTaskRows());
+        for (int i = 1; i <= 100; i++) {
+            tasks.addToList(new ToDo("task " + i));
+        }
+        for (int i = 0; i < 50; i++) {
+            tasks.deleteFromList(1 + i);
+        }
+        tasks.mark(25);
+
+        assertEquals(50, tasks.size());
+        assertEquals(2, tasks.getTask(1).getId());
+        assertEquals(50, tasks.getTask(25).getId());
+        assertTrue(tasks.getTask(25).isMarked());
+        assertEquals(100, tasks.getTask(50).getId());
+        assertEquals(25, tasks.findPosition(50));
+    }
+
+    @Test
+    void filterShouldFollowMarksAndCombineWithFind() {
+        TaskList tasks = new TaskList();
+        tasks.addToList(new ToDo("return book"));
+        tasks.addToList(new Deadline("book report /by 2025-11-20"));
+        tasks.addToList(new Deadline("tax report /by 2025-12-01"));
+        tasks.addToList(new Event("book fair /from 2026-01-09 /to 2026-01-11"));
+        TaskFilter openDeadlines = new TaskFilter(TaskFilter.Status.OPEN, TaskFilter.Type.DEADLINE);
+
+        assertEquals(2, tasks.filter(openDeadlines).size());
+        tasks.mark(2);
+        assertEquals(1, tasks.filter(openDeadlines).size());
+        assertEquals(2, tasks.filter(new TaskFilter(TaskFilter.Status.DONE, TaskFilter.Type.DEADLINE)).getTask(1)
+                .getId());
+        tasks.unmark(2);
+        tasks.deleteFromList(3);
+        tasks.addToList(new Deadline("book club /by 2025-11-30"));
+
+        TaskList openBookDeadlines = tasks.filter(tasks.find("book"), openDeadlines);
+        assertEquals(2, openBookDeadlines.size());
+        assertEquals(5, openBookDeadlines.getTask(2).getId());
+        assertEquals(1, tasks.filter(new TaskFilter(null, TaskFilter.Type.EVENT)).size());
+    }
+
+    @Test
+    void concurrentTaskListShouldGiveReadersSnapshotsWhileTasksChange() throws InterruptedException {
+        ConcurrentTaskList tasks = new ConcurrentTaskList();
+        for (int i = 1; i <= 1000; i++) {
+            tasks.addToList(new ToDo("task " + i));
+        }
+        List<Task> before = tasks.asList();
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 500; i++) {
+                tasks.deleteFromList(1);
+                tasks.addToList(new ToDo("later task " + i));
+                tasks.mark(tasks.size());
+            }
+        });
+        writer.start();
+        while (writer.isAlive()) {
+            List<Task> snapshot = tasks.asList();
+            assertTrue(snapshot.size() == 999 || snapshot.size() == 1000);
+            for (int i = 1; i < snapshot.size(); i++) {
+                assertTrue(snapshot.get(i - 1).getId() < snapshot.get(i).getId());
+            }
+            tasks.find("task");
+        }
+        writer.join();
+
+        assertEquals(1, before.get(0).getId());
+        assertEquals(1000, before.size());
+        assertEquals(501, tasks.getTask(1).getId());
+        assertEquals(1, tasks.findPosition(501));
+        assertEquals(1000, tasks.find("task").size());
+        assertTrue(tasks.getTask(1000).isMarked());
+
+        List<Task> beforeMark = tasks.asList();
+        Task unmarked = beforeMark.get(0);
+        tasks.mark(1);
+        assertFalse(unmarked.isMarked());
+        assertFalse(beforeMark.get(0).isMarked());
+        assertEquals("[T][ ] task 501", beforeMark.get(0).toString());
+        assertTrue(tasks.getTask(1).isMarked());
+        assertEquals("[T][X] task 501", tasks.getTask(1).toString());
+        assertEquals(501, tasks.getTask(1).getId());
+        assertEquals(1, tasks.filter(new TaskFilter(TaskFilter.Status.DONE, TaskFilter.Type.TODO))
+                .find("task 501").size());
+    }
+
+    @Test
+    void writeToShouldWriteAStretchAfterATaskByPosition() throws IOException {
+        TaskList tasks = new TaskList();
+        for (int i = 1; i <= 10; i++) {
+            tasks.addToList(new ToDo("task " + i));
+        }
+        tasks.deleteFromList(4);
+
+        assertEquals(3, tasks.countUpTo(3));
+        assertEquals(3, tasks.countUpTo(4));
+        assertEquals(9, tasks.countUpTo(99));
+        StringWriter out = new StringWriter();
+        tasks.writeTo(out, tasks.countUpTo(4), 2);
+        assertEquals("4. [T][ ] task 5 (#5)\n5. [T][ ] task 6 (#6)\n", out.toString());
+        out = new StringWriter();
+        tasks.writeTo(out, 8, 50);
+        assertEquals("9. [T][ ] task 10 (#10)\n", out.toString());
+    }
+}
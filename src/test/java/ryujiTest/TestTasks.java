@@ -0,0 +1,25 @@
+package ryujiTest;
+
+import ryuji.task.Task;
+
+import java.util.List;
+
+/**
+ * Helpers shared by the tests that compare lists of tasks.
+ */
+final class TestTasks {
+
+    private TestTasks() {
+    }
+
+    /**
+     * Lists tasks one per line with their IDs, so that a reloaded list can be compared as a whole.
+     */
+    static String describe(List<Task> tasks) {
+        StringBuilder sb = new StringBuilder();
+        for (Task task : tasks) {
+            sb.append('#').append(task.getId()).append(' ').append(task).append('\n');
+        }
+        return sb.toString();
+    }
+}
@@ -3,6 +3,7 @@ package ryujiTest;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 
+import ryuji.task.Task;
 import ryuji.task.ToDo;
 
 public class ToDoTest {
@@ -22,4 +23,26 @@ public class ToDoTest {
 
         assertEquals(" ", toDo.getStatusIcon());
     }
+
+    @Test
+    void sameLabelsReadFromRowsShouldShareOneString() {
+        Task first = Task.fromCsvRow("T, ,submit weekly report".split(",", 3));
+        Task second = Task.fromCsvRow("T,X,submit weekly report".split(",", 3));
+
+        assertSame(first.getLabel(), second.getLabel());
+    }
+
+    @Test
+    void renderingsShouldBeReusedUntilTheTaskIsMarked() {
+        ToDo toDo = new ToDo("return book");
+        String shown = toDo.toString();
+
+        assertSame(shown, toDo.toString());
+        assertSame(toDo.toCsvRow(), toDo.toCsvRow());
+        toDo.mark();
+        assertEquals("[T][X] return book", toDo.toString());
+        assertEquals("T,X,return book", toDo.toCsvRow());
+        toDo.unmark();
+        assertEquals(shown, toDo.toString());
+    }
 }